@@ -0,0 +1,171 @@
+package io.agora.agorartcengine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import io.agora.rtc.IRtcEngineEventHandler.AudioVolumeInfo;
+import io.agora.rtc.IRtcEngineEventHandler.RemoteVideoStats;
+import io.agora.rtc.IRtcEngineEventHandler.RtcStats;
+import io.agora.rtc.video.BeautyOptions;
+import io.agora.rtc.video.VideoEncoderConfiguration;
+import io.flutter.plugin.common.StandardMessageCodec;
+
+/**
+ * Benchmarks the conversions done for every stats and volume indication callback, and for the
+ * most common configuration calls, together with the codec encoding of the resulting maps.
+ *
+ * Run with the gc profiler (the default in build.gradle) to see the bytes allocated per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class MarshallingBenchmark {
+  private RtcStats mRtcStats;
+  private RemoteVideoStats mRemoteVideoStats;
+  private HashMap<String, Object> mVideoEncoderConfigurationMap;
+  private HashMap<String, Object> mBeautyOptionsMap;
+  private HashMap<String, Object> mRtcStatsMap;
+
+  /** Volume indication inputs; only the benchmarks taking them run once per speaker count. */
+  @State(Scope.Thread)
+  public static class Speakers {
+    @Param({"1", "4", "16"})
+    int speakerCount;
+
+    private AudioVolumeInfo[] mSpeakers;
+    private HashMap<String, Object> mAudioVolumeIndicationMap;
+    private int[] mPackedSpeakers;
+
+    @Setup
+    public void setup() {
+      mSpeakers = new AudioVolumeInfo[speakerCount];
+      mPackedSpeakers = new int[2 + speakerCount * 2];
+      mPackedSpeakers[0] = 180;
+      mPackedSpeakers[1] = speakerCount;
+      for (int i = 0; i < speakerCount; i++) {
+        AudioVolumeInfo info = new AudioVolumeInfo();
+        info.uid = 1000 + i;
+        info.volume = (i * 37) % 256;
+        mSpeakers[i] = info;
+        mPackedSpeakers[2 + i * 2] = info.uid;
+        mPackedSpeakers[3 + i * 2] = info.volume;
+      }
+
+      mAudioVolumeIndicationMap = new HashMap<>();
+      mAudioVolumeIndicationMap.put("speakers", AgoraMarshalling.arrayFromSpeakers(mSpeakers));
+      mAudioVolumeIndicationMap.put("totalVolume", 180);
+    }
+  }
+
+  @Setup
+  public void setup() {
+    mRtcStats = new RtcStats();
+    mRtcStats.totalDuration = 3600;
+    mRtcStats.txBytes = 123456789;
+    mRtcStats.rxBytes = 987654321;
+    mRtcStats.txAudioKBitRate = 48;
+    mRtcStats.rxAudioKBitRate = 64;
+    mRtcStats.txVideoKBitRate = 800;
+    mRtcStats.rxVideoKBitRate = 1600;
+    mRtcStats.txPacketLossRate = 2;
+    mRtcStats.rxPacketLossRate = 5;
+    mRtcStats.lastmileDelay = 42;
+    mRtcStats.users = 4;
+    mRtcStats.cpuAppUsage = 12.5;
+    mRtcStats.cpuTotalUsage = 37.25;
+
+    mRemoteVideoStats = new RemoteVideoStats();
+    mRemoteVideoStats.uid = 1234567;
+    mRemoteVideoStats.width = 640;
+    mRemoteVideoStats.height = 360;
+    mRemoteVideoStats.receivedBitrate = 500;
+    mRemoteVideoStats.decoderOutputFrameRate = 15;
+    mRemoteVideoStats.rendererOutputFrameRate = 15;
+    mRemoteVideoStats.rxStreamType = 1;
+
+    mVideoEncoderConfigurationMap = new HashMap<>();
+    mVideoEncoderConfigurationMap.put("width", 640);
+    mVideoEncoderConfigurationMap.put("height", 360);
+    mVideoEncoderConfigurationMap.put("frameRate", 15);
+    mVideoEncoderConfigurationMap.put("bitrate", 0);
+    mVideoEncoderConfigurationMap.put("minBitrate", -1);
+    mVideoEncoderConfigurationMap.put("orientationMode", 0);
+
+    mBeautyOptionsMap = new HashMap<>();
+    mBeautyOptionsMap.put("lighteningContrastLevel", 1.0);
+    mBeautyOptionsMap.put("lighteningLevel", 0.7);
+    mBeautyOptionsMap.put("smoothnessLevel", 0.5);
+    mBeautyOptionsMap.put("rednessLevel", 0.1);
+
+    mRtcStatsMap = new HashMap<>();
+    mRtcStatsMap.put("stats", AgoraMarshalling.mapFromStats(mRtcStats));
+  }
+
+  @Benchmark
+  public HashMap<String, Object> mapFromStats() {
+    return AgoraMarshalling.mapFromStats(mRtcStats);
+  }
+
+  @Benchmark
+  public HashMap<String, Object> mapFromRemoteVideoStats() {
+    return AgoraMarshalling.mapFromRemoteVideoStats(mRemoteVideoStats);
+  }
+
+  @Benchmark
+  public ArrayList<HashMap<String, Object>> arrayFromSpeakers(Speakers speakers) {
+    return AgoraMarshalling.arrayFromSpeakers(speakers.mSpeakers);
+  }
+
+  @Benchmark
+  public VideoEncoderConfiguration videoEncoderConfigurationFromMap() {
+    return AgoraMarshalling.videoEncoderConfigurationFromMap(mVideoEncoderConfigurationMap);
+  }
+
+  @Benchmark
+  public BeautyOptions beautyOptionsFromMap() {
+    return AgoraMarshalling.beautyOptionsFromMap(mBeautyOptionsMap);
+  }
+
+  /** What the plugin sends for onRtcStats: conversion plus encoding. */
+  @Benchmark
+  public ByteBuffer encodeRtcStats() {
+    HashMap<String, Object> map = new HashMap<>();
+    map.put("stats", AgoraMarshalling.mapFromStats(mRtcStats));
+    return StandardMessageCodec.INSTANCE.encodeMessage(map);
+  }
+
+  @Benchmark
+  public ByteBuffer encodeRtcStatsMap() {
+    return StandardMessageCodec.INSTANCE.encodeMessage(mRtcStatsMap);
+  }
+
+  @Benchmark
+  public ByteBuffer encodeAudioVolumeIndicationMap(Speakers speakers) {
+    return StandardMessageCodec.INSTANCE.encodeMessage(speakers.mAudioVolumeIndicationMap);
+  }
+
+  /** The packed form sent when a volume indication filter is set, for comparison. */
+  @Benchmark
+  public ByteBuffer encodePackedAudioVolumeIndication(Speakers speakers) {
+    HashMap<String, Object> map = new HashMap<>();
+    map.put("packed", speakers.mPackedSpeakers);
+    return StandardMessageCodec.INSTANCE.encodeMessage(map);
+  }
+}
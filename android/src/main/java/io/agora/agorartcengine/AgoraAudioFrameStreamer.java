@@ -0,0 +1,144 @@
+package io.agora.agorartcengine;
+
+import android.os.Handler;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.BinaryCodec;
+import io.flutter.plugin.common.BinaryMessenger;
+
+import io.agora.rtc.IAudioFrameObserver;
+
+/**
+ * Streams raw PCM from the SDK's audio frame observer to Dart in fixed-size chunks.
+ *
+ * Each source (recorded and playback audio) has a lock-free single-producer/single-consumer
+ * ring of preallocated direct buffers. The audio thread copies samples into the current chunk
+ * and publishes it when full; the main thread only hands published chunks to the channel. When
+ * Dart falls behind and the ring is full, whole frames are dropped and counted.
+ *
+ * Chunk layout: source, sampleRate, channels, droppedFrames as little-endian int32, followed by
+ * chunkSize bytes of 16-bit PCM.
+ */
+class AgoraAudioFrameStreamer implements IAudioFrameObserver {
+  static final String CHANNEL_NAME = "agora_rtc_engine/audio_frames";
+  static final int SOURCE_RECORD = 0;
+  static final int SOURCE_PLAYBACK = 1;
+
+  private static final int HEADER_SIZE = 4 * 4;
+  private static final int RING_SIZE = 16;
+
+  private final BasicMessageChannel<ByteBuffer> mChannel;
+  private final Handler mHandler;
+  private final ChunkRing mRecordRing;
+  private final ChunkRing mPlaybackRing;
+
+  AgoraAudioFrameStreamer(BinaryMessenger messenger, Handler handler, int chunkSize, boolean record, boolean playback) {
+    this.mChannel = new BasicMessageChannel<>(messenger, CHANNEL_NAME, BinaryCodec.INSTANCE);
+    this.mHandler = handler;
+    this.mRecordRing = record ? new ChunkRing(SOURCE_RECORD, chunkSize) : null;
+    this.mPlaybackRing = playback ? new ChunkRing(SOURCE_PLAYBACK, chunkSize) : null;
+  }
+
+  long getDroppedFrames(int source) {
+    ChunkRing ring = (source == SOURCE_RECORD) ? mRecordRing : mPlaybackRing;
+    return (ring != null) ? ring.mDroppedFrames : 0;
+  }
+
+  @Override
+  public boolean onRecordFrame(byte[] samples, int numOfSamples, int bytesPerSample, int channels, int samplesPerSec) {
+    if (mRecordRing != null) {
+      mRecordRing.write(samples, numOfSamples * bytesPerSample * channels, channels, samplesPerSec);
+    }
+    return true;
+  }
+
+  @Override
+  public boolean onPlaybackFrame(byte[] samples, int numOfSamples, int bytesPerSample, int channels, int samplesPerSec) {
+    if (mPlaybackRing != null) {
+      mPlaybackRing.write(samples, numOfSamples * bytesPerSample * channels, channels, samplesPerSec);
+    }
+    return true;
+  }
+
+  private final class ChunkRing {
+    private final int mSource;
+    private final int mPayloadSize;
+    private final ByteBuffer[] mChunks = new ByteBuffer[RING_SIZE];
+    // Chunks published by the audio thread and chunks sent by the main thread.
+    private volatile long mWriteIndex;
+    private volatile long mReadIndex;
+    private volatile long mDroppedFrames;
+    private final AtomicBoolean mFlushScheduled = new AtomicBoolean();
+
+    private final Runnable mFlushRunnable = new Runnable() {
+      @Override
+      public void run() {
+        flush();
+      }
+    };
+
+    ChunkRing(int source, int payloadSize) {
+      this.mSource = source;
+      this.mPayloadSize = payloadSize;
+      for (int i = 0; i < RING_SIZE; i++) {
+        mChunks[i] = ByteBuffer.allocateDirect(HEADER_SIZE + payloadSize).order(ByteOrder.LITTLE_ENDIAN);
+      }
+    }
+
+    /** Called on the audio thread only. */
+    void write(byte[] samples, int length, int channels, int sampleRate) {
+      length = Math.min(length, samples.length);
+      long writeIndex = mWriteIndex;
+      ByteBuffer chunk = mChunks[(int) (writeIndex % RING_SIZE)];
+      int filled = Math.max(chunk.position() - HEADER_SIZE, 0);
+      int chunksNeeded = (filled + length + mPayloadSize - 1) / mPayloadSize;
+      if (writeIndex + chunksNeeded - mReadIndex > RING_SIZE) {
+        mDroppedFrames++;
+        return;
+      }
+
+      int offset = 0;
+      boolean published = false;
+      while (offset < length) {
+        chunk = mChunks[(int) (writeIndex % RING_SIZE)];
+        if (chunk.position() == 0) {
+          chunk.putInt(mSource);
+          chunk.putInt(sampleRate);
+          chunk.putInt(channels);
+          chunk.putInt((int) mDroppedFrames);
+        }
+        int count = Math.min(chunk.remaining(), length - offset);
+        chunk.put(samples, offset, count);
+        offset += count;
+        if (!chunk.hasRemaining()) {
+          writeIndex++;
+          published = true;
+        }
+      }
+      if (published) {
+        mWriteIndex = writeIndex;
+        if (mFlushScheduled.compareAndSet(false, true)) {
+          mHandler.post(mFlushRunnable);
+        }
+      }
+    }
+
+    /** Called on the main thread, platform messages must be sent from it. */
+    private void flush() {
+      mFlushScheduled.set(false);
+      long readIndex = mReadIndex;
+      long writeIndex = mWriteIndex;
+      while (readIndex < writeIndex) {
+        ByteBuffer chunk = mChunks[(int) (readIndex % RING_SIZE)];
+        mChannel.send(chunk);
+        chunk.clear();
+        readIndex++;
+        mReadIndex = readIndex;
+      }
+    }
+  }
+}
@@ -0,0 +1,194 @@
+package io.agora.agorartcengine;
+
+import android.content.Context;
+import android.os.Handler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
+import io.flutter.plugin.common.MethodChannel.Result;
+import io.flutter.plugin.common.PluginRegistry.PluginRegistrantCallback;
+import io.flutter.view.FlutterCallbackInformation;
+import io.flutter.view.FlutterMain;
+import io.flutter.view.FlutterNativeView;
+import io.flutter.view.FlutterRunArguments;
+
+/**
+ * Runs a headless Dart isolate and delivers the events routed to it there instead of to the UI
+ * isolate, so that telemetry handling does not compete with frame rendering and keeps running
+ * while the activity is in the background.
+ *
+ * The isolate runs the plugin's background entry point, which calls "initialized" once it
+ * listens on {@link #CHANNEL_NAME}; events routed before that are held. Events are sent as one
+ * "onEvents" call per main thread message, with the app's handler callback handle and a flat list
+ * of alternating event names and arguments. At most MAX_PENDING_EVENTS events wait for delivery;
+ * newer ones are dropped and counted.
+ */
+class AgoraBackgroundIsolate implements MethodCallHandler {
+  static final String CHANNEL_NAME = "agora_rtc_engine/background";
+
+  private static final int MAX_PENDING_EVENTS = 1024;
+
+  private static PluginRegistrantCallback sPluginRegistrantCallback;
+
+  private final Context mContext;
+  private final Handler mHandler;
+  // Only accessed on the main thread.
+  private FlutterNativeView mNativeView;
+  private MethodChannel mChannel;
+  private long mHandlerHandle;
+
+  private volatile HashSet<String> mEvents;
+  private volatile boolean[] mEventIds;
+  // Guarded by this.
+  private boolean mInitialized;
+  private ArrayList<Object> mPendingEvents = new ArrayList<>();
+  private ArrayList<Object> mSendingEvents = new ArrayList<>();
+  private boolean mDrainScheduled;
+  private long mDroppedEvents;
+
+  private final Runnable mDrainRunnable = new Runnable() {
+    @Override
+    public void run() {
+      drain();
+    }
+  };
+
+  /** Sets the callback that registers plugins with the background isolate. */
+  static void setPluginRegistrant(PluginRegistrantCallback callback) {
+    sPluginRegistrantCallback = callback;
+  }
+
+  AgoraBackgroundIsolate(Context context, Handler handler) {
+    this.mContext = context.getApplicationContext();
+    this.mHandler = handler;
+  }
+
+  /** Whether the event with the given {@link AgoraEvents} id is routed to the isolate. */
+  boolean routes(int event) {
+    boolean[] eventIds = mEventIds;
+    return eventIds != null && eventIds[event];
+  }
+
+  boolean routes(String method) {
+    HashSet<String> events = mEvents;
+    return events != null && events.contains(method);
+  }
+
+  /**
+   * Starts the isolate with the entry point of dispatcherHandle, which passes events to the
+   * callback of handlerHandle, and routes the given events to it. A running isolate is stopped
+   * first. Must be called on the main thread.
+   */
+  void start(long dispatcherHandle, long handlerHandle, Collection<String> events) {
+    stop();
+    FlutterMain.ensureInitializationComplete(mContext, null);
+    FlutterCallbackInformation info = FlutterCallbackInformation.lookupCallbackInformation(dispatcherHandle);
+    if (info == null) {
+      throw new IllegalArgumentException("Unknown callback handle " + dispatcherHandle);
+    }
+
+    mNativeView = new FlutterNativeView(mContext, true);
+    if (sPluginRegistrantCallback != null) {
+      sPluginRegistrantCallback.registerWith(mNativeView.getPluginRegistry());
+    }
+    mChannel = new MethodChannel(mNativeView, CHANNEL_NAME);
+    mChannel.setMethodCallHandler(this);
+    mHandlerHandle = handlerHandle;
+
+    boolean[] eventIds = new boolean[AgoraEvents.COUNT];
+    for (String event : events) {
+      int index = AgoraEvents.indexOf(event);
+      if (index >= 0) {
+        eventIds[index] = true;
+      }
+    }
+    mEvents = new HashSet<>(events);
+    mEventIds = eventIds;
+
+    FlutterRunArguments args = new FlutterRunArguments();
+    args.bundlePath = FlutterMain.findAppBundlePath(mContext);
+    args.entrypoint = info.callbackName;
+    args.libraryPath = info.callbackLibraryPath;
+    mNativeView.runFromBundle(args);
+  }
+
+  /** Stops routing events and shuts the isolate down. Must be called on the main thread. */
+  void stop() {
+    mEvents = null;
+    mEventIds = null;
+    synchronized (this) {
+      mInitialized = false;
+      mPendingEvents.clear();
+    }
+    if (mNativeView != null) {
+      mChannel.setMethodCallHandler(null);
+      mNativeView.destroy();
+      mNativeView = null;
+      mChannel = null;
+    }
+  }
+
+  @Override
+  public void onMethodCall(MethodCall call, Result result) {
+    if ("initialized".equals(call.method)) {
+      synchronized (this) {
+        mInitialized = true;
+        scheduleDrain();
+      }
+      result.success(null);
+    } else {
+      result.notImplemented();
+    }
+  }
+
+  /** Queues an event for the isolate; called from any thread. */
+  synchronized void dispatch(String method, Object arguments) {
+    if (mPendingEvents.size() / 2 >= MAX_PENDING_EVENTS) {
+      mDroppedEvents++;
+      return;
+    }
+    mPendingEvents.add(method);
+    mPendingEvents.add(arguments);
+    scheduleDrain();
+  }
+
+  /** Returns {"running", "pending", "dropped"}. */
+  synchronized HashMap<String, Object> getStats() {
+    HashMap<String, Object> map = new HashMap<>();
+    map.put("running", mEvents != null);
+    map.put("pending", mPendingEvents.size() / 2);
+    map.put("dropped", mDroppedEvents);
+    return map;
+  }
+
+  private void scheduleDrain() {
+    if (mInitialized && !mDrainScheduled && !mPendingEvents.isEmpty()) {
+      mDrainScheduled = true;
+      mHandler.post(mDrainRunnable);
+    }
+  }
+
+  private void drain() {
+    ArrayList<Object> events;
+    synchronized (this) {
+      mDrainScheduled = false;
+      if (!mInitialized || mPendingEvents.isEmpty()) {
+        return;
+      }
+      events = mPendingEvents;
+      mPendingEvents = mSendingEvents;
+      mSendingEvents = events;
+    }
+    HashMap<String, Object> map = new HashMap<>();
+    map.put("handle", mHandlerHandle);
+    map.put("events", events);
+    mChannel.invokeMethod("onEvents", map);
+    events.clear();
+  }
+}
@@ -0,0 +1,223 @@
+package io.agora.agorartcengine;
+
+import android.os.Handler;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.BinaryCodec;
+import io.flutter.plugin.common.BinaryMessenger;
+
+import io.agora.rtc.IRtcEngineEventHandler.AudioVolumeInfo;
+import io.agora.rtc.IRtcEngineEventHandler.LocalVideoStats;
+import io.agora.rtc.IRtcEngineEventHandler.RemoteAudioStats;
+import io.agora.rtc.IRtcEngineEventHandler.RemoteVideoStats;
+import io.agora.rtc.IRtcEngineEventHandler.RtcStats;
+
+/**
+ * Packs high-frequency engine events into a preallocated direct buffer and ships them to Dart
+ * over a {@link BasicMessageChannel}. Every event is an event-id byte followed by its fields as
+ * little-endian primitives, in the order listed next to each id below.
+ *
+ * Events are appended on the SDK callback thread and flushed on the main thread. Two buffers are
+ * swapped on flush, so writers never block on the platform channel.
+ */
+class AgoraBinaryEventChannel {
+  static final String CHANNEL_NAME = "agora_rtc_engine/events";
+
+  // totalDuration, txBytes, rxBytes, txAudioKBitRate, rxAudioKBitRate, txVideoKBitRate,
+  // rxVideoKBitRate, txPacketLossRate, rxPacketLossRate, lastmileDelay, users: int32
+  // cpuAppUsage, cpuTotalUsage: float64
+  static final byte EVENT_RTC_STATS = 1;
+  // sentBitrate, sentFrameRate, encoderOutputFrameRate, rendererOutputFrameRate: int32
+  static final byte EVENT_LOCAL_VIDEO_STATS = 2;
+  // uid, width, height, receivedBitrate, decoderOutputFrameRate, rendererOutputFrameRate,
+  // rxStreamType: int32
+  static final byte EVENT_REMOTE_VIDEO_STATS = 3;
+  // uid, quality, networkTransportDelay, jitterBufferDelay, audioLossRate: int32
+  static final byte EVENT_REMOTE_AUDIO_STATS = 4;
+  // totalVolume, count: int32, then count x (uid, volume): int32
+  static final byte EVENT_AUDIO_VOLUME_INDICATION = 5;
+  // uid, txQuality, rxQuality: int32
+  static final byte EVENT_NETWORK_QUALITY = 6;
+  // uid, delay, lost, rxKBitRate: int32
+  static final byte EVENT_REMOTE_AUDIO_TRANSPORT_STATS = 7;
+  // uid, delay, lost, rxKBitRate: int32
+  static final byte EVENT_REMOTE_VIDEO_TRANSPORT_STATS = 8;
+
+  private static final int BUFFER_CAPACITY = 64 * 1024;
+
+  private final BasicMessageChannel<ByteBuffer> mChannel;
+  private final Handler mHandler;
+  private final AgoraPluginMetrics mMetrics;
+  private ByteBuffer mPendingBuffer;
+  private ByteBuffer mSendingBuffer;
+  private boolean mFlushScheduled;
+  private volatile boolean mEnabled;
+
+  private final Runnable mFlushRunnable = new Runnable() {
+    @Override
+    public void run() {
+      flush();
+    }
+  };
+
+  AgoraBinaryEventChannel(BinaryMessenger messenger, Handler handler, AgoraPluginMetrics metrics) {
+    this.mChannel = new BasicMessageChannel<>(messenger, CHANNEL_NAME, BinaryCodec.INSTANCE);
+    this.mHandler = handler;
+    this.mMetrics = metrics;
+    this.mPendingBuffer = allocateBuffer();
+    this.mSendingBuffer = allocateBuffer();
+  }
+
+  private static ByteBuffer allocateBuffer() {
+    return ByteBuffer.allocateDirect(BUFFER_CAPACITY).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  void setEnabled(boolean enabled) {
+    mEnabled = enabled;
+  }
+
+  boolean isEnabled() {
+    return mEnabled;
+  }
+
+  /**
+   * Each write returns false when the transport is disabled or the pending buffer has no room
+   * left, in which case the caller falls back to the map-based method channel.
+   */
+  synchronized boolean writeRtcStats(RtcStats stats) {
+    if (!begin(EVENT_RTC_STATS, 11 * 4 + 2 * 8)) {
+      return false;
+    }
+    mPendingBuffer.putInt(stats.totalDuration);
+    mPendingBuffer.putInt(stats.txBytes);
+    mPendingBuffer.putInt(stats.rxBytes);
+    mPendingBuffer.putInt(stats.txAudioKBitRate);
+    mPendingBuffer.putInt(stats.rxAudioKBitRate);
+    mPendingBuffer.putInt(stats.txVideoKBitRate);
+    mPendingBuffer.putInt(stats.rxVideoKBitRate);
+    mPendingBuffer.putInt(stats.txPacketLossRate);
+    mPendingBuffer.putInt(stats.rxPacketLossRate);
+    mPendingBuffer.putInt(stats.lastmileDelay);
+    mPendingBuffer.putInt(stats.users);
+    mPendingBuffer.putDouble(stats.cpuAppUsage);
+    mPendingBuffer.putDouble(stats.cpuTotalUsage);
+    return true;
+  }
+
+  synchronized boolean writeLocalVideoStats(LocalVideoStats stats) {
+    if (!begin(EVENT_LOCAL_VIDEO_STATS, 4 * 4)) {
+      return false;
+    }
+    mPendingBuffer.putInt(stats.sentBitrate);
+    mPendingBuffer.putInt(stats.sentFrameRate);
+    mPendingBuffer.putInt(stats.encoderOutputFrameRate);
+    mPendingBuffer.putInt(stats.rendererOutputFrameRate);
+    return true;
+  }
+
+  synchronized boolean writeRemoteVideoStats(RemoteVideoStats stats) {
+    if (!begin(EVENT_REMOTE_VIDEO_STATS, 7 * 4)) {
+      return false;
+    }
+    mPendingBuffer.putInt(stats.uid);
+    mPendingBuffer.putInt(stats.width);
+    mPendingBuffer.putInt(stats.height);
+    mPendingBuffer.putInt(stats.receivedBitrate);
+    mPendingBuffer.putInt(stats.decoderOutputFrameRate);
+    mPendingBuffer.putInt(stats.rendererOutputFrameRate);
+    mPendingBuffer.putInt(stats.rxStreamType);
+    return true;
+  }
+
+  synchronized boolean writeRemoteAudioStats(RemoteAudioStats stats) {
+    if (!begin(EVENT_REMOTE_AUDIO_STATS, 5 * 4)) {
+      return false;
+    }
+    mPendingBuffer.putInt(stats.uid);
+    mPendingBuffer.putInt(stats.quality);
+    mPendingBuffer.putInt(stats.networkTransportDelay);
+    mPendingBuffer.putInt(stats.jitterBufferDelay);
+    mPendingBuffer.putInt(stats.audioLossRate);
+    return true;
+  }
+
+  synchronized boolean writeAudioVolumeIndication(AudioVolumeInfo[] speakers, int totalVolume) {
+    int count = (speakers != null) ? speakers.length : 0;
+    if (!begin(EVENT_AUDIO_VOLUME_INDICATION, 2 * 4 + count * 2 * 4)) {
+      return false;
+    }
+    mPendingBuffer.putInt(totalVolume);
+    mPendingBuffer.putInt(count);
+    for (int i = 0; i < count; i++) {
+      mPendingBuffer.putInt(speakers[i].uid);
+      mPendingBuffer.putInt(speakers[i].volume);
+    }
+    return true;
+  }
+
+  /** Writes an indication packed by {@link AgoraVolumeIndicationFilter}, which has the same layout. */
+  synchronized boolean writeAudioVolumeIndication(int[] packed) {
+    if (!begin(EVENT_AUDIO_VOLUME_INDICATION, packed.length * 4)) {
+      return false;
+    }
+    for (int value : packed) {
+      mPendingBuffer.putInt(value);
+    }
+    return true;
+  }
+
+  synchronized boolean writeNetworkQuality(int uid, int txQuality, int rxQuality) {
+    if (!begin(EVENT_NETWORK_QUALITY, 3 * 4)) {
+      return false;
+    }
+    mPendingBuffer.putInt(uid);
+    mPendingBuffer.putInt(txQuality);
+    mPendingBuffer.putInt(rxQuality);
+    return true;
+  }
+
+  synchronized boolean writeTransportStats(byte event, int uid, int delay, int lost, int rxKBitRate) {
+    if (!begin(event, 4 * 4)) {
+      return false;
+    }
+    mPendingBuffer.putInt(uid);
+    mPendingBuffer.putInt(delay);
+    mPendingBuffer.putInt(lost);
+    mPendingBuffer.putInt(rxKBitRate);
+    return true;
+  }
+
+  private boolean begin(byte event, int payloadSize) {
+    if (!mEnabled || mPendingBuffer.remaining() < 1 + payloadSize) {
+      return false;
+    }
+    mPendingBuffer.put(event);
+    if (!mFlushScheduled) {
+      mFlushScheduled = true;
+      mHandler.post(mFlushRunnable);
+    }
+    return true;
+  }
+
+  /** Must run on the main thread; the engine copies the message before send returns. */
+  private void flush() {
+    ByteBuffer buffer;
+    synchronized (this) {
+      mFlushScheduled = false;
+      if (mPendingBuffer.position() == 0) {
+        return;
+      }
+      buffer = mPendingBuffer;
+      mPendingBuffer = mSendingBuffer;
+      mSendingBuffer = buffer;
+    }
+    if (mMetrics.isEnabled()) {
+      mMetrics.recordEventBytes(CHANNEL_NAME, buffer.position());
+    }
+    mChannel.send(buffer);
+    buffer.clear();
+  }
+}
@@ -0,0 +1,250 @@
+package io.agora.agorartcengine;
+
+import android.os.SystemClock;
+import android.util.SparseArray;
+
+import java.util.ArrayDeque;
+
+import io.agora.rtc.Constants;
+
+/**
+ * Sends data stream messages within the SDK's limits of 30 packets of up to 1 KB per second and
+ * 6 KB per second in total for each user.
+ *
+ * Messages on a stream with coalescing enabled are queued and packed into as few packets as
+ * possible once per coalescing interval. Every packet of such a stream is packed, so receivers can
+ * tell packed packets from raw ones by stream; messages too large to be packed are rejected rather
+ * than sent raw or out of order. A packed packet starts with {@link #MAGIC} and {@link #VERSION},
+ * followed by each message as a big-endian uint16 length and its bytes. Receivers split such
+ * packets with {@link #unpack}. Messages sent directly count against the same budget, so queued
+ * packets never push the user over the limits. Packets the SDK fails to send are reported to the
+ * transport with the number of messages they held.
+ */
+class AgoraDataStreamSender {
+  static final byte MAGIC = (byte) 0xAC;
+  static final byte VERSION = 1;
+  static final int HEADER_SIZE = 2;
+
+  static final int MAX_PACKET_SIZE = 1024;
+  static final int MAX_MESSAGE_SIZE = MAX_PACKET_SIZE - HEADER_SIZE - 2;
+  private static final int MAX_PACKETS_PER_SECOND = 30;
+  private static final int MAX_BYTES_PER_SECOND = 6 * 1024;
+  private static final int MAX_QUEUED_BYTES = 16 * 1024;
+  private static final long WINDOW = 1000;
+
+  /** Where packets go; both methods are called with the sender's lock held. */
+  interface Transport {
+    int sendStreamMessage(int streamId, byte[] packet);
+
+    /** Runs the runnable on the engine thread after delay milliseconds. */
+    void postDelayed(Runnable runnable, long delay);
+
+    /** Reports a packed packet of streamId the SDK failed to send, with the messages it held. */
+    void onPacketDropped(int streamId, int messages, int error);
+  }
+
+  /** Receives the messages of a packed packet. */
+  interface MessageHandler {
+    void onMessage(byte[] message);
+  }
+
+  private final Transport mTransport;
+  private final SparseArray<Stream> mStreams = new SparseArray<>();
+  // Send times and sizes of the last MAX_PACKETS_PER_SECOND packets.
+  private final long[] mSendTimes = new long[MAX_PACKETS_PER_SECOND];
+  private final int[] mSendSizes = new int[MAX_PACKETS_PER_SECOND];
+  private int mSendIndex;
+  private boolean mFlushScheduled;
+
+  private final Runnable mFlushRunnable = new Runnable() {
+    @Override
+    public void run() {
+      flush();
+    }
+  };
+
+  private static final class Stream {
+    final ArrayDeque<byte[]> mMessages = new ArrayDeque<>();
+    long mInterval;
+    int mQueuedBytes;
+  }
+
+  AgoraDataStreamSender(Transport transport) {
+    this.mTransport = transport;
+    for (int i = 0; i < MAX_PACKETS_PER_SECOND; i++) {
+      mSendTimes[i] = Long.MIN_VALUE / 2;
+    }
+  }
+
+  /** Enables/Disables coalescing of the messages sent on streamId; disabling drops the queue. */
+  synchronized void setCoalescing(int streamId, boolean enabled, long interval) {
+    if (!enabled) {
+      mStreams.remove(streamId);
+      return;
+    }
+    Stream stream = mStreams.get(streamId);
+    if (stream == null) {
+      stream = new Stream();
+      mStreams.put(streamId, stream);
+    }
+    stream.mInterval = Math.max(interval, 0);
+  }
+
+  /** Forgets all streams, e.g. when the engine is destroyed. */
+  synchronized void reset() {
+    mStreams.clear();
+  }
+
+  /**
+   * Sends or queues a message. Returns the SDK's result for direct sends, 0 for queued messages,
+   * {@code -Constants.ERR_INVALID_ARGUMENT} for a message too large to be packed on a coalescing
+   * stream and {@code -Constants.ERR_TOO_OFTEN} when the stream's queue is full.
+   */
+  synchronized int send(int streamId, byte[] message) {
+    Stream stream = mStreams.get(streamId);
+    if (stream == null) {
+      int ret = mTransport.sendStreamMessage(streamId, message);
+      if (ret == 0) {
+        recordSend(SystemClock.elapsedRealtime(), message.length);
+      }
+      return ret;
+    }
+
+    if (message.length > MAX_MESSAGE_SIZE) {
+      return -Constants.ERR_INVALID_ARGUMENT;
+    }
+    if (stream.mQueuedBytes + message.length > MAX_QUEUED_BYTES) {
+      return -Constants.ERR_TOO_OFTEN;
+    }
+    stream.mMessages.add(message);
+    stream.mQueuedBytes += message.length;
+    scheduleFlush(stream.mInterval);
+    return 0;
+  }
+
+  private void scheduleFlush(long delay) {
+    if (mFlushScheduled) {
+      return;
+    }
+    mFlushScheduled = true;
+    mTransport.postDelayed(mFlushRunnable, delay);
+  }
+
+  private synchronized void flush() {
+    mFlushScheduled = false;
+    long now = SystemClock.elapsedRealtime();
+    for (int i = 0; i < mStreams.size(); i++) {
+      int streamId = mStreams.keyAt(i);
+      Stream stream = mStreams.valueAt(i);
+      while (!stream.mMessages.isEmpty()) {
+        int size = packetSize(stream.mMessages);
+        if (!canSend(now, size)) {
+          // Retry once the oldest packet of the window has expired.
+          scheduleFlush(oldestSendInWindow(now) + WINDOW - now);
+          return;
+        }
+        int queued = stream.mMessages.size();
+        byte[] packet = pack(stream, size);
+        // A failed packet is dropped, the SDK reports nothing more useful to retry on.
+        int ret = mTransport.sendStreamMessage(streamId, packet);
+        if (ret == 0) {
+          recordSend(now, size);
+        } else {
+          mTransport.onPacketDropped(streamId, queued - stream.mMessages.size(), ret);
+        }
+      }
+    }
+  }
+
+  private static int packetSize(ArrayDeque<byte[]> messages) {
+    int size = HEADER_SIZE;
+    for (byte[] message : messages) {
+      if (size + 2 + message.length > MAX_PACKET_SIZE) {
+        break;
+      }
+      size += 2 + message.length;
+    }
+    return size;
+  }
+
+  private static byte[] pack(Stream stream, int size) {
+    byte[] packet = new byte[size];
+    packet[0] = MAGIC;
+    packet[1] = VERSION;
+    int offset = HEADER_SIZE;
+    while (offset < size) {
+      byte[] message = stream.mMessages.poll();
+      stream.mQueuedBytes -= message.length;
+      packet[offset] = (byte) (message.length >> 8);
+      packet[offset + 1] = (byte) message.length;
+      System.arraycopy(message, 0, packet, offset + 2, message.length);
+      offset += 2 + message.length;
+    }
+    return packet;
+  }
+
+  private boolean canSend(long now, int size) {
+    // mSendIndex points at the oldest of the last MAX_PACKETS_PER_SECOND packets.
+    if (now - mSendTimes[mSendIndex] < WINDOW) {
+      return false;
+    }
+    int bytes = size;
+    for (int i = 0; i < MAX_PACKETS_PER_SECOND; i++) {
+      if (now - mSendTimes[i] < WINDOW) {
+        bytes += mSendSizes[i];
+      }
+    }
+    return bytes <= MAX_BYTES_PER_SECOND;
+  }
+
+  private long oldestSendInWindow(long now) {
+    long oldest = now;
+    for (long time : mSendTimes) {
+      if (now - time < WINDOW && time < oldest) {
+        oldest = time;
+      }
+    }
+    return oldest;
+  }
+
+  private void recordSend(long now, int size) {
+    mSendTimes[mSendIndex] = now;
+    mSendSizes[mSendIndex] = size;
+    mSendIndex = (mSendIndex + 1) % MAX_PACKETS_PER_SECOND;
+  }
+
+  /**
+   * Splits a packed packet into its messages. Returns false, without calling the handler, when
+   * data is not a well-formed packed packet of at least one message.
+   */
+  static boolean unpack(byte[] data, MessageHandler handler) {
+    if (data.length < HEADER_SIZE + 2 || data[0] != MAGIC || data[1] != VERSION) {
+      return false;
+    }
+    int offset = HEADER_SIZE;
+    while (offset < data.length) {
+      if (offset + 2 > data.length) {
+        return false;
+      }
+      offset += 2 + readLength(data, offset);
+    }
+    if (offset != data.length) {
+      return false;
+    }
+
+    offset = HEADER_SIZE;
+    while (offset < data.length) {
+      int length = readLength(data, offset);
+      offset += 2;
+      byte[] message = new byte[length];
+      System.arraycopy(data, offset, message, 0, length);
+      handler.onMessage(message);
+      offset += length;
+    }
+    return true;
+  }
+
+  private static int readLength(byte[] data, int offset) {
+    return ((data[offset] & 0xff) << 8) | (data[offset + 1] & 0xff);
+  }
+}
@@ -0,0 +1,215 @@
+package io.agora.agorartcengine;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.SystemClock;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.agora.rtc.IRtcEngineEventHandler.LocalVideoStats;
+import io.agora.rtc.IRtcEngineEventHandler.RtcStats;
+import io.agora.rtc.video.VideoEncoderConfiguration;
+
+/**
+ * Steps the video encoder configuration down and back up a ladder, from the load of the device.
+ *
+ * Every local video stats callback is a sample. It is overloaded when the total CPU usage of the
+ * last RtcStats reaches the high threshold, the encoder outputs less than the frame rate ratio of
+ * the step's frame rate, or the thermal status reaches the thermal threshold; it is idle when the
+ * CPU usage is at most the low threshold and neither of the others holds. The tuner steps down
+ * after downSamples overloaded samples in a row and up after upSamples idle ones, but not sooner
+ * than downInterval, respectively upInterval, after its last step. A step down within the up
+ * interval of a step up doubles the up interval, up to MAX_UP_BACKOFF times, so that a step the
+ * device cannot hold is not retried at the same pace.
+ *
+ * A sent frame rate below the encoder's output means the network is the limit, which is left to
+ * the SDK's bandwidth adaptation. The thermal status is read from PowerManager on Android 10 and
+ * later, and unknown before.
+ */
+class AgoraEncoderTuner {
+  interface Listener {
+    /** Called on the SDK callback thread with the configuration to apply and a report of the step. */
+    void onAdjust(VideoEncoderConfiguration configuration, HashMap<String, Object> report);
+  }
+
+  private static final int API_Q = 29;
+  private static final int MAX_UP_BACKOFF = 8;
+
+  /** An immutable tuning configuration; the ladder starts with the best configuration. */
+  static final class Config {
+    final List<Map<String, Object>> ladder;
+    final VideoEncoderConfiguration[] configurations;
+    final double cpuHigh;
+    final double cpuLow;
+    final double frameRateRatio;
+    final int thermalStatus;
+    final int downSamples;
+    final int upSamples;
+    final long downInterval;
+    final long upInterval;
+
+    Config(List<Map<String, Object>> ladder, double cpuHigh, double cpuLow, double frameRateRatio, int thermalStatus,
+           int downSamples, int upSamples, long downInterval, long upInterval) {
+      this.ladder = ladder;
+      this.configurations = new VideoEncoderConfiguration[ladder.size()];
+      for (int i = 0; i < configurations.length; i++) {
+        configurations[i] = AgoraMarshalling.videoEncoderConfigurationFromMap(new HashMap<>(ladder.get(i)));
+      }
+      this.cpuHigh = cpuHigh;
+      this.cpuLow = cpuLow;
+      this.frameRateRatio = frameRateRatio;
+      this.thermalStatus = thermalStatus;
+      this.downSamples = Math.max(downSamples, 1);
+      this.upSamples = Math.max(upSamples, 1);
+      this.downInterval = downInterval;
+      this.upInterval = upInterval;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Config fromMap(Map<String, Object> map) {
+      return new Config(
+          (List<Map<String, Object>>) map.get("ladder"),
+          ((Number) map.get("cpuHigh")).doubleValue(),
+          ((Number) map.get("cpuLow")).doubleValue(),
+          ((Number) map.get("frameRateRatio")).doubleValue(),
+          ((Number) map.get("thermalStatus")).intValue(),
+          ((Number) map.get("downSamples")).intValue(),
+          ((Number) map.get("upSamples")).intValue(),
+          ((Number) map.get("downInterval")).longValue(),
+          ((Number) map.get("upInterval")).longValue());
+    }
+  }
+
+  private final Listener mListener;
+  private final Object mPowerManager;
+  private final Method mGetCurrentThermalStatus;
+
+  // Guarded by this.
+  private Config mConfig;
+  private int mStep;
+  private long mStepTime;
+  private boolean mSteppedUp;
+  private int mUpBackoff = 1;
+  private int mOverloadedSamples;
+  private int mIdleSamples;
+  private double mCpuTotalUsage = -1;
+  private double mCpuAppUsage = -1;
+
+  AgoraEncoderTuner(Context context, Listener listener) {
+    this.mListener = listener;
+    Object powerManager = null;
+    Method getCurrentThermalStatus = null;
+    if (Build.VERSION.SDK_INT >= API_Q) {
+      powerManager = context.getApplicationContext().getSystemService(Context.POWER_SERVICE);
+      try {
+        getCurrentThermalStatus = powerManager.getClass().getMethod("getCurrentThermalStatus");
+      } catch (Exception e) {
+        powerManager = null;
+      }
+    }
+    this.mPowerManager = powerManager;
+    this.mGetCurrentThermalStatus = getCurrentThermalStatus;
+  }
+
+  /**
+   * Replaces the configuration, null disables tuning. Returns the first step of the ladder, which
+   * the caller applies, or null.
+   */
+  synchronized VideoEncoderConfiguration setConfig(Config config) {
+    mConfig = (config != null && config.configurations.length > 0) ? config : null;
+    mStep = 0;
+    mStepTime = SystemClock.elapsedRealtime();
+    mSteppedUp = false;
+    mUpBackoff = 1;
+    mOverloadedSamples = 0;
+    mIdleSamples = 0;
+    return (mConfig != null) ? mConfig.configurations[0] : null;
+  }
+
+  synchronized boolean isEnabled() {
+    return mConfig != null;
+  }
+
+  synchronized void recordRtcStats(RtcStats stats) {
+    mCpuTotalUsage = stats.cpuTotalUsage;
+    mCpuAppUsage = stats.cpuAppUsage;
+  }
+
+  void recordLocalVideoStats(LocalVideoStats stats) {
+    int thermalStatus = thermalStatus();
+    VideoEncoderConfiguration configuration;
+    HashMap<String, Object> report;
+    synchronized (this) {
+      Config config = mConfig;
+      // Without encoded frames the local video is off, which says nothing about the load.
+      if (config == null || stats.encoderOutputFrameRate <= 0) {
+        return;
+      }
+      boolean cpuHigh = mCpuTotalUsage >= config.cpuHigh;
+      boolean frameRateLow = stats.encoderOutputFrameRate < config.configurations[mStep].frameRate * config.frameRateRatio;
+      boolean thermalHigh = thermalStatus >= config.thermalStatus;
+      if (cpuHigh || frameRateLow || thermalHigh) {
+        mOverloadedSamples++;
+        mIdleSamples = 0;
+      } else if (mCpuTotalUsage >= 0 && mCpuTotalUsage <= config.cpuLow) {
+        mIdleSamples++;
+        mOverloadedSamples = 0;
+      } else {
+        mOverloadedSamples = 0;
+        mIdleSamples = 0;
+      }
+
+      long now = SystemClock.elapsedRealtime();
+      long sinceStep = now - mStepTime;
+      int step;
+      String reason;
+      if (mOverloadedSamples >= config.downSamples && sinceStep >= config.downInterval
+          && mStep < config.configurations.length - 1) {
+        if (mSteppedUp && sinceStep < config.upInterval * mUpBackoff) {
+          mUpBackoff = Math.min(mUpBackoff * 2, MAX_UP_BACKOFF);
+        }
+        mSteppedUp = false;
+        step = mStep + 1;
+        reason = thermalHigh ? "thermal" : (cpuHigh ? "cpu" : "frameRate");
+      } else if (mIdleSamples >= config.upSamples && sinceStep >= config.upInterval * mUpBackoff && mStep > 0) {
+        mSteppedUp = true;
+        step = mStep - 1;
+        reason = "recovered";
+      } else {
+        return;
+      }
+
+      report = new HashMap<>();
+      report.put("step", step);
+      report.put("previousStep", mStep);
+      report.put("reason", reason);
+      report.put("configuration", config.ladder.get(step));
+      report.put("cpuTotalUsage", mCpuTotalUsage);
+      report.put("cpuAppUsage", mCpuAppUsage);
+      report.put("sentFrameRate", stats.sentFrameRate);
+      report.put("encoderOutputFrameRate", stats.encoderOutputFrameRate);
+      report.put("thermalStatus", thermalStatus);
+      mStep = step;
+      mStepTime = now;
+      mOverloadedSamples = 0;
+      mIdleSamples = 0;
+      configuration = config.configurations[step];
+    }
+    mListener.onAdjust(configuration, report);
+  }
+
+  /** Returns the PowerManager thermal status, or -1 if unknown. */
+  private int thermalStatus() {
+    if (mGetCurrentThermalStatus == null) {
+      return -1;
+    }
+    try {
+      return (Integer) mGetCurrentThermalStatus.invoke(mPowerManager);
+    } catch (Exception e) {
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package io.agora.agorartcengine;
+
+import io.agora.rtc.IAudioFrameObserver;
+import io.agora.rtc.mediaio.IVideoSink;
+import io.agora.rtc.video.BeautyOptions;
+import io.agora.rtc.video.VideoCanvas;
+import io.agora.rtc.video.VideoEncoderConfiguration;
+
+/**
+ * The engine methods used by the plugin, with the signatures of RtcEngine.
+ *
+ * {@link AgoraSdkEngine} forwards them to the Agora SDK; {@link AgoraFakeEngine} simulates a
+ * channel in-process for load tests.
+ */
+interface AgoraEngine {
+  /** Releases the engine; no method may be called afterwards. */
+  void destroy();
+
+  // Core Methods
+  int setChannelProfile(int profile);
+
+  int setClientRole(int role);
+
+  int joinChannel(String token, String channelName, String optionalInfo, int optionalUid);
+
+  int leaveChannel();
+
+  int renewToken(String token);
+
+  int enableWebSdkInteroperability(boolean enabled);
+
+  int getConnectionState();
+
+  // Core Audio
+  int enableAudio();
+
+  int disableAudio();
+
+  int setAudioProfile(int profile, int scenario);
+
+  int adjustRecordingSignalVolume(int volume);
+
+  int adjustPlaybackSignalVolume(int volume);
+
+  int enableAudioVolumeIndication(int interval, int smooth);
+
+  int enableLocalAudio(boolean enabled);
+
+  int muteLocalAudioStream(boolean muted);
+
+  int muteRemoteAudioStream(int uid, boolean muted);
+
+  int muteAllRemoteAudioStreams(boolean muted);
+
+  int setDefaultMuteAllRemoteAudioStreams(boolean muted);
+
+  // Video Pre-process and Post-process
+  int setBeautyEffectOptions(boolean enabled, BeautyOptions options);
+
+  // Core Video
+  int enableVideo();
+
+  int disableVideo();
+
+  int setVideoEncoderConfiguration(VideoEncoderConfiguration config);
+
+  int setupLocalVideo(VideoCanvas local);
+
+  int setupRemoteVideo(VideoCanvas remote);
+
+  int setLocalVideoRenderer(IVideoSink render);
+
+  int setRemoteVideoRenderer(int uid, IVideoSink render);
+
+  int setLocalRenderMode(int mode);
+
+  int setRemoteRenderMode(int uid, int mode);
+
+  int startPreview();
+
+  int stopPreview();
+
+  int enableLocalVideo(boolean enabled);
+
+  int muteLocalVideoStream(boolean muted);
+
+  int muteRemoteVideoStream(int uid, boolean muted);
+
+  int muteAllRemoteVideoStreams(boolean muted);
+
+  int setDefaultMuteAllRemoteVideoStreams(boolean muted);
+
+  // Audio Routing Control
+  int setDefaultAudioRoutetoSpeakerphone(boolean defaultToSpeaker);
+
+  int setEnableSpeakerphone(boolean enabled);
+
+  boolean isSpeakerphoneEnabled();
+
+  // Stream Fallback
+  int setRemoteUserPriority(int uid, int userPriority);
+
+  int setLocalPublishFallbackOption(int option);
+
+  int setRemoteSubscribeFallbackOption(int option);
+
+  // Dual-stream Mode
+  int enableDualStreamMode(boolean enabled);
+
+  int setRemoteVideoStreamType(int uid, int streamType);
+
+  int setRemoteDefaultVideoStreamType(int streamType);
+
+  // Encryption
+  int setEncryptionSecret(String secret);
+
+  int setEncryptionMode(String encryptionMode);
+
+  // Camera Control
+  int switchCamera();
+
+  // Data Stream
+  int createDataStream(boolean reliable, boolean ordered);
+
+  int sendStreamMessage(int streamId, byte[] message);
+
+  // Raw Audio Data
+  int registerAudioFrameObserver(IAudioFrameObserver observer);
+
+  int setRecordingAudioFrameParameters(int sampleRate, int channel, int mode, int samplesPerCall);
+
+  int setPlaybackAudioFrameParameters(int sampleRate, int channel, int mode, int samplesPerCall);
+}
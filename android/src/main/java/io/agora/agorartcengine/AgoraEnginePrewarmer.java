@@ -0,0 +1,104 @@
+package io.agora.agorartcengine;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import io.agora.rtc.IRtcEngineEventHandler;
+
+/**
+ * Creates the SDK engine ahead of time on a background thread, so that loading the native
+ * libraries and initializing the media engine happen off the main thread.
+ *
+ * A later {@link #take} with the same appId returns the warm engine, waiting for a prewarm that
+ * is still running. The SDK holds a single engine, so prewarms run one at a time, a warm engine
+ * for another appId is destroyed before the next one is created, and {@link #take} waits for all
+ * prewarms before the caller may create an engine itself.
+ */
+class AgoraEnginePrewarmer {
+  interface Listener {
+    /** Called on the prewarm thread; error is null if the engine was created. */
+    void onPrewarmed(String appId, long elapsed, Exception error);
+  }
+
+  private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      return new Thread(runnable, "AgoraRtcEnginePrewarm");
+    }
+  });
+
+  // Guarded by this.
+  private String mRequestedAppId;
+  private int mRunningCount;
+  private AgoraSdkEngine mEngine;
+  private String mEngineAppId;
+
+  /** Starts creating an engine for appId, unless one is already warm or warming. */
+  synchronized void prewarm(final Context context, final String appId, final IRtcEngineEventHandler handler,
+                            final Listener listener) {
+    if (appId.equals(mRequestedAppId)) {
+      return;
+    }
+    mRequestedAppId = appId;
+    mRunningCount++;
+    mExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        warm(context, appId, handler, listener);
+      }
+    });
+  }
+
+  private void warm(Context context, String appId, IRtcEngineEventHandler handler, Listener listener) {
+    long start = SystemClock.elapsedRealtime();
+    AgoraSdkEngine engine = null;
+    Exception error = null;
+    synchronized (this) {
+      if (mEngine != null) {
+        mEngine.destroy();
+        mEngine = null;
+        mEngineAppId = null;
+      }
+    }
+    try {
+      engine = AgoraSdkEngine.create(context, appId, handler);
+    } catch (Exception e) {
+      error = e;
+    }
+    long elapsed = SystemClock.elapsedRealtime() - start;
+    synchronized (this) {
+      mEngine = engine;
+      mEngineAppId = (engine != null) ? appId : null;
+      if (engine == null && appId.equals(mRequestedAppId)) {
+        mRequestedAppId = null;
+      }
+      mRunningCount--;
+      notifyAll();
+    }
+    listener.onPrewarmed(appId, elapsed, error);
+  }
+
+  /**
+   * Returns the warm engine of appId, or null if there is none, once no prewarm is running. A
+   * warm engine for another appId is destroyed.
+   */
+  synchronized AgoraSdkEngine take(String appId) throws InterruptedException {
+    while (mRunningCount > 0) {
+      wait();
+    }
+    AgoraSdkEngine engine = mEngine;
+    boolean warm = engine != null && appId.equals(mEngineAppId);
+    mEngine = null;
+    mEngineAppId = null;
+    mRequestedAppId = null;
+    if (engine != null && !warm) {
+      engine.destroy();
+      return null;
+    }
+    return engine;
+  }
+}
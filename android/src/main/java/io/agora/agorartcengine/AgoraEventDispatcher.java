@@ -0,0 +1,407 @@
+package io.agora.agorartcengine;
+
+import android.os.Handler;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Delivers engine events to Dart on the main thread.
+ *
+ * By default every event is posted to the main thread and invoked on its own. In batching mode,
+ * events are queued on the SDK callback thread and flushed as a single "onEventBatch" call once
+ * per display frame or once per configured interval. The batch is a flat list of alternating
+ * method names and arguments, in the order the SDK reported them.
+ *
+ * With the bounded queue, events are queued natively too, and a single flush is pending on the
+ * main thread at a time, so a stalled main thread does not pile up one message per event. Each
+ * event has a policy: lossless events are always queued in order; coalesced events replace the
+ * queued event of the same method and key (usually a uid), and always keep one slot per key, so
+ * the latest value of a key is never lost, even when the queue is full; droppable events are only
+ * dropped when the queue is full. A {@link Coalescer} registered
+ * for a method can merge the replaced event into the newer one. Replaced and dropped events are
+ * counted per method.
+ *
+ * With the priority lanes, events are delivered in two lanes. Telemetry events take the paths
+ * above; every other event is a control event, queued separately and drained by an ordinary main
+ * thread message, which every telemetry delivery checks first, so control events are delivered
+ * ahead of pending telemetry but never ahead of earlier main thread messages such as method
+ * results. Events keep their order within each lane, but a control event may overtake telemetry
+ * reported before it. Stream messages can arrive at a high rate and always take the telemetry
+ * lane. The lanes are off by default, which delivers every event in the telemetry lane.
+ *
+ * Events routed to the {@link AgoraBackgroundIsolate} bypass all of the above and are delivered
+ * to the background isolate only.
+ *
+ * Dart registers the events it listens to with {@link #setSubscriptions}; until then every
+ * event is delivered. Deliveries are reported to {@link AgoraPluginMetrics} when it is enabled.
+ */
+class AgoraEventDispatcher {
+  static final String METHOD_EVENT_BATCH = "onEventBatch";
+
+  static final int POLICY_LOSSLESS = 0;
+  static final int POLICY_COALESCE = 1;
+  static final int POLICY_DROPPABLE = 2;
+
+  /**
+   * The periodic events, delivered in the telemetry lane and coalesced by default. Every other
+   * event is a lossless control event.
+   */
+  static final String[] TELEMETRY_EVENTS = {
+      "onAudioVolumeIndication",
+      "onActiveSpeaker",
+      "onRtcStats",
+      "onLastmileQuality",
+      "onNetworkQuality",
+      "onLocalVideoStats",
+      "onRemoteVideoStats",
+      "onRemoteAudioStats",
+      "onRemoteAudioTransportStats",
+      "onRemoteVideoTransportStats",
+      "onStatsSummary",
+  };
+
+  /** Events kept in the telemetry lane whatever the telemetry events, as they are not bounded in rate. */
+  private static final HashSet<String> BULK_EVENTS = new HashSet<>(Arrays.asList("onStreamMessage"));
+
+  private final MethodChannel mMethodChannel;
+  private final Handler mHandler;
+  private final AgoraPluginMetrics mMetrics;
+  private final AgoraBackgroundIsolate mBackgroundIsolate;
+  private ArrayList<Object> mPendingEvents = new ArrayList<>();
+  private ArrayList<Object> mSendingEvents = new ArrayList<>();
+  private boolean mFlushScheduled;
+  private long mFlushPostTime;
+  private volatile boolean mBatching;
+  private volatile int mFlushInterval;
+  private volatile boolean[] mSubscriptions;
+
+  // Control lane, guarded by this; null telemetry events disable the lanes.
+  private volatile HashSet<String> mTelemetryEvents;
+  private ArrayList<Object> mControlEvents = new ArrayList<>();
+  private ArrayList<Object> mSendingControlEvents = new ArrayList<>();
+  private boolean mControlDrainScheduled;
+  private long mControlPostTime;
+
+  // Bounded queue; the pending state is guarded by this.
+  private final HashMap<String, Coalescer> mCoalescers = new HashMap<>();
+  private volatile boolean mQueueEnabled;
+  private int mQueueCapacity;
+  private volatile HashMap<String, Integer> mPolicies = defaultPolicies();
+  private final HashMap<Long, Integer> mPendingKeys = new HashMap<>();
+  private final HashMap<String, long[]> mQueueCounts = new HashMap<>();
+  private int mMaxQueueSize;
+
+  private final Runnable mControlDrainRunnable = new Runnable() {
+    @Override
+    public void run() {
+      synchronized (AgoraEventDispatcher.this) {
+        mControlDrainScheduled = false;
+      }
+      drainControlEvents();
+    }
+  };
+
+  private final Runnable mFlushRunnable = new Runnable() {
+    @Override
+    public void run() {
+      flush();
+    }
+  };
+
+  private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      flush();
+    }
+  };
+
+  private final Runnable mPostFrameCallbackRunnable = new Runnable() {
+    @Override
+    public void run() {
+      Choreographer.getInstance().postFrameCallback(mFrameCallback);
+    }
+  };
+
+  AgoraEventDispatcher(MethodChannel methodChannel, Handler handler, AgoraPluginMetrics metrics,
+                       AgoraBackgroundIsolate backgroundIsolate) {
+    this.mMethodChannel = methodChannel;
+    this.mHandler = handler;
+    this.mMetrics = metrics;
+    this.mBackgroundIsolate = backgroundIsolate;
+  }
+
+  /** Called from the SDK callback thread, before the event payload is built. */
+  boolean isSubscribed(int event) {
+    boolean[] subscriptions = mSubscriptions;
+    return subscriptions == null || subscriptions[event] || mBackgroundIsolate.routes(event);
+  }
+
+  /** Whether the event is delivered to the background isolate, and not to the UI isolate. */
+  boolean isRoutedToBackground(int event) {
+    return mBackgroundIsolate.routes(event);
+  }
+
+  /** Replaces the subscribed events, indexed by {@link AgoraEvents} ids. */
+  void setSubscriptions(boolean[] subscriptions) {
+    mSubscriptions = subscriptions;
+  }
+
+  /** Merges a queued event with a newer one of the same method and key. */
+  interface Coalescer {
+    /** Returns the arguments to queue in place of older; called with the queue locked. */
+    Object coalesce(Object older, Object newer);
+  }
+
+  /** Sets how coalesced events of a method are merged; by default the newer event replaces it. */
+  synchronized void setCoalescer(String method, Coalescer coalescer) {
+    mCoalescers.put(method, coalescer);
+  }
+
+  /**
+   * Enables/Disables the priority lanes. Null telemetry events keep {@link #TELEMETRY_EVENTS}.
+   */
+  void setPriorityLanes(boolean enabled, Collection<String> telemetryEvents) {
+    mTelemetryEvents = !enabled ? null
+        : new HashSet<>((telemetryEvents != null) ? telemetryEvents : Arrays.asList(TELEMETRY_EVENTS));
+  }
+
+  private static HashMap<String, Integer> defaultPolicies() {
+    HashMap<String, Integer> policies = new HashMap<>();
+    for (String event : TELEMETRY_EVENTS) {
+      policies.put(event, POLICY_COALESCE);
+    }
+    return policies;
+  }
+
+  /**
+   * Enables/Disables the bounded queue with room for capacity events besides lossless ones and the
+   * first coalesced event of each key. The
+   * given policies, by method name, override the default ones. Must be called on the main thread.
+   */
+  void setQueue(boolean enabled, int capacity, Map<String, Integer> policies) {
+    HashMap<String, Integer> merged = defaultPolicies();
+    if (policies != null) {
+      merged.putAll(policies);
+    }
+    synchronized (this) {
+      mQueueCapacity = Math.max(capacity, 1);
+      mPolicies = merged;
+      mQueueEnabled = enabled;
+    }
+    if (!enabled) {
+      flush();
+    }
+  }
+
+  /**
+   * Returns {"size", "maxSize", "events": {method: {"coalesced", "dropped"}}}, and resets the
+   * counters and the high-water mark if reset is set.
+   */
+  synchronized HashMap<String, Object> getQueueStats(boolean reset) {
+    HashMap<String, Object> events = new HashMap<>();
+    for (Map.Entry<String, long[]> entry : mQueueCounts.entrySet()) {
+      HashMap<String, Object> counts = new HashMap<>();
+      counts.put("coalesced", entry.getValue()[0]);
+      counts.put("dropped", entry.getValue()[1]);
+      events.put(entry.getKey(), counts);
+    }
+    HashMap<String, Object> map = new HashMap<>();
+    map.put("size", mPendingEvents.size() / 2);
+    map.put("maxSize", mMaxQueueSize);
+    map.put("events", events);
+    if (reset) {
+      mQueueCounts.clear();
+      mMaxQueueSize = mPendingEvents.size() / 2;
+    }
+    return map;
+  }
+
+  /**
+   * Enables/Disables batching. An interval of 0 flushes once per display frame, otherwise the
+   * queue is flushed every interval milliseconds. Must be called on the main thread.
+   */
+  void setBatching(boolean enabled, int interval) {
+    mFlushInterval = Math.max(interval, 0);
+    mBatching = enabled;
+    if (!enabled) {
+      // Deliver whatever is queued ahead of the events posted from now on.
+      flush();
+    }
+  }
+
+  void dispatch(String method, Object arguments) {
+    dispatch(method, arguments, 0);
+  }
+
+  /** Dispatches an event; key tells coalesced events of the same method apart, e.g. a uid. */
+  void dispatch(final String method, final Object arguments, int key) {
+    if (mMetrics.isEnabled()) {
+      mMetrics.recordEvent(method, arguments);
+    }
+    if (mBackgroundIsolate.routes(method)) {
+      mBackgroundIsolate.dispatch(method, arguments);
+      return;
+    }
+    HashSet<String> telemetryEvents = mTelemetryEvents;
+    if (telemetryEvents != null && !telemetryEvents.contains(method) && !BULK_EVENTS.contains(method)) {
+      dispatchControlEvent(method, arguments);
+      return;
+    }
+    boolean queueEnabled = mQueueEnabled;
+    if (!mBatching && !queueEnabled) {
+      final long postTime = mMetrics.onMainThreadMessagePosted();
+      mHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          mMetrics.onMainThreadMessageRun(postTime, true);
+          drainControlEvents();
+          mMetrics.beginSection("AgoraEvent#", method);
+          mMethodChannel.invokeMethod(method, arguments);
+          mMetrics.endSection();
+        }
+      });
+      return;
+    }
+
+    synchronized (this) {
+      if (!queueEnabled || enqueue(method, arguments, key)) {
+        mPendingEvents.add(method);
+        mPendingEvents.add(arguments);
+        mMaxQueueSize = Math.max(mMaxQueueSize, mPendingEvents.size() / 2);
+      }
+      if (mFlushScheduled) {
+        return;
+      }
+      mFlushScheduled = true;
+      mFlushPostTime = mMetrics.onMainThreadMessagePosted();
+    }
+
+    int interval = mFlushInterval;
+    if (!mBatching) {
+      mHandler.post(mFlushRunnable);
+    } else if (interval > 0) {
+      mHandler.postDelayed(mFlushRunnable, interval);
+    } else {
+      mHandler.post(mPostFrameCallbackRunnable);
+    }
+  }
+
+  private void dispatchControlEvent(String method, Object arguments) {
+    synchronized (this) {
+      mControlEvents.add(method);
+      mControlEvents.add(arguments);
+      if (mControlDrainScheduled) {
+        return;
+      }
+      mControlDrainScheduled = true;
+      mControlPostTime = mMetrics.onMainThreadMessagePosted();
+    }
+    mHandler.post(mControlDrainRunnable);
+  }
+
+  /** Delivers the queued control events, from the drain message or ahead of a telemetry delivery. */
+  private void drainControlEvents() {
+    ArrayList<Object> events;
+    long postTime;
+    synchronized (this) {
+      if (mControlEvents.isEmpty()) {
+        return;
+      }
+      postTime = mControlPostTime;
+      mControlPostTime = 0;
+      events = mControlEvents;
+      mControlEvents = mSendingControlEvents;
+      mSendingControlEvents = events;
+    }
+    mMetrics.onMainThreadMessageRun(postTime, true);
+    deliver(events);
+    events.clear();
+  }
+
+  /** Invokes a list of alternating method names and arguments one by one. */
+  private void deliver(ArrayList<Object> events) {
+    for (int i = 0; i < events.size(); i += 2) {
+      String method = (String) events.get(i);
+      mMetrics.beginSection("AgoraEvent#", method);
+      mMethodChannel.invokeMethod(method, events.get(i + 1));
+      mMetrics.endSection();
+    }
+  }
+
+  /**
+   * Applies the queue policy of an event. Returns whether it must be appended, false if it
+   * replaced a queued event or was dropped. Called with the lock held.
+   */
+  private boolean enqueue(String method, Object arguments, int key) {
+    Integer policy = mPolicies.get(method);
+    if (policy == null || policy == POLICY_LOSSLESS) {
+      return true;
+    }
+    Long pendingKey = null;
+    if (policy == POLICY_COALESCE) {
+      pendingKey = ((long) method.hashCode() << 32) | (key & 0xffffffffL);
+      Integer index = mPendingKeys.get(pendingKey);
+      if (index != null && method.equals(mPendingEvents.get(index - 1))) {
+        Coalescer coalescer = mCoalescers.get(method);
+        mPendingEvents.set(index, (coalescer != null) ? coalescer.coalesce(mPendingEvents.get(index), arguments) : arguments);
+        countQueueEvent(method, 0);
+        return false;
+      }
+    }
+    // A coalesced event may carry the only copy of its key's latest value, or a delta the next
+    // events build on, so it takes a slot of its own rather than being dropped.
+    if (pendingKey == null && mPendingEvents.size() / 2 >= mQueueCapacity) {
+      countQueueEvent(method, 1);
+      return false;
+    }
+    if (pendingKey != null) {
+      mPendingKeys.put(pendingKey, mPendingEvents.size() + 1);
+    }
+    return true;
+  }
+
+  private void countQueueEvent(String method, int counter) {
+    long[] counts = mQueueCounts.get(method);
+    if (counts == null) {
+      counts = new long[2];
+      mQueueCounts.put(method, counts);
+    }
+    counts[counter]++;
+  }
+
+  private void flush() {
+    drainControlEvents();
+    ArrayList<Object> events;
+    long postTime;
+    synchronized (this) {
+      mFlushScheduled = false;
+      postTime = mFlushPostTime;
+      mFlushPostTime = 0;
+      if (mPendingEvents.isEmpty()) {
+        return;
+      }
+      events = mPendingEvents;
+      mPendingEvents = mSendingEvents;
+      mSendingEvents = events;
+      mPendingKeys.clear();
+    }
+    // The delay of a batch is the delay of its oldest event.
+    mMetrics.onMainThreadMessageRun(postTime, true);
+    if (mBatching) {
+      mMetrics.beginSection("AgoraEvent#", METHOD_EVENT_BATCH);
+      mMethodChannel.invokeMethod(METHOD_EVENT_BATCH, events);
+      mMetrics.endSection();
+    } else {
+      deliver(events);
+    }
+    events.clear();
+  }
+}
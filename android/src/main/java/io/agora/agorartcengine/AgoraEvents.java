@@ -0,0 +1,140 @@
+package io.agora.agorartcengine;
+
+/**
+ * Engine event identifiers. The ids index {@link #NAMES}, which holds the method names the
+ * events are delivered to Dart with.
+ */
+final class AgoraEvents {
+  static final int ON_WARNING = 0;
+  static final int ON_ERROR = 1;
+  static final int ON_JOIN_CHANNEL_SUCCESS = 2;
+  static final int ON_REJOIN_CHANNEL_SUCCESS = 3;
+  static final int ON_LEAVE_CHANNEL = 4;
+  static final int ON_CLIENT_ROLE_CHANGED = 5;
+  static final int ON_USER_JOINED = 6;
+  static final int ON_USER_OFFLINE = 7;
+  static final int ON_CONNECTION_STATE_CHANGED = 8;
+  static final int ON_CONNECTION_LOST = 9;
+  static final int ON_NETWORK_TYPE_CHANGED = 10;
+  static final int ON_API_CALL_EXECUTED = 11;
+  static final int ON_TOKEN_PRIVILEGE_WILL_EXPIRE = 12;
+  static final int ON_REQUEST_TOKEN = 13;
+  static final int ON_MICROPHONE_ENABLED = 14;
+  static final int ON_AUDIO_VOLUME_INDICATION = 15;
+  static final int ON_ACTIVE_SPEAKER = 16;
+  static final int ON_FIRST_LOCAL_AUDIO_FRAME = 17;
+  static final int ON_FIRST_REMOTE_AUDIO_FRAME = 18;
+  static final int ON_FIRST_REMOTE_AUDIO_DECODED = 19;
+  static final int ON_FIRST_LOCAL_VIDEO_FRAME = 20;
+  static final int ON_FIRST_REMOTE_VIDEO_DECODED = 21;
+  static final int ON_FIRST_REMOTE_VIDEO_FRAME = 22;
+  static final int ON_USER_MUTE_AUDIO = 23;
+  static final int ON_USER_MUTE_VIDEO = 24;
+  static final int ON_USER_ENABLE_VIDEO = 25;
+  static final int ON_USER_ENABLE_LOCAL_VIDEO = 26;
+  static final int ON_VIDEO_SIZE_CHANGED = 27;
+  static final int ON_REMOTE_VIDEO_STATE_CHANGED = 28;
+  static final int ON_LOCAL_PUBLISH_FALLBACK_TO_AUDIO_ONLY = 29;
+  static final int ON_REMOTE_SUBSCRIBE_FALLBACK_TO_AUDIO_ONLY = 30;
+  static final int ON_AUDIO_ROUTE_CHANGED = 31;
+  static final int ON_CAMERA_FOCUS_AREA_CHANGED = 32;
+  static final int ON_CAMERA_EXPOSURE_AREA_CHANGED = 33;
+  static final int ON_RTC_STATS = 34;
+  static final int ON_LASTMILE_QUALITY = 35;
+  static final int ON_NETWORK_QUALITY = 36;
+  static final int ON_LOCAL_VIDEO_STATS = 37;
+  static final int ON_REMOTE_VIDEO_STATS = 38;
+  static final int ON_REMOTE_AUDIO_STATS = 39;
+  static final int ON_REMOTE_AUDIO_TRANSPORT_STATS = 40;
+  static final int ON_REMOTE_VIDEO_TRANSPORT_STATS = 41;
+  static final int ON_LOCAL_VIDEO_STATE_CHANGED = 42;
+  static final int ON_AUDIO_EFFECT_FINISHED = 43;
+  static final int ON_STREAM_PUBLISHED = 44;
+  static final int ON_STREAM_UNPUBLISHED = 45;
+  static final int ON_TRANSCODING_UPDATED = 46;
+  static final int ON_STREAM_INJECTED_STATUS = 47;
+  static final int ON_STREAM_MESSAGE = 48;
+  static final int ON_STREAM_MESSAGE_ERROR = 49;
+  static final int ON_MEDIA_ENGINE_LOAD_SUCCESS = 50;
+  static final int ON_MEDIA_ENGINE_START_CALL_SUCCESS = 51;
+  // Events raised by the plugin itself
+  static final int ON_STATS_SUMMARY = 52;
+  static final int ON_ENGINE_PREWARMED = 53;
+  static final int ON_ENGINE_CREATED = 54;
+  static final int ON_ENCODER_ADJUSTED = 55;
+  static final int ON_STREAM_MESSAGE_DROPPED = 56;
+
+  static final String[] NAMES = {
+      "onWarning",
+      "onError",
+      "onJoinChannelSuccess",
+      "onRejoinChannelSuccess",
+      "onLeaveChannel",
+      "onClientRoleChanged",
+      "onUserJoined",
+      "onUserOffline",
+      "onConnectionStateChanged",
+      "onConnectionLost",
+      "onNetworkTypeChanged",
+      "onApiCallExecuted",
+      "onTokenPrivilegeWillExpire",
+      "onRequestToken",
+      "onMicrophoneEnabled",
+      "onAudioVolumeIndication",
+      "onActiveSpeaker",
+      "onFirstLocalAudioFrame",
+      "onFirstRemoteAudioFrame",
+      "onFirstRemoteAudioDecoded",
+      "onFirstLocalVideoFrame",
+      "onFirstRemoteVideoDecoded",
+      "onFirstRemoteVideoFrame",
+      "onUserMuteAudio",
+      "onUserMuteVideo",
+      "onUserEnableVideo",
+      "onUserEnableLocalVideo",
+      "onVideoSizeChanged",
+      "onRemoteVideoStateChanged",
+      "onLocalPublishFallbackToAudioOnly",
+      "onRemoteSubscribeFallbackToAudioOnly",
+      "onAudioRouteChanged",
+      "onCameraFocusAreaChanged",
+      "onCameraExposureAreaChanged",
+      "onRtcStats",
+      "onLastmileQuality",
+      "onNetworkQuality",
+      "onLocalVideoStats",
+      "onRemoteVideoStats",
+      "onRemoteAudioStats",
+      "onRemoteAudioTransportStats",
+      "onRemoteVideoTransportStats",
+      "onLocalVideoStateChanged",
+      "onAudioEffectFinished",
+      "onStreamPublished",
+      "onStreamUnpublished",
+      "onTranscodingUpdated",
+      "onStreamInjectedStatus",
+      "onStreamMessage",
+      "onStreamMessageError",
+      "onMediaEngineLoadSuccess",
+      "onMediaEngineStartCallSuccess",
+      "onStatsSummary",
+      "onEnginePrewarmed",
+      "onEngineCreated",
+      "onEncoderAdjusted",
+      "onStreamMessageDropped",
+  };
+
+  static final int COUNT = NAMES.length;
+
+  private AgoraEvents() {}
+
+  /** Returns the id of the event delivered as {@code name}, or -1 if there is none. */
+  static int indexOf(String name) {
+    for (int i = 0; i < COUNT; i++) {
+      if (NAMES[i].equals(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
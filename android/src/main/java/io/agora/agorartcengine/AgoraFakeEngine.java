@@ -0,0 +1,755 @@
+package io.agora.agorartcengine;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.SparseIntArray;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import io.agora.rtc.Constants;
+import io.agora.rtc.IAudioFrameObserver;
+import io.agora.rtc.IRtcEngineEventHandler;
+import io.agora.rtc.IRtcEngineEventHandler.AudioVolumeInfo;
+import io.agora.rtc.IRtcEngineEventHandler.LocalVideoStats;
+import io.agora.rtc.IRtcEngineEventHandler.RemoteAudioStats;
+import io.agora.rtc.IRtcEngineEventHandler.RemoteVideoStats;
+import io.agora.rtc.IRtcEngineEventHandler.RtcStats;
+import io.agora.rtc.mediaio.IVideoSink;
+import io.agora.rtc.video.BeautyOptions;
+import io.agora.rtc.video.VideoCanvas;
+import io.agora.rtc.video.VideoEncoderConfiguration;
+
+/**
+ * An in-process engine that simulates a channel for load tests, without a network or the Agora
+ * service.
+ *
+ * After joinChannel, userCount remote users join one every joinInterval, and the event handler is
+ * driven at the configured rates: local volume indications and remote ones with speakerCount
+ * users, RtcStats with local and per-user video and audio stats, and network quality for every
+ * user. Without a volumeInterval, the interval passed to enableAudioVolumeIndication is used. With a
+ * churnInterval, a random user leaves and a new one joins every interval. Callbacks run on a
+ * dedicated thread, like the SDK's. Remote video muting and stream types are reflected in the
+ * remote video stats.
+ *
+ * Every command is recorded with its arguments, and every callback is counted with its emission
+ * time, so plugin throughput and end-to-end event latency can be computed offline. Times are
+ * wall-clock microseconds, comparable with DateTime.now().microsecondsSinceEpoch in Dart.
+ */
+class AgoraFakeEngine implements AgoraEngine {
+  private static final int MAX_COMMANDS = 4096;
+  private static final int MAX_EVENT_TIMES = 1024;
+  private static final int FIRST_REMOTE_UID = 10000;
+
+  private final IRtcEngineEventHandler mHandler;
+  private final Config mConfig;
+  private final HandlerThread mThread;
+  private final Handler mCallbackHandler;
+  private final long mWallClockBase = System.currentTimeMillis() * 1000;
+  private final long mNanoBase = System.nanoTime();
+
+  // Recording, guarded by mRecordLock.
+  private final Object mRecordLock = new Object();
+  private final ArrayDeque<HashMap<String, Object>> mCommands = new ArrayDeque<>();
+  private long mCommandCount;
+  private final HashMap<String, EventLog> mEvents = new HashMap<>();
+
+  // Simulation state, only accessed on the callback thread.
+  private final Random mRandom;
+  private final ArrayList<Integer> mUids = new ArrayList<>();
+  private final SparseIntArray mVideoMuted = new SparseIntArray();
+  private final SparseIntArray mStreamTypes = new SparseIntArray();
+  private boolean mAllVideoMuted;
+  private boolean mJoined;
+  private String mChannelName;
+  private int mLocalUid;
+  private int mNextUid = FIRST_REMOTE_UID;
+  private long mJoinTime;
+  private long mVolumeInterval;
+  private volatile int mConnectionState = Constants.CONNECTION_STATE_DISCONNECTED;
+  private volatile boolean mSpeakerphoneEnabled;
+  private int mNextStreamId = 1;
+
+  /** The simulated load; intervals are in milliseconds and 0 disables the corresponding events. */
+  static final class Config {
+    final int userCount;
+    final long joinInterval;
+    final long churnInterval;
+    final int speakerCount;
+    final long volumeInterval;
+    final long statsInterval;
+    final long networkQualityInterval;
+    final long seed;
+
+    Config(int userCount, long joinInterval, long churnInterval, int speakerCount, long volumeInterval,
+           long statsInterval, long networkQualityInterval, long seed) {
+      this.userCount = userCount;
+      this.joinInterval = joinInterval;
+      this.churnInterval = churnInterval;
+      this.speakerCount = speakerCount;
+      this.volumeInterval = volumeInterval;
+      this.statsInterval = statsInterval;
+      this.networkQualityInterval = networkQualityInterval;
+      this.seed = seed;
+    }
+
+    static Config fromMap(Map<String, Object> map) {
+      return new Config(
+          ((Number) map.get("userCount")).intValue(),
+          ((Number) map.get("joinInterval")).longValue(),
+          ((Number) map.get("churnInterval")).longValue(),
+          ((Number) map.get("speakerCount")).intValue(),
+          ((Number) map.get("volumeInterval")).longValue(),
+          ((Number) map.get("statsInterval")).longValue(),
+          ((Number) map.get("networkQualityInterval")).longValue(),
+          ((Number) map.get("seed")).longValue());
+    }
+  }
+
+  /** The count of one callback and the emission times of its most recent calls. */
+  private static final class EventLog {
+    final long[] mTimes = new long[MAX_EVENT_TIMES];
+    long mCount;
+
+    void add(long time) {
+      mTimes[(int) (mCount % MAX_EVENT_TIMES)] = time;
+      mCount++;
+    }
+
+    HashMap<String, Object> toMap() {
+      int size = (int) Math.min(mCount, MAX_EVENT_TIMES);
+      long[] times = new long[size];
+      for (int i = 0; i < size; i++) {
+        times[i] = mTimes[(int) ((mCount - size + i) % MAX_EVENT_TIMES)];
+      }
+      HashMap<String, Object> map = new HashMap<>();
+      map.put("count", mCount);
+      map.put("times", times);
+      return map;
+    }
+  }
+
+  private final Runnable mUserJoinRunnable = new Runnable() {
+    @Override
+    public void run() {
+      if (mUids.size() < mConfig.userCount) {
+        addUser();
+        mCallbackHandler.postDelayed(this, mConfig.joinInterval);
+      }
+    }
+  };
+
+  private final Runnable mChurnRunnable = new Runnable() {
+    @Override
+    public void run() {
+      if (!mUids.isEmpty()) {
+        removeUser(mUids.get(mRandom.nextInt(mUids.size())));
+        addUser();
+      }
+      mCallbackHandler.postDelayed(this, mConfig.churnInterval);
+    }
+  };
+
+  private final Runnable mVolumeRunnable = new Runnable() {
+    @Override
+    public void run() {
+      emitVolumeIndications();
+      mCallbackHandler.postDelayed(this, mVolumeInterval);
+    }
+  };
+
+  private final Runnable mStatsRunnable = new Runnable() {
+    @Override
+    public void run() {
+      emitStats();
+      mCallbackHandler.postDelayed(this, mConfig.statsInterval);
+    }
+  };
+
+  private final Runnable mNetworkQualityRunnable = new Runnable() {
+    @Override
+    public void run() {
+      emitNetworkQuality();
+      mCallbackHandler.postDelayed(this, mConfig.networkQualityInterval);
+    }
+  };
+
+  AgoraFakeEngine(IRtcEngineEventHandler handler, Config config) {
+    this.mHandler = handler;
+    this.mConfig = config;
+    this.mRandom = new Random(config.seed);
+    this.mVolumeInterval = config.volumeInterval;
+    this.mThread = new HandlerThread("AgoraFakeEngine");
+    this.mThread.start();
+    this.mCallbackHandler = new Handler(mThread.getLooper());
+  }
+
+  /** Wall-clock microseconds with the resolution of System.nanoTime(). */
+  private long now() {
+    return mWallClockBase + (System.nanoTime() - mNanoBase) / 1000;
+  }
+
+  private int record(String method, Object... arguments) {
+    ArrayList<Object> list = new ArrayList<>(arguments.length);
+    for (Object argument : arguments) {
+      boolean encodable = argument == null || argument instanceof Number || argument instanceof Boolean
+          || argument instanceof String;
+      list.add(encodable ? argument : argument.getClass().getSimpleName());
+    }
+    HashMap<String, Object> command = new HashMap<>();
+    command.put("method", method);
+    command.put("arguments", list);
+    command.put("time", now());
+    synchronized (mRecordLock) {
+      if (mCommands.size() == MAX_COMMANDS) {
+        mCommands.removeFirst();
+      }
+      mCommands.addLast(command);
+      mCommandCount++;
+    }
+    return 0;
+  }
+
+  /** Records the emission of a callback; called right before the handler is invoked. */
+  private void emit(String event) {
+    long time = now();
+    synchronized (mRecordLock) {
+      EventLog log = mEvents.get(event);
+      if (log == null) {
+        log = new EventLog();
+        mEvents.put(event, log);
+      }
+      log.add(time);
+    }
+  }
+
+  /**
+   * Returns {"time", "commandCount", "commands": [{"method", "arguments", "time"}], "events":
+   * {name: {"count", "times"}}}. Only the most recent commands and emission times are kept; the
+   * times of an event are those of its last calls, oldest first.
+   */
+  HashMap<String, Object> report(boolean reset) {
+    HashMap<String, Object> events = new HashMap<>();
+    HashMap<String, Object> map = new HashMap<>();
+    synchronized (mRecordLock) {
+      for (Map.Entry<String, EventLog> entry : mEvents.entrySet()) {
+        events.put(entry.getKey(), entry.getValue().toMap());
+      }
+      map.put("commandCount", mCommandCount);
+      map.put("commands", new ArrayList<>(mCommands));
+      if (reset) {
+        mCommands.clear();
+        mCommandCount = 0;
+        mEvents.clear();
+      }
+    }
+    map.put("events", events);
+    map.put("time", now());
+    return map;
+  }
+
+  @Override
+  public void destroy() {
+    mCallbackHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        stopSimulation();
+        mThread.quit();
+      }
+    });
+  }
+
+  // Simulation, on the callback thread
+
+  private void startSimulation() {
+    mUserJoinRunnable.run();
+    if (mConfig.churnInterval > 0) {
+      mCallbackHandler.postDelayed(mChurnRunnable, mConfig.userCount * mConfig.joinInterval + mConfig.churnInterval);
+    }
+    rescheduleVolumeIndications();
+    if (mConfig.statsInterval > 0) {
+      mCallbackHandler.postDelayed(mStatsRunnable, mConfig.statsInterval);
+    }
+    if (mConfig.networkQualityInterval > 0) {
+      mCallbackHandler.postDelayed(mNetworkQualityRunnable, mConfig.networkQualityInterval);
+    }
+  }
+
+  private void stopSimulation() {
+    mCallbackHandler.removeCallbacks(mUserJoinRunnable);
+    mCallbackHandler.removeCallbacks(mChurnRunnable);
+    mCallbackHandler.removeCallbacks(mVolumeRunnable);
+    mCallbackHandler.removeCallbacks(mStatsRunnable);
+    mCallbackHandler.removeCallbacks(mNetworkQualityRunnable);
+    mUids.clear();
+    mVideoMuted.clear();
+    mStreamTypes.clear();
+  }
+
+  private void rescheduleVolumeIndications() {
+    mCallbackHandler.removeCallbacks(mVolumeRunnable);
+    if (mJoined && mVolumeInterval > 0) {
+      mCallbackHandler.postDelayed(mVolumeRunnable, mVolumeInterval);
+    }
+  }
+
+  private int elapsed() {
+    return (int) ((now() - mJoinTime) / 1000);
+  }
+
+  private void addUser() {
+    int uid = mNextUid++;
+    mUids.add(uid);
+    emit("onUserJoined");
+    mHandler.onUserJoined(uid, elapsed());
+  }
+
+  private void removeUser(int uid) {
+    mUids.remove(Integer.valueOf(uid));
+    mVideoMuted.delete(uid);
+    mStreamTypes.delete(uid);
+    emit("onUserOffline");
+    mHandler.onUserOffline(uid, Constants.USER_OFFLINE_QUIT);
+  }
+
+  private void emitVolumeIndications() {
+    AudioVolumeInfo local = new AudioVolumeInfo();
+    local.uid = 0;
+    local.volume = mRandom.nextInt(256);
+    emit("onAudioVolumeIndication");
+    mHandler.onAudioVolumeIndication(new AudioVolumeInfo[] {local}, local.volume);
+
+    int count = Math.min(mConfig.speakerCount, mUids.size());
+    AudioVolumeInfo[] speakers = new AudioVolumeInfo[count];
+    int totalVolume = 0;
+    int offset = mUids.isEmpty() ? 0 : mRandom.nextInt(mUids.size());
+    for (int i = 0; i < count; i++) {
+      speakers[i] = new AudioVolumeInfo();
+      speakers[i].uid = mUids.get((offset + i) % mUids.size());
+      speakers[i].volume = mRandom.nextInt(256);
+      totalVolume = Math.max(totalVolume, speakers[i].volume);
+    }
+    emit("onAudioVolumeIndication");
+    mHandler.onAudioVolumeIndication(speakers, totalVolume);
+  }
+
+  private RtcStats rtcStats() {
+    RtcStats stats = new RtcStats();
+    stats.totalDuration = elapsed() / 1000;
+    stats.users = mUids.size() + 1;
+    stats.txAudioKBitRate = 20 + mRandom.nextInt(30);
+    stats.rxAudioKBitRate = stats.txAudioKBitRate * mUids.size();
+    stats.txVideoKBitRate = 400 + mRandom.nextInt(400);
+    stats.rxVideoKBitRate = 0;
+    stats.txPacketLossRate = mRandom.nextInt(5);
+    stats.rxPacketLossRate = mRandom.nextInt(5);
+    stats.lastmileDelay = 20 + mRandom.nextInt(80);
+    stats.cpuAppUsage = 5 + mRandom.nextDouble() * 20;
+    stats.cpuTotalUsage = stats.cpuAppUsage + mRandom.nextDouble() * 40;
+    return stats;
+  }
+
+  private void emitStats() {
+    RtcStats stats = rtcStats();
+
+    LocalVideoStats localVideoStats = new LocalVideoStats();
+    localVideoStats.sentBitrate = stats.txVideoKBitRate;
+    localVideoStats.sentFrameRate = 15;
+    localVideoStats.encoderOutputFrameRate = 15;
+    localVideoStats.rendererOutputFrameRate = 15;
+    emit("onLocalVideoStats");
+    mHandler.onLocalVideoStats(localVideoStats);
+
+    for (int uid : mUids) {
+      boolean muted = mAllVideoMuted || mVideoMuted.get(uid) != 0;
+      boolean low = mStreamTypes.get(uid, Constants.VIDEO_STREAM_HIGH) == Constants.VIDEO_STREAM_LOW;
+      RemoteVideoStats videoStats = new RemoteVideoStats();
+      videoStats.uid = uid;
+      videoStats.delay = 50 + mRandom.nextInt(100);
+      videoStats.width = low ? 160 : 640;
+      videoStats.height = low ? 90 : 360;
+      videoStats.receivedBitrate = muted ? 0 : (low ? 65 : 400) + mRandom.nextInt(100);
+      videoStats.decoderOutputFrameRate = muted ? 0 : 15;
+      videoStats.rendererOutputFrameRate = muted ? 0 : 15;
+      videoStats.rxStreamType = low ? Constants.VIDEO_STREAM_LOW : Constants.VIDEO_STREAM_HIGH;
+      stats.rxVideoKBitRate += videoStats.receivedBitrate;
+      emit("onRemoteVideoStats");
+      mHandler.onRemoteVideoStats(videoStats);
+
+      RemoteAudioStats audioStats = new RemoteAudioStats();
+      audioStats.uid = uid;
+      audioStats.quality = 1 + mRandom.nextInt(3);
+      audioStats.networkTransportDelay = 20 + mRandom.nextInt(80);
+      audioStats.jitterBufferDelay = 20 + mRandom.nextInt(60);
+      audioStats.audioLossRate = mRandom.nextInt(5);
+      emit("onRemoteAudioStats");
+      mHandler.onRemoteAudioStats(audioStats);
+    }
+
+    emit("onRtcStats");
+    mHandler.onRtcStats(stats);
+  }
+
+  private void emitNetworkQuality() {
+    emit("onNetworkQuality");
+    mHandler.onNetworkQuality(0, 1 + mRandom.nextInt(3), 1 + mRandom.nextInt(3));
+    for (int uid : mUids) {
+      emit("onNetworkQuality");
+      mHandler.onNetworkQuality(uid, 1 + mRandom.nextInt(3), 1 + mRandom.nextInt(3));
+    }
+  }
+
+  // Core Methods
+
+  @Override
+  public int setChannelProfile(int profile) {
+    return record("setChannelProfile", profile);
+  }
+
+  @Override
+  public int setClientRole(int role) {
+    return record("setClientRole", role);
+  }
+
+  @Override
+  public int joinChannel(String token, final String channelName, String optionalInfo, final int optionalUid) {
+    mConnectionState = Constants.CONNECTION_STATE_CONNECTING;
+    mCallbackHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        if (mJoined) {
+          return;
+        }
+        mJoined = true;
+        mJoinTime = now();
+        mChannelName = channelName;
+        mLocalUid = (optionalUid != 0) ? optionalUid : 1 + mRandom.nextInt(FIRST_REMOTE_UID - 1);
+        mConnectionState = Constants.CONNECTION_STATE_CONNECTED;
+        emit("onConnectionStateChanged");
+        mHandler.onConnectionStateChanged(Constants.CONNECTION_STATE_CONNECTED, Constants.CONNECTION_CHANGED_JOIN_SUCCESS);
+        emit("onJoinChannelSuccess");
+        mHandler.onJoinChannelSuccess(mChannelName, mLocalUid, elapsed());
+        startSimulation();
+      }
+    });
+    return record("joinChannel", token, channelName, optionalInfo, optionalUid);
+  }
+
+  @Override
+  public int leaveChannel() {
+    mCallbackHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        if (!mJoined) {
+          return;
+        }
+        RtcStats stats = rtcStats();
+        stopSimulation();
+        mJoined = false;
+        mConnectionState = Constants.CONNECTION_STATE_DISCONNECTED;
+        emit("onConnectionStateChanged");
+        mHandler.onConnectionStateChanged(Constants.CONNECTION_STATE_DISCONNECTED, Constants.CONNECTION_CHANGED_LEAVE_CHANNEL);
+        emit("onLeaveChannel");
+        mHandler.onLeaveChannel(stats);
+      }
+    });
+    return record("leaveChannel");
+  }
+
+  @Override
+  public int renewToken(String token) {
+    return record("renewToken", token);
+  }
+
+  @Override
+  public int enableWebSdkInteroperability(boolean enabled) {
+    return record("enableWebSdkInteroperability", enabled);
+  }
+
+  @Override
+  public int getConnectionState() {
+    record("getConnectionState");
+    return mConnectionState;
+  }
+
+  // Core Audio
+
+  @Override
+  public int enableAudio() {
+    return record("enableAudio");
+  }
+
+  @Override
+  public int disableAudio() {
+    return record("disableAudio");
+  }
+
+  @Override
+  public int setAudioProfile(int profile, int scenario) {
+    return record("setAudioProfile", profile, scenario);
+  }
+
+  @Override
+  public int adjustRecordingSignalVolume(int volume) {
+    return record("adjustRecordingSignalVolume", volume);
+  }
+
+  @Override
+  public int adjustPlaybackSignalVolume(int volume) {
+    return record("adjustPlaybackSignalVolume", volume);
+  }
+
+  @Override
+  public int enableAudioVolumeIndication(final int interval, int smooth) {
+    // A configured volumeInterval overrides the interval requested by the app.
+    if (mConfig.volumeInterval == 0) {
+      mCallbackHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          mVolumeInterval = Math.max(interval, 0);
+          rescheduleVolumeIndications();
+        }
+      });
+    }
+    return record("enableAudioVolumeIndication", interval, smooth);
+  }
+
+  @Override
+  public int enableLocalAudio(boolean enabled) {
+    return record("enableLocalAudio", enabled);
+  }
+
+  @Override
+  public int muteLocalAudioStream(boolean muted) {
+    return record("muteLocalAudioStream", muted);
+  }
+
+  @Override
+  public int muteRemoteAudioStream(int uid, boolean muted) {
+    return record("muteRemoteAudioStream", uid, muted);
+  }
+
+  @Override
+  public int muteAllRemoteAudioStreams(boolean muted) {
+    return record("muteAllRemoteAudioStreams", muted);
+  }
+
+  @Override
+  public int setDefaultMuteAllRemoteAudioStreams(boolean muted) {
+    return record("setDefaultMuteAllRemoteAudioStreams", muted);
+  }
+
+  // Video Pre-process and Post-process
+
+  @Override
+  public int setBeautyEffectOptions(boolean enabled, BeautyOptions options) {
+    return record("setBeautyEffectOptions", enabled, options);
+  }
+
+  // Core Video
+
+  @Override
+  public int enableVideo() {
+    return record("enableVideo");
+  }
+
+  @Override
+  public int disableVideo() {
+    return record("disableVideo");
+  }
+
+  @Override
+  public int setVideoEncoderConfiguration(VideoEncoderConfiguration config) {
+    return record("setVideoEncoderConfiguration", config);
+  }
+
+  @Override
+  public int setupLocalVideo(VideoCanvas local) {
+    return record("setupLocalVideo", local);
+  }
+
+  @Override
+  public int setupRemoteVideo(VideoCanvas remote) {
+    return record("setupRemoteVideo", remote);
+  }
+
+  @Override
+  public int setLocalVideoRenderer(IVideoSink render) {
+    return record("setLocalVideoRenderer", render);
+  }
+
+  @Override
+  public int setRemoteVideoRenderer(int uid, IVideoSink render) {
+    return record("setRemoteVideoRenderer", uid, render);
+  }
+
+  @Override
+  public int setLocalRenderMode(int mode) {
+    return record("setLocalRenderMode", mode);
+  }
+
+  @Override
+  public int setRemoteRenderMode(int uid, int mode) {
+    return record("setRemoteRenderMode", uid, mode);
+  }
+
+  @Override
+  public int startPreview() {
+    return record("startPreview");
+  }
+
+  @Override
+  public int stopPreview() {
+    return record("stopPreview");
+  }
+
+  @Override
+  public int enableLocalVideo(boolean enabled) {
+    return record("enableLocalVideo", enabled);
+  }
+
+  @Override
+  public int muteLocalVideoStream(boolean muted) {
+    return record("muteLocalVideoStream", muted);
+  }
+
+  @Override
+  public int muteRemoteVideoStream(final int uid, final boolean muted) {
+    mCallbackHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        mVideoMuted.put(uid, muted ? 1 : 0);
+      }
+    });
+    return record("muteRemoteVideoStream", uid, muted);
+  }
+
+  @Override
+  public int muteAllRemoteVideoStreams(final boolean muted) {
+    mCallbackHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        mAllVideoMuted = muted;
+      }
+    });
+    return record("muteAllRemoteVideoStreams", muted);
+  }
+
+  @Override
+  public int setDefaultMuteAllRemoteVideoStreams(boolean muted) {
+    return record("setDefaultMuteAllRemoteVideoStreams", muted);
+  }
+
+  // Audio Routing Control
+
+  @Override
+  public int setDefaultAudioRoutetoSpeakerphone(boolean defaultToSpeaker) {
+    return record("setDefaultAudioRoutetoSpeakerphone", defaultToSpeaker);
+  }
+
+  @Override
+  public int setEnableSpeakerphone(boolean enabled) {
+    mSpeakerphoneEnabled = enabled;
+    return record("setEnableSpeakerphone", enabled);
+  }
+
+  @Override
+  public boolean isSpeakerphoneEnabled() {
+    record("isSpeakerphoneEnabled");
+    return mSpeakerphoneEnabled;
+  }
+
+  // Stream Fallback
+
+  @Override
+  public int setRemoteUserPriority(int uid, int userPriority) {
+    return record("setRemoteUserPriority", uid, userPriority);
+  }
+
+  @Override
+  public int setLocalPublishFallbackOption(int option) {
+    return record("setLocalPublishFallbackOption", option);
+  }
+
+  @Override
+  public int setRemoteSubscribeFallbackOption(int option) {
+    return record("setRemoteSubscribeFallbackOption", option);
+  }
+
+  // Dual-stream Mode
+
+  @Override
+  public int enableDualStreamMode(boolean enabled) {
+    return record("enableDualStreamMode", enabled);
+  }
+
+  @Override
+  public int setRemoteVideoStreamType(final int uid, final int streamType) {
+    mCallbackHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        mStreamTypes.put(uid, streamType);
+      }
+    });
+    return record("setRemoteVideoStreamType", uid, streamType);
+  }
+
+  @Override
+  public int setRemoteDefaultVideoStreamType(int streamType) {
+    return record("setRemoteDefaultVideoStreamType", streamType);
+  }
+
+  // Encryption
+
+  @Override
+  public int setEncryptionSecret(String secret) {
+    return record("setEncryptionSecret", secret);
+  }
+
+  @Override
+  public int setEncryptionMode(String encryptionMode) {
+    return record("setEncryptionMode", encryptionMode);
+  }
+
+  // Camera Control
+
+  @Override
+  public int switchCamera() {
+    return record("switchCamera");
+  }
+
+  // Data Stream
+
+  @Override
+  public int createDataStream(boolean reliable, boolean ordered) {
+    record("createDataStream", reliable, ordered);
+    synchronized (mRecordLock) {
+      return mNextStreamId++;
+    }
+  }
+
+  @Override
+  public int sendStreamMessage(int streamId, byte[] message) {
+    return record("sendStreamMessage", streamId, message.length);
+  }
+
+  // Raw Audio Data
+
+  @Override
+  public int registerAudioFrameObserver(IAudioFrameObserver observer) {
+    return record("registerAudioFrameObserver", observer);
+  }
+
+  @Override
+  public int setRecordingAudioFrameParameters(int sampleRate, int channel, int mode, int samplesPerCall) {
+    return record("setRecordingAudioFrameParameters", sampleRate, channel, mode, samplesPerCall);
+  }
+
+  @Override
+  public int setPlaybackAudioFrameParameters(int sampleRate, int channel, int mode, int samplesPerCall) {
+    return record("setPlaybackAudioFrameParameters", sampleRate, channel, mode, samplesPerCall);
+  }
+}
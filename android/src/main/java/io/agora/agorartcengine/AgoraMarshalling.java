@@ -0,0 +1,125 @@
+package io.agora.agorartcengine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import io.agora.rtc.IRtcEngineEventHandler.AudioVolumeInfo;
+import io.agora.rtc.IRtcEngineEventHandler.LocalVideoStats;
+import io.agora.rtc.IRtcEngineEventHandler.RemoteAudioStats;
+import io.agora.rtc.IRtcEngineEventHandler.RemoteVideoStats;
+import io.agora.rtc.IRtcEngineEventHandler.RtcStats;
+import io.agora.rtc.video.BeautyOptions;
+import io.agora.rtc.video.VideoEncoderConfiguration;
+
+/**
+ * Converts between SDK objects and the maps exchanged with Dart.
+ *
+ * Kept free of Android and Flutter dependencies so that the benchmarks in android/benchmark can
+ * run it on a plain JVM.
+ */
+final class AgoraMarshalling {
+  private AgoraMarshalling() {}
+
+  static HashMap<String, Object> mapFromStats(RtcStats stats) {
+    HashMap<String, Object> map = new HashMap<>();
+    map.put("duration", stats.totalDuration);
+    map.put("txBytes", stats.txBytes);
+    map.put("rxBytes", stats.rxBytes);
+    map.put("txAudioKBitrate", stats.txAudioKBitRate);
+    map.put("rxAudioKBitrate", stats.rxAudioKBitRate);
+    map.put("txVideoKBitrate", stats.txVideoKBitRate);
+    map.put("rxVideoKBitrate", stats.rxVideoKBitRate);
+    map.put("txPacketLossRate", stats.txPacketLossRate);
+    map.put("rxPacketLossRate", stats.rxPacketLossRate);
+    map.put("lastmileDelay", stats.lastmileDelay);
+    map.put("userCount", stats.users);
+    map.put("cpuAppUsage", stats.cpuAppUsage);
+    map.put("cpuTotalUsage", stats.cpuTotalUsage);
+    return map;
+  }
+
+  static HashMap<String, Object> mapFromLocalVideoStats(LocalVideoStats stats) {
+    HashMap<String, Object> map = new HashMap<>();
+    map.put("sentBitrate", stats.sentBitrate);
+    map.put("sentFrameRate", stats.sentFrameRate);
+    map.put("encoderOutputFrameRate", stats.encoderOutputFrameRate);
+    map.put("rendererOutputFrameRate", stats.rendererOutputFrameRate);
+    return map;
+  }
+
+  static HashMap<String, Object> mapFromRemoteVideoStats(RemoteVideoStats stats) {
+    HashMap<String, Object> map = new HashMap<>();
+    map.put("uid", stats.uid);
+    map.put("width", stats.width);
+    map.put("height", stats.height);
+    map.put("receivedBitrate", stats.receivedBitrate);
+    map.put("decoderOutputFrameRate", stats.decoderOutputFrameRate);
+    map.put("rendererOutputFrameRate", stats.rendererOutputFrameRate);
+    map.put("rxStreamType", stats.rxStreamType);
+    return map;
+  }
+
+  static HashMap<String, Object> mapFromRemoteAudioStats(RemoteAudioStats stats) {
+    HashMap<String, Object> map = new HashMap<>();
+    map.put("uid", stats.uid);
+    map.put("quality", stats.quality);
+    map.put("networkTransportDelay", stats.networkTransportDelay);
+    map.put("jitterBufferDelay", stats.jitterBufferDelay);
+    map.put("audioLossRate", stats.audioLossRate);
+    return map;
+  }
+
+  static ArrayList<HashMap<String, Object>> arrayFromSpeakers(AudioVolumeInfo[] speakers) {
+    ArrayList<HashMap<String, Object>> list = new ArrayList<>();
+
+    for (AudioVolumeInfo info : speakers) {
+      HashMap<String, Object> map = new HashMap<>();
+      map.put("uid", info.uid);
+      map.put("volume", info.volume);
+
+      list.add(map);
+    }
+
+    return list;
+  }
+
+  static BeautyOptions beautyOptionsFromMap(HashMap<String, Object> map) {
+    BeautyOptions options = new BeautyOptions();
+    options.lighteningContrastLevel = ((Double)(map.get("lighteningContrastLevel"))).intValue();
+    options.lighteningLevel = ((Double)(map.get("lighteningLevel"))).floatValue();
+    options.smoothnessLevel = ((Double)(map.get("smoothnessLevel"))).floatValue();
+    options.rednessLevel = ((Double)(map.get("rednessLevel"))).floatValue();
+    return options;
+  }
+
+  static VideoEncoderConfiguration videoEncoderConfigurationFromMap(HashMap<String, Object> map) {
+    int width = (int)(map.get("width"));
+    int height = (int)(map.get("height"));
+    int frameRate = (int)(map.get("frameRate"));
+    int bitrate = (int)(map.get("bitrate"));
+    int minBitrate = (int)(map.get("minBitrate"));
+    int orientationMode = (int)(map.get("orientationMode"));
+
+    VideoEncoderConfiguration configuration = new VideoEncoderConfiguration();
+    configuration.dimensions = new VideoEncoderConfiguration.VideoDimensions(width, height);
+    configuration.frameRate = frameRate;
+    configuration.bitrate = bitrate;
+    configuration.minBitrate = minBitrate;
+    configuration.orientationMode = orientationFromValue(orientationMode);
+
+    return configuration;
+  }
+
+  static VideoEncoderConfiguration.ORIENTATION_MODE orientationFromValue(int value) {
+    switch (value) {
+      case 0:
+        return VideoEncoderConfiguration.ORIENTATION_MODE.ORIENTATION_MODE_ADAPTIVE;
+      case 1:
+        return VideoEncoderConfiguration.ORIENTATION_MODE.ORIENTATION_MODE_FIXED_LANDSCAPE;
+      case 2:
+        return VideoEncoderConfiguration.ORIENTATION_MODE.ORIENTATION_MODE_FIXED_PORTRAIT;
+      default:
+        return VideoEncoderConfiguration.ORIENTATION_MODE.ORIENTATION_MODE_ADAPTIVE;
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package io.agora.agorartcengine;
+
+import android.os.Build;
+import android.os.Trace;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.flutter.plugin.common.StandardMessageCodec;
+
+/**
+ * Measures the plugin bridge: method call latency per method, event counts and encoded bytes per
+ * event, the delay between an SDK callback and its delivery on the main thread, and the number of
+ * plugin messages waiting on the main looper.
+ *
+ * Everything is off by default. Callers check {@link #isEnabled()} before taking a timestamp, so
+ * a disabled instance costs one volatile read per call or event. Event bytes are measured by
+ * encoding the arguments with the standard codec, which doubles the encoding cost while enabled.
+ * Optional {@link Trace} sections mark method calls and event deliveries for systrace.
+ */
+class AgoraPluginMetrics {
+  // Bucket i counts durations below 2^i microseconds, the last bucket everything longer.
+  private static final int BUCKET_COUNT = 24;
+
+  private volatile boolean mEnabled;
+  private volatile boolean mTraceEnabled;
+  private final HashMap<String, Histogram> mMethodLatencies = new HashMap<>();
+  private final HashMap<String, long[]> mEvents = new HashMap<>();
+  private final Histogram mDispatchDelay = new Histogram();
+  private final AtomicInteger mMainThreadBacklog = new AtomicInteger();
+  private int mMaxMainThreadBacklog;
+
+  private static final class Histogram {
+    final long[] mBuckets = new long[BUCKET_COUNT];
+    long mCount;
+    long mTotalNanos;
+    long mMaxNanos;
+
+    void add(long nanos) {
+      long micros = Math.max(nanos / 1000, 0);
+      int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKET_COUNT - 1);
+      mBuckets[bucket]++;
+      mCount++;
+      mTotalNanos += nanos;
+      mMaxNanos = Math.max(mMaxNanos, nanos);
+    }
+
+    void clear() {
+      Arrays.fill(mBuckets, 0);
+      mCount = 0;
+      mTotalNanos = 0;
+      mMaxNanos = 0;
+    }
+
+    HashMap<String, Object> toMap() {
+      HashMap<String, Object> map = new HashMap<>();
+      map.put("count", mCount);
+      map.put("totalMicros", mTotalNanos / 1000);
+      map.put("maxMicros", mMaxNanos / 1000);
+      map.put("buckets", mBuckets.clone());
+      return map;
+    }
+  }
+
+  boolean isEnabled() {
+    return mEnabled;
+  }
+
+  void setEnabled(boolean enabled, boolean traceEnabled) {
+    mEnabled = enabled;
+    mTraceEnabled = enabled && traceEnabled;
+  }
+
+  /** Returns the start timestamp of a method call, or 0 when disabled. */
+  long startMethod() {
+    return mEnabled ? System.nanoTime() : 0;
+  }
+
+  /** Records the latency from {@link #startMethod()} until the call was handled. */
+  void endMethod(String method, long start) {
+    if (start == 0) {
+      return;
+    }
+    long latency = System.nanoTime() - start;
+    synchronized (this) {
+      Histogram histogram = mMethodLatencies.get(method);
+      if (histogram == null) {
+        histogram = new Histogram();
+        mMethodLatencies.put(method, histogram);
+      }
+      histogram.add(latency);
+    }
+  }
+
+  /** Counts an event and its encoded size in bytes. */
+  void recordEvent(String method, Object arguments) {
+    ByteBuffer encoded = StandardMessageCodec.INSTANCE.encodeMessage(arguments);
+    recordEventBytes(method, (encoded != null) ? encoded.position() : 0);
+  }
+
+  synchronized void recordEventBytes(String method, int bytes) {
+    long[] counts = mEvents.get(method);
+    if (counts == null) {
+      counts = new long[2];
+      mEvents.put(method, counts);
+    }
+    counts[0]++;
+    counts[1] += bytes;
+  }
+
+  /**
+   * Called when a message is posted to the main thread; returns the post timestamp to pass to
+   * {@link #onMainThreadMessageRun}, or 0 when disabled.
+   */
+  long onMainThreadMessagePosted() {
+    if (!mEnabled) {
+      return 0;
+    }
+    int backlog = mMainThreadBacklog.incrementAndGet();
+    synchronized (this) {
+      mMaxMainThreadBacklog = Math.max(mMaxMainThreadBacklog, backlog);
+    }
+    return System.nanoTime();
+  }
+
+  /** Called on the main thread when a message posted at postTime runs. */
+  void onMainThreadMessageRun(long postTime, boolean event) {
+    if (postTime == 0) {
+      return;
+    }
+    mMainThreadBacklog.decrementAndGet();
+    if (event) {
+      long delay = System.nanoTime() - postTime;
+      synchronized (this) {
+        mDispatchDelay.add(delay);
+      }
+    }
+  }
+
+  void beginSection(String prefix, String name) {
+    // Trace is only available from API 18.
+    if (mTraceEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+      // Section names are limited to 127 characters.
+      String section = prefix + name;
+      Trace.beginSection(section.length() > 127 ? section.substring(0, 127) : section);
+    }
+  }
+
+  void endSection() {
+    if (mTraceEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+      Trace.endSection();
+    }
+  }
+
+  synchronized HashMap<String, Object> snapshot(boolean reset) {
+    HashMap<String, Object> methods = new HashMap<>();
+    for (Map.Entry<String, Histogram> entry : mMethodLatencies.entrySet()) {
+      methods.put(entry.getKey(), entry.getValue().toMap());
+    }
+    HashMap<String, Object> events = new HashMap<>();
+    for (Map.Entry<String, long[]> entry : mEvents.entrySet()) {
+      HashMap<String, Object> counts = new HashMap<>();
+      counts.put("count", entry.getValue()[0]);
+      counts.put("bytes", entry.getValue()[1]);
+      events.put(entry.getKey(), counts);
+    }
+
+    HashMap<String, Object> map = new HashMap<>();
+    map.put("enabled", mEnabled);
+    map.put("methods", methods);
+    map.put("events", events);
+    map.put("dispatchDelay", mDispatchDelay.toMap());
+    map.put("mainThreadBacklog", mMainThreadBacklog.get());
+    map.put("maxMainThreadBacklog", mMaxMainThreadBacklog);
+
+    if (reset) {
+      mMethodLatencies.clear();
+      mEvents.clear();
+      mDispatchDelay.clear();
+      mMaxMainThreadBacklog = mMainThreadBacklog.get();
+    }
+    return map;
+  }
+}
@@ -2,7 +2,6 @@ package io.agora.agorartcengine;
 
 import android.content.Context;
 import android.view.SurfaceView;
-import android.view.View;
 
 import io.flutter.plugin.common.MessageCodec;
 import io.flutter.plugin.platform.PlatformView;
@@ -21,8 +20,16 @@ public class AgoraRenderViewFactory extends PlatformViewFactory {
   @Override
   public PlatformView create(Context context, int id, Object o) {
     SurfaceView view = RtcEngine.CreateRendererView(context);
-    AgoraRendererView rendererView = new AgoraRendererView(view, id);
-    mEnginePlugin.addView(view, id);
+    AgoraRendererView rendererView = new AgoraRendererView(view, id, this);
+    mEnginePlugin.addView(rendererView);
     return rendererView;
   }
-}
\ No newline at end of file
+
+  /**
+   * Forgets a disposed renderer view and unbinds it from the engine. Views are not reused, as with
+   * virtual displays every platform view has its own context. Called on the main thread.
+   */
+  void release(AgoraRendererView rendererView) {
+    mEnginePlugin.releaseView(rendererView);
+  }
+}
@@ -7,11 +7,21 @@ import io.flutter.plugin.platform.PlatformView;
 
 public class AgoraRendererView implements PlatformView  {
   private final SurfaceView mSurfaceView;
-  private final long uid;
+  private final int mViewId;
+  private final AgoraRenderViewFactory mFactory;
 
-  AgoraRendererView(SurfaceView surfaceView, int uid) {
+  AgoraRendererView(SurfaceView surfaceView, int viewId, AgoraRenderViewFactory factory) {
     this.mSurfaceView = surfaceView;
-    this.uid = uid;
+    this.mViewId = viewId;
+    this.mFactory = factory;
+  }
+
+  SurfaceView getSurfaceView() {
+    return mSurfaceView;
+  }
+
+  int getViewId() {
+    return mViewId;
   }
 
   @Override
@@ -20,5 +30,7 @@ public class AgoraRendererView implements PlatformView  {
   }
 
   @Override
-  public void dispose() {}
-}
\ No newline at end of file
+  public void dispose() {
+    mFactory.release(this);
+  }
+}
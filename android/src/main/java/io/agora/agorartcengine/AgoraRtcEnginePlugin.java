@@ -4,19 +4,28 @@ import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
+import io.flutter.plugin.common.PluginRegistry.PluginRegistrantCallback;
 import io.flutter.plugin.common.PluginRegistry.Registrar;
 
 import android.content.Context;
 import android.graphics.Rect;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.SystemClock;
+import android.util.LongSparseArray;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
 import android.view.SurfaceView;
 
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
+import io.agora.rtc.Constants;
 import io.agora.rtc.RtcEngine;
 import io.agora.rtc.IRtcEngineEventHandler;
 import io.agora.rtc.video.VideoCanvas;
@@ -28,22 +37,225 @@ import io.flutter.plugin.common.StandardMessageCodec;
 /** AgoraRtcEnginePlugin */
 public class AgoraRtcEnginePlugin implements MethodCallHandler {
 
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
   private final Registrar mRegistrar;
   private final MethodChannel mMethodChannel;
-  private RtcEngine mRtcEngine;
-  private HashMap<String, SurfaceView> mRendererViews;
+  private volatile AgoraEngine mRtcEngine;
+  private final SparseArray<AgoraRendererView> mRendererViews = new SparseArray<>();
+  private final LongSparseArray<AgoraTextureRenderer> mTextureRenderers = new LongSparseArray<>();
   private Handler mEventHandler = new Handler(Looper.getMainLooper());
+  // Worker thread state, guarded by mWorkerLock.
+  private final Object mWorkerLock = new Object();
+  private HandlerThread mWorkerThread;
+  private Handler mWorkerHandler;
+  private int mWorkerTasks;
+  private boolean mWorkerQuitting;
+  private final AgoraBinaryEventChannel mBinaryEventChannel;
+  private final AgoraEventDispatcher mEventDispatcher;
+  private final AgoraBackgroundIsolate mBackgroundIsolate;
+  private final AgoraPluginMetrics mMetrics = new AgoraPluginMetrics();
+  private AgoraAudioFrameStreamer mAudioFrameStreamer;
+  private final AgoraVideoFrameSampler mVideoFrameSampler;
+  private final AgoraDataStreamSender mDataStreamSender;
+  private final AgoraStatsAggregator mStatsAggregator;
+  private final AgoraVolumeIndicationFilter mVolumeIndicationFilter = new AgoraVolumeIndicationFilter();
+  private final AgoraStatsDeltaEncoder mStatsDeltaEncoder = new AgoraStatsDeltaEncoder();
+  private final AgoraEnginePrewarmer mEnginePrewarmer = new AgoraEnginePrewarmer();
+  private final AgoraStateMirror mStateMirror = new AgoraStateMirror();
+  private final AgoraStreamSelector mStreamSelector;
+  private final AgoraVisibilityTracker mVisibilityTracker;
+  private final AgoraEncoderTuner mEncoderTuner;
+  private final AgoraSubscriptionAllocator mSubscriptionAllocator;
+  private volatile boolean mStreamMessageText;
+  private volatile boolean mUnpackStreamMessages;
+
+  // Renderer views bound to the engine, only accessed on the engine thread.
+  private AgoraRendererView mLocalRendererView;
+  private final SparseArray<AgoraRendererView> mRemoteRendererViews = new SparseArray<>();
+  // Why the video of each remote uid is muted, as REMOTE_VIDEO_* bits; only accessed on the engine thread.
+  private static final int REMOTE_VIDEO_MUTED_BY_APP = 1;
+  private static final int REMOTE_VIDEO_HIDDEN = 1 << 1;
+  private static final int REMOTE_VIDEO_OVER_BUDGET = 1 << 2;
+  private final SparseIntArray mRemoteVideoMuteReasons = new SparseIntArray();
+  // Stream types requested for each remote uid by the stream selector and the subscription allocator; only
+  // accessed on the engine thread.
+  private final SparseIntArray mSelectedStreamTypes = new SparseIntArray();
+  private final SparseIntArray mAllocatedStreamTypes = new SparseIntArray();
+
+  synchronized void addView(AgoraRendererView view) {
+    mRendererViews.put(view.getViewId(), view);
+  }
+
+  private synchronized AgoraRendererView removeView(int id) {
+    AgoraRendererView view = mRendererViews.get(id);
+    mRendererViews.remove(id);
+    return view;
+  }
+
+  private synchronized AgoraRendererView getView(int id) {
+    return mRendererViews.get(id);
+  }
+
+  private static SurfaceView surfaceViewOf(AgoraRendererView view) {
+    return (view != null) ? view.getSurfaceView() : null;
+  }
+
+  /** Forgets a disposed renderer view and unbinds it from the engine. */
+  void releaseView(final AgoraRendererView view) {
+    synchronized (this) {
+      if (mRendererViews.get(view.getViewId()) == view) {
+        mRendererViews.remove(view.getViewId());
+      }
+    }
+    runOnEngineThread(new Runnable() {
+      @Override
+      public void run() {
+        unbindView(view);
+      }
+    });
+  }
+
+  private void unbindView(AgoraRendererView view) {
+    if (view == null) {
+      return;
+    }
+    mVisibilityTracker.untrack(view.getViewId());
+    AgoraEngine engine = mRtcEngine;
+    if (mLocalRendererView == view) {
+      mLocalRendererView = null;
+      if (engine != null) {
+        engine.setupLocalVideo(new VideoCanvas(null));
+      }
+    }
+    for (int i = mRemoteRendererViews.size() - 1; i >= 0; i--) {
+      if (mRemoteRendererViews.valueAt(i) == view) {
+        int uid = mRemoteRendererViews.keyAt(i);
+        mRemoteRendererViews.removeAt(i);
+        mStreamSelector.unbind(uid);
+        if (engine != null) {
+          engine.setupRemoteVideo(new VideoCanvas(null, VideoCanvas.RENDER_MODE_HIDDEN, uid));
+        }
+      }
+    }
+  }
+
+  /**
+   * Sets or clears one reason to mute the video of uid, and mutes it while any reason remains, so
+   * that the app's mutes and the plugin's own policies do not undo each other.
+   */
+  private void setRemoteVideoMuteReason(int uid, int reason, boolean set) {
+    int previous = mRemoteVideoMuteReasons.get(uid);
+    int reasons = set ? (previous | reason) : (previous & ~reason);
+    // The plugin's policies repeat their reasons, which only the app's mutes need to reach the engine.
+    if (reasons == previous && reason != REMOTE_VIDEO_MUTED_BY_APP) {
+      return;
+    }
+    if (reasons != 0) {
+      mRemoteVideoMuteReasons.put(uid, reasons);
+    } else {
+      mRemoteVideoMuteReasons.delete(uid);
+    }
+    applyRemoteVideoMute(uid, reason == REMOTE_VIDEO_MUTED_BY_APP);
+  }
 
-  void addView(SurfaceView view, int id) {
-    mRendererViews.put("" + id, view);
+  /**
+   * Mutes or unmutes the video of uid from its reasons. App commands are only skipped as the mirror
+   * allows; the plugin's own changes are skipped whenever the engine has the state already.
+   */
+  private void applyRemoteVideoMute(int uid, boolean byApp) {
+    AgoraEngine engine = mRtcEngine;
+    if (engine == null) {
+      return;
+    }
+    boolean muted = mRemoteVideoMuteReasons.get(uid) != 0;
+    boolean redundant = byApp
+        ? mStateMirror.skipsRemote(uid, AgoraStateMirror.REMOTE_VIDEO_MUTED, muted)
+        : Boolean.valueOf(muted).equals(mStateMirror.getRemote(uid, AgoraStateMirror.REMOTE_VIDEO_MUTED));
+    if (!redundant && engine.muteRemoteVideoStream(uid, muted) == 0) {
+      mStateMirror.setRemote(uid, AgoraStateMirror.REMOTE_VIDEO_MUTED, muted);
+    }
   }
 
-  private void removeView(int id) {
-    mRendererViews.remove("" + id);
+  /** Mutes again the remote video the plugin's policies keep muted, after the engine forgot it. */
+  private void reapplyRemoteVideoMutes() {
+    for (int i = 0; i < mRemoteVideoMuteReasons.size(); i++) {
+      applyRemoteVideoMute(mRemoteVideoMuteReasons.keyAt(i), false);
+    }
   }
 
-  private SurfaceView getView(int id) {
-    return mRendererViews.get("" + id);
+  /** Forgets the given mute reasons of uid without applying them, once the engine dropped them. */
+  private void dropRemoteVideoMuteReasons(int uid, int reasons) {
+    int remaining = mRemoteVideoMuteReasons.get(uid) & ~reasons;
+    if (remaining != 0) {
+      mRemoteVideoMuteReasons.put(uid, remaining);
+    } else {
+      mRemoteVideoMuteReasons.delete(uid);
+    }
+  }
+
+  /**
+   * Forgets the app's remote video mutes and the subscription allocator's, which the engine drops
+   * when leaving the channel.
+   */
+  private void clearChannelRemoteVideoState() {
+    for (int i = mRemoteVideoMuteReasons.size() - 1; i >= 0; i--) {
+      dropRemoteVideoMuteReasons(mRemoteVideoMuteReasons.keyAt(i), REMOTE_VIDEO_MUTED_BY_APP | REMOTE_VIDEO_OVER_BUDGET);
+    }
+    mSelectedStreamTypes.clear();
+    mAllocatedStreamTypes.clear();
+  }
+
+  /**
+   * Sets, or clears with -1, the stream type one of the plugin's policies requests for uid, and
+   * subscribes uid to the low stream while any policy requests it, to the high stream otherwise.
+   */
+  private void requestRemoteVideoStreamType(SparseIntArray requests, int uid, int streamType) {
+    if (streamType != -1) {
+      requests.put(uid, streamType);
+    } else {
+      requests.delete(uid);
+    }
+    boolean low = mSelectedStreamTypes.get(uid) == Constants.VIDEO_STREAM_LOW
+        || mAllocatedStreamTypes.get(uid) == Constants.VIDEO_STREAM_LOW;
+    applyRemoteVideoStreamType(uid, low ? Constants.VIDEO_STREAM_LOW : Constants.VIDEO_STREAM_HIGH);
+  }
+
+  /** Sets the stream type of uid chosen by the plugin, unless the engine uses it already. */
+  private void applyRemoteVideoStreamType(int uid, int streamType) {
+    AgoraEngine engine = mRtcEngine;
+    if (engine == null
+        || Integer.valueOf(streamType).equals(mStateMirror.getRemote(uid, AgoraStateMirror.REMOTE_VIDEO_STREAM_TYPE))) {
+      return;
+    }
+    if (engine.setRemoteVideoStreamType(uid, streamType) == 0) {
+      mStateMirror.setRemote(uid, AgoraStateMirror.REMOTE_VIDEO_STREAM_TYPE, streamType);
+    }
+  }
+
+  /** Subscribes uid to the video of its allocated tier, restoring the defaults for TIER_NONE. */
+  private void applySubscription(int uid, int tier, boolean priority) {
+    int streamType;
+    if (tier == AgoraSubscriptionAllocator.TIER_HIGH) {
+      streamType = Constants.VIDEO_STREAM_HIGH;
+    } else if (tier == AgoraSubscriptionAllocator.TIER_LOW) {
+      streamType = Constants.VIDEO_STREAM_LOW;
+    } else {
+      streamType = -1;
+    }
+    // Muted users keep their stream type, so that they resume on the stream they left.
+    if (tier != AgoraSubscriptionAllocator.TIER_MUTED) {
+      requestRemoteVideoStreamType(mAllocatedStreamTypes, uid, streamType);
+    }
+    setRemoteVideoMuteReason(uid, REMOTE_VIDEO_OVER_BUDGET, tier == AgoraSubscriptionAllocator.TIER_MUTED);
+    AgoraEngine engine = mRtcEngine;
+    if (engine != null) {
+      engine.setRemoteUserPriority(uid, priority ? Constants.USER_PRIORITY_HIGH : Constants.USER_PRIORITY_NORANL);
+    }
+  }
+
+  private synchronized AgoraTextureRenderer getTextureRenderer(Number textureId) {
+    return mTextureRenderers.get(textureId.longValue());
   }
 
   /** Plugin registration. */
@@ -57,10 +269,102 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     registrar.platformViewRegistry().registerViewFactory("AgoraRendererView", fac);
   }
 
+  /**
+   * Sets the callback that registers plugins with the background isolate started by
+   * startBackgroundIsolate, typically the app's GeneratedPluginRegistrant.
+   */
+  public static void setPluginRegistrant(PluginRegistrantCallback callback) {
+    AgoraBackgroundIsolate.setPluginRegistrant(callback);
+  }
+
   private AgoraRtcEnginePlugin(Registrar registrar, MethodChannel channel) {
     this.mRegistrar = registrar;
     this.mMethodChannel = channel;
-    this.mRendererViews = new HashMap<>();
+    this.mBinaryEventChannel = new AgoraBinaryEventChannel(registrar.messenger(), mEventHandler, mMetrics);
+    this.mBackgroundIsolate = new AgoraBackgroundIsolate(registrar.context(), mEventHandler);
+    this.mEventDispatcher = new AgoraEventDispatcher(channel, mEventHandler, mMetrics, mBackgroundIsolate);
+    this.mVideoFrameSampler = new AgoraVideoFrameSampler(registrar.messenger(), mEventHandler);
+    this.mStatsAggregator = new AgoraStatsAggregator(mEventDispatcher, mEventHandler);
+    this.mEncoderTuner = new AgoraEncoderTuner(registrar.context(), new AgoraEncoderTuner.Listener() {
+      @Override
+      public void onAdjust(final VideoEncoderConfiguration configuration, HashMap<String, Object> report) {
+        runOnEngineThread(new Runnable() {
+          @Override
+          public void run() {
+            AgoraEngine engine = mRtcEngine;
+            if (engine != null) {
+              engine.setVideoEncoderConfiguration(configuration);
+            }
+          }
+        });
+        if (mEventDispatcher.isSubscribed(AgoraEvents.ON_ENCODER_ADJUSTED)) {
+          invokeMethod("onEncoderAdjusted", report);
+        }
+      }
+    });
+    this.mVisibilityTracker = new AgoraVisibilityTracker(mEventHandler, new AgoraVisibilityTracker.Listener() {
+      @Override
+      public void onVisibilityChanged(final int uid, final boolean visible) {
+        runOnEngineThread(new Runnable() {
+          @Override
+          public void run() {
+            setRemoteVideoMuteReason(uid, REMOTE_VIDEO_HIDDEN, !visible);
+          }
+        });
+      }
+    });
+    this.mStreamSelector = new AgoraStreamSelector(mEventHandler, new AgoraStreamSelector.Listener() {
+      @Override
+      public void onStreamTypeSelected(final int uid, final int streamType) {
+        runOnEngineThread(new Runnable() {
+          @Override
+          public void run() {
+            requestRemoteVideoStreamType(mSelectedStreamTypes, uid, streamType);
+          }
+        });
+      }
+    });
+    this.mSubscriptionAllocator = new AgoraSubscriptionAllocator(new AgoraSubscriptionAllocator.Listener() {
+      @Override
+      public void onAllocated(final int uid, final int tier, final boolean priority) {
+        runOnEngineThread(new Runnable() {
+          @Override
+          public void run() {
+            applySubscription(uid, tier, priority);
+          }
+        });
+      }
+    });
+    mEventDispatcher.setCoalescer("onRtcStats", AgoraStatsDeltaEncoder.COALESCER);
+    mEventDispatcher.setCoalescer("onLocalVideoStats", AgoraStatsDeltaEncoder.COALESCER);
+    mEventDispatcher.setCoalescer("onRemoteVideoStats", AgoraStatsDeltaEncoder.COALESCER);
+    mEventDispatcher.setCoalescer("onAudioVolumeIndication", mVolumeIndicationFilter);
+    this.mDataStreamSender = new AgoraDataStreamSender(new AgoraDataStreamSender.Transport() {
+      @Override
+      public int sendStreamMessage(int streamId, byte[] packet) {
+        AgoraEngine engine = mRtcEngine;
+        return (engine != null) ? engine.sendStreamMessage(streamId, packet) : -Constants.ERR_NOT_INITIALIZED;
+      }
+
+      @Override
+      public void postDelayed(Runnable runnable, long delay) {
+        if (!postToWorker(runnable, delay)) {
+          mEventHandler.postDelayed(runnable, delay);
+        }
+      }
+
+      @Override
+      public void onPacketDropped(int streamId, int messages, int error) {
+        if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_STREAM_MESSAGE_DROPPED)) {
+          return;
+        }
+        HashMap<String, Object> map = new HashMap<>();
+        map.put("streamId", streamId);
+        map.put("messages", messages);
+        map.put("error", error);
+        invokeMethod("onStreamMessageDropped", map);
+      }
+    });
   }
 
   private Context getActiveContext() {
@@ -68,33 +372,210 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
   }
 
   @Override
-  public void onMethodCall(MethodCall call, Result rawResult) {
+  public void onMethodCall(final MethodCall call, Result rawResult) {
+    final MethodResultWrapper result = new MethodResultWrapper(rawResult, mEventHandler, mMetrics);
+    final long start = mMetrics.startMethod();
+    if (isMainThreadMethod(call.method) || !postToWorker(new Runnable() {
+      @Override
+      public void run() {
+        runMethodCall(call, result, start);
+      }
+    }, 0)) {
+      runMethodCall(call, result, start);
+    }
+  }
+
+  /** Methods that manage plugin or Flutter resources and always run on the main thread. */
+  private static boolean isMainThreadMethod(String method) {
+    switch (method) {
+      case "enableEngineWorkerThread":
+      case "createTextureRender":
+      case "removeTextureRender":
+      case "enableEventBatching":
+      case "enableEventQueue":
+      case "startBackgroundIsolate":
+      case "stopBackgroundIsolate":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Runs a method call, makes sure its result is completed exactly once, and records its latency
+   * since start, which includes any time queued.
+   */
+  private void runMethodCall(MethodCall call, MethodResultWrapper result, long start) {
+    mMetrics.beginSection("Agora#", call.method);
+    try {
+      handleMethodCall(call, result);
+    } catch (Exception e) {
+      if (!result.isReplied()) {
+        result.error(call.method, e.toString(), null);
+      }
+    } finally {
+      mMetrics.endSection();
+    }
+    if (!result.isReplied()) {
+      result.success(null);
+    }
+    mMetrics.endMethod(call.method, start);
+  }
+
+  /** Runs engine work in order with the method calls, on the worker thread if it is enabled. */
+  private void runOnEngineThread(Runnable runnable) {
+    if (postToWorker(runnable, 0)) {
+      return;
+    }
+    if (Looper.myLooper() == Looper.getMainLooper()) {
+      runnable.run();
+    } else {
+      mEventHandler.post(runnable);
+    }
+  }
+
+  /**
+   * Posts a runnable to the worker thread, unless the worker is off, in which case it returns false
+   * and the caller runs the runnable on the main thread.
+   */
+  private boolean postToWorker(final Runnable runnable, long delay) {
+    synchronized (mWorkerLock) {
+      if (mWorkerHandler == null) {
+        return false;
+      }
+      mWorkerTasks++;
+      mWorkerHandler.postDelayed(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            runnable.run();
+          } finally {
+            onWorkerTaskDone();
+          }
+        }
+      }, delay);
+      return true;
+    }
+  }
+
+  private void onWorkerTaskDone() {
+    synchronized (mWorkerLock) {
+      mWorkerTasks--;
+      if (mWorkerQuitting && mWorkerTasks == 0) {
+        quitWorker();
+      }
+    }
+  }
+
+  /** Stops the worker thread; called with mWorkerLock held once no task is left on it. */
+  private void quitWorker() {
+    mWorkerThread.quit();
+    mWorkerThread = null;
+    mWorkerHandler = null;
+    mWorkerQuitting = false;
+  }
+
+  private void setWorkerThreadEnabled(boolean enabled) {
+    synchronized (mWorkerLock) {
+      if (enabled) {
+        mWorkerQuitting = false;
+        if (mWorkerThread == null) {
+          mWorkerThread = new HandlerThread("AgoraRtcEngine");
+          mWorkerThread.start();
+          mWorkerHandler = new Handler(mWorkerThread.getLooper());
+        }
+      } else if (mWorkerThread != null) {
+        // Work keeps going to the worker until it has run everything queued on it, so that calls
+        // stay in order and the engine thread state is never touched from two threads.
+        if (mWorkerTasks == 0) {
+          quitWorker();
+        } else {
+          mWorkerQuitting = true;
+        }
+      }
+    }
+  }
+
+  private void handleMethodCall(MethodCall call, MethodChannel.Result result) {
     Context context = getActiveContext();
-    MethodChannel.Result result = new MethodResultWrapper(rawResult, mEventHandler);
 
     switch (call.method) {
       // Core Methods
       case "create": {
         try {
           String appId = call.argument("appId");
-          mRtcEngine = RtcEngine.create(context, appId, mRtcEventHandler);
+          Map<String, Object> fakeEngine = call.argument("fakeEngine");
+          // The SDK hands out its single engine again; any other engine left from an earlier create,
+          // e.g. before a hot restart, would keep running and calling the event handler.
+          AgoraEngine previous = mRtcEngine;
+          if (previous != null && (fakeEngine != null || !(previous instanceof AgoraSdkEngine))) {
+            previous.destroy();
+            mRtcEngine = null;
+            mAudioFrameStreamer = null;
+          }
+          if (fakeEngine != null) {
+            mRtcEngine = new AgoraFakeEngine(mRtcEventHandler, AgoraFakeEngine.Config.fromMap(fakeEngine));
+          } else {
+            long start = SystemClock.elapsedRealtime();
+            AgoraSdkEngine engine = mEnginePrewarmer.take(appId);
+            boolean warm = engine != null;
+            if (engine == null) {
+              engine = AgoraSdkEngine.create(context, appId, mRtcEventHandler);
+            }
+            mRtcEngine = engine;
+            if (mEventDispatcher.isSubscribed(AgoraEvents.ON_ENGINE_CREATED)) {
+              HashMap<String, Object> map = new HashMap<>();
+              map.put("appId", appId);
+              map.put("warm", warm);
+              map.put("elapsed", SystemClock.elapsedRealtime() - start);
+              invokeMethod("onEngineCreated", map);
+            }
+          }
         } catch (Exception e) {
           throw new RuntimeException("NEED TO check rtc sdk init fatal error\n");
         }
+        mStateMirror.reset();
+      }
+      break;
+      case "prewarm": {
+        // The SDK holds one engine, so there is nothing to prewarm once it was created.
+        boolean created = mRtcEngine != null;
+        if (!created) {
+          String appId = call.argument("appId");
+          mEnginePrewarmer.prewarm(context, appId, mRtcEventHandler, mEnginePrewarmListener);
+        }
+        result.success(!created);
       }
       break;
       case "destroy": {
-        RtcEngine.destroy();
+        AgoraEngine engine = mRtcEngine;
+        if (engine != null) {
+          if (mAudioFrameStreamer != null) {
+            engine.registerAudioFrameObserver(null);
+          }
+          engine.destroy();
+        }
+        mAudioFrameStreamer = null;
+        mRtcEngine = null;
+        mDataStreamSender.reset();
+        mStateMirror.reset();
+        mStreamSelector.reset();
+        mSubscriptionAllocator.clear();
+        clearChannelRemoteVideoState();
       }
       break;
       case "setChannelProfile": {
         int profile = call.argument("profile");
-        mRtcEngine.setChannelProfile(profile);
+        if (!mStateMirror.skips(AgoraStateMirror.CHANNEL_PROFILE, profile) && mRtcEngine.setChannelProfile(profile) == 0) {
+          mStateMirror.set(AgoraStateMirror.CHANNEL_PROFILE, profile);
+        }
       }
       break;
       case "setClientRole": {
         int role = call.argument("role");
-        mRtcEngine.setClientRole(role);
+        if (!mStateMirror.skips(AgoraStateMirror.CLIENT_ROLE, role) && mRtcEngine.setClientRole(role) == 0) {
+          mStateMirror.set(AgoraStateMirror.CLIENT_ROLE, role);
+        }
       }
       break;
       case "joinChannel": {
@@ -102,11 +583,16 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
         String channel = call.argument("channelId");
         String info = call.argument("info");
         int uid = call.argument("uid");
-        mRtcEngine.joinChannel(token, channel, info, uid);
+        int ret = mRtcEngine.joinChannel(token, channel, info, uid);
+        if (ret == 0) {
+          mStateMirror.set(AgoraStateMirror.CHANNEL_ID, channel);
+        }
+        result.success(ret == 0);
       }
       break;
       case "leaveChannel": {
-        mRtcEngine.leaveChannel();
+        int ret = mRtcEngine.leaveChannel();
+        result.success(ret == 0);
       }
       break;
       case "renewToken": {
@@ -120,17 +606,21 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
       }
       break;
       case "getConnectionState": {
-        int state = mRtcEngine.getConnectionState();
-        result.success(state);
+        Object state = mStateMirror.get(AgoraStateMirror.CONNECTION_STATE);
+        result.success((state != null) ? state : mRtcEngine.getConnectionState());
       }
       break;
       // Core Audio
       case "enableAudio": {
-        mRtcEngine.enableAudio();
+        if (!mStateMirror.skips(AgoraStateMirror.AUDIO_ENABLED, true) && mRtcEngine.enableAudio() == 0) {
+          mStateMirror.set(AgoraStateMirror.AUDIO_ENABLED, true);
+        }
       }
       break;
       case "disableAudio": {
-        mRtcEngine.disableAudio();
+        if (!mStateMirror.skips(AgoraStateMirror.AUDIO_ENABLED, false) && mRtcEngine.disableAudio() == 0) {
+          mStateMirror.set(AgoraStateMirror.AUDIO_ENABLED, false);
+        }
       }
       break;
       case "setAudioProfile": {
@@ -155,25 +645,41 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
         mRtcEngine.enableAudioVolumeIndication(interval, smooth);
       }
       break;
+      case "setAudioVolumeIndicationFilter": {
+        int mode = call.argument("mode");
+        int topK = call.argument("topK");
+        int threshold = call.argument("threshold");
+        mVolumeIndicationFilter.setMode(mode, topK, threshold);
+      }
+      break;
       case "enableLocalAudio": {
         boolean enabled = call.argument("enabled");
-        mRtcEngine.enableLocalAudio(enabled);
+        if (!mStateMirror.skips(AgoraStateMirror.LOCAL_AUDIO_ENABLED, enabled) && mRtcEngine.enableLocalAudio(enabled) == 0) {
+          mStateMirror.set(AgoraStateMirror.LOCAL_AUDIO_ENABLED, enabled);
+        }
       }
       break;
       case "muteLocalAudioStream": {
         boolean muted = call.argument("muted");
-        mRtcEngine.muteLocalAudioStream(muted);
+        if (!mStateMirror.skips(AgoraStateMirror.LOCAL_AUDIO_MUTED, muted) && mRtcEngine.muteLocalAudioStream(muted) == 0) {
+          mStateMirror.set(AgoraStateMirror.LOCAL_AUDIO_MUTED, muted);
+        }
       }
       break;
       case "muteRemoteAudioStream": {
         int uid = call.argument("uid");
         boolean muted = call.argument("muted");
-        mRtcEngine.muteRemoteAudioStream(uid, muted);
+        if (!mStateMirror.skipsRemote(uid, AgoraStateMirror.REMOTE_AUDIO_MUTED, muted) && mRtcEngine.muteRemoteAudioStream(uid, muted) == 0) {
+          mStateMirror.setRemote(uid, AgoraStateMirror.REMOTE_AUDIO_MUTED, muted);
+        }
       }
       break;
       case "muteAllRemoteAudioStreams": {
         boolean muted = call.argument("muted");
-        mRtcEngine.muteAllRemoteAudioStreams(muted);
+        if (!mStateMirror.skips(AgoraStateMirror.ALL_REMOTE_AUDIO_MUTED, muted) && mRtcEngine.muteAllRemoteAudioStreams(muted) == 0) {
+          mStateMirror.set(AgoraStateMirror.ALL_REMOTE_AUDIO_MUTED, muted);
+          mStateMirror.clearRemote(AgoraStateMirror.REMOTE_AUDIO_MUTED);
+        }
       }
       break;
       case "setDefaultMuteAllRemoteAudioStreams": {
@@ -185,45 +691,109 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
       case "setBeautyEffectOptions": {
         boolean enabled = call.argument("enabled");
         HashMap<String, Object> optionsMap = call.argument("options");
-        BeautyOptions options = beautyOptionsFromMap(optionsMap);
+        BeautyOptions options = AgoraMarshalling.beautyOptionsFromMap(optionsMap);
         mRtcEngine.setBeautyEffectOptions(enabled, options);
       }
       break;
       // Core Video
       case "enableVideo": {
-        mRtcEngine.enableVideo();
+        if (!mStateMirror.skips(AgoraStateMirror.VIDEO_ENABLED, true) && mRtcEngine.enableVideo() == 0) {
+          mStateMirror.set(AgoraStateMirror.VIDEO_ENABLED, true);
+        }
       }
       break;
       case "disableVideo": {
-        mRtcEngine.disableVideo();
+        if (!mStateMirror.skips(AgoraStateMirror.VIDEO_ENABLED, false) && mRtcEngine.disableVideo() == 0) {
+          mStateMirror.set(AgoraStateMirror.VIDEO_ENABLED, false);
+        }
       }
       break;
       case "setVideoEncoderConfiguration": {
         HashMap<String, Object> configDic = call.argument("config");
-        VideoEncoderConfiguration config = videoEncoderConfigurationFromMap(configDic);
+        VideoEncoderConfiguration config = AgoraMarshalling.videoEncoderConfigurationFromMap(configDic);
         mRtcEngine.setVideoEncoderConfiguration(config);
       }
       break;
+      case "enableEncoderAutoTuning": {
+        Map<String, Object> configMap = call.argument("config");
+        VideoEncoderConfiguration config = mEncoderTuner.setConfig(
+            (configMap != null) ? AgoraEncoderTuner.Config.fromMap(configMap) : null);
+        if (config != null) {
+          mRtcEngine.setVideoEncoderConfiguration(config);
+        }
+      }
+      break;
       case "removeNativeView": {
         int viewId = call.argument("viewId");
-        removeView(viewId);
+        unbindView(removeView(viewId));
+      }
+      break;
+      case "createTextureRender": {
+        AgoraTextureRenderer renderer = new AgoraTextureRenderer(mRegistrar.textures().createSurfaceTexture(), mVideoFrameSampler);
+        synchronized (this) {
+          mTextureRenderers.put(renderer.getTextureId(), renderer);
+        }
+        result.success(renderer.getTextureId());
+      }
+      break;
+      case "removeTextureRender": {
+        long textureId = ((Number) call.argument("textureId")).longValue();
+        AgoraTextureRenderer renderer;
+        synchronized (this) {
+          renderer = mTextureRenderers.get(textureId);
+          mTextureRenderers.remove(textureId);
+        }
+        if (renderer != null) {
+          renderer.release();
+        }
       }
       break;
       case "setupLocalVideo": {
+        Number localTextureId = call.argument("textureId");
+        if (localTextureId != null) {
+          AgoraTextureRenderer localRenderer = getTextureRenderer(localTextureId);
+          if (localRenderer != null) {
+            localRenderer.bindUid(0);
+          }
+          mRtcEngine.setLocalVideoRenderer(localRenderer);
+          mLocalRendererView = null;
+          break;
+        }
         int localViewId = call.argument("viewId");
-        SurfaceView localView = getView(localViewId);
+        AgoraRendererView localView = getView(localViewId);
         int localRenderMode = call.argument("renderMode");
-        VideoCanvas localCanvas = new VideoCanvas(localView);
+        VideoCanvas localCanvas = new VideoCanvas(surfaceViewOf(localView));
         localCanvas.renderMode = localRenderMode;
         mRtcEngine.setupLocalVideo(localCanvas);
+        mLocalRendererView = localView;
       }
       break;
       case "setupRemoteVideo": {
+        Number remoteTextureId = call.argument("textureId");
+        if (remoteTextureId != null) {
+          int remoteUid = call.argument("uid");
+          AgoraTextureRenderer remoteRenderer = getTextureRenderer(remoteTextureId);
+          if (remoteRenderer != null) {
+            remoteRenderer.bindUid(remoteUid);
+          }
+          mRtcEngine.setRemoteVideoRenderer(remoteUid, remoteRenderer);
+          mRemoteRendererViews.remove(remoteUid);
+          mStreamSelector.unbind(remoteUid);
+          break;
+        }
         int remoteViewId = call.argument("viewId");
-        SurfaceView view = getView(remoteViewId);
+        AgoraRendererView view = getView(remoteViewId);
         int remoteRenderMode = call.argument("renderMode");
         int remoteUid = call.argument("uid");
-        mRtcEngine.setupRemoteVideo(new VideoCanvas(view, remoteRenderMode, remoteUid));
+        mRtcEngine.setupRemoteVideo(new VideoCanvas(surfaceViewOf(view), remoteRenderMode, remoteUid));
+        if (view != null) {
+          mRemoteRendererViews.put(remoteUid, view);
+          mStreamSelector.bind(remoteUid, view.getSurfaceView());
+          mVisibilityTracker.track(remoteViewId, remoteUid, view.getSurfaceView());
+        } else {
+          mRemoteRendererViews.remove(remoteUid);
+          mStreamSelector.unbind(remoteUid);
+        }
       }
       break;
       case "setLocalRenderMode": {
@@ -247,23 +817,33 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
       break;
       case "enableLocalVideo": {
         boolean enabled = call.argument("enabled");
-        mRtcEngine.enableLocalVideo(enabled);
+        if (!mStateMirror.skips(AgoraStateMirror.LOCAL_VIDEO_ENABLED, enabled) && mRtcEngine.enableLocalVideo(enabled) == 0) {
+          mStateMirror.set(AgoraStateMirror.LOCAL_VIDEO_ENABLED, enabled);
+        }
       }
       break;
       case "muteLocalVideoStream": {
         boolean muted = call.argument("muted");
-        mRtcEngine.muteLocalVideoStream(muted);
+        if (!mStateMirror.skips(AgoraStateMirror.LOCAL_VIDEO_MUTED, muted) && mRtcEngine.muteLocalVideoStream(muted) == 0) {
+          mStateMirror.set(AgoraStateMirror.LOCAL_VIDEO_MUTED, muted);
+        }
       }
       break;
       case "muteRemoteVideoStream": {
         int uid = call.argument("uid");
         boolean muted = call.argument("muted");
-        mRtcEngine.muteRemoteVideoStream(uid, muted);
+        setRemoteVideoMuteReason(uid, REMOTE_VIDEO_MUTED_BY_APP, muted);
       }
       break;
       case "muteAllRemoteVideoStreams": {
         boolean muted = call.argument("muted");
-        mRtcEngine.muteAllRemoteVideoStreams(muted);
+        if (!mStateMirror.skips(AgoraStateMirror.ALL_REMOTE_VIDEO_MUTED, muted) && mRtcEngine.muteAllRemoteVideoStreams(muted) == 0) {
+          mStateMirror.set(AgoraStateMirror.ALL_REMOTE_VIDEO_MUTED, muted);
+          mStateMirror.clearRemote(AgoraStateMirror.REMOTE_VIDEO_MUTED);
+          if (!muted) {
+            reapplyRemoteVideoMutes();
+          }
+        }
       }
       break;
       case "setDefaultMuteAllRemoteVideoStreams": {
@@ -271,6 +851,18 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
         mRtcEngine.setDefaultMuteAllRemoteVideoStreams(muted);
       }
       break;
+      case "enableHiddenVideoPause": {
+        boolean enabled = call.argument("enabled");
+        int hideDelay = call.argument("hideDelay");
+        mVisibilityTracker.setEnabled(enabled, hideDelay);
+      }
+      break;
+      case "setNativeViewVisible": {
+        int viewId = call.argument("viewId");
+        boolean visible = call.argument("visible");
+        mVisibilityTracker.setAppVisible(viewId, visible);
+      }
+      break;
 
       // Audio Routing Controller
       case "setDefaultAudioRouteToSpeaker": {
@@ -280,11 +872,18 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
       break;
       case "setEnableSpeakerphone": {
         boolean enabled = call.argument("enabled");
-        mRtcEngine.setEnableSpeakerphone(enabled);
+        // The route is mirrored from onAudioRouteChanged, since a headset can keep the speaker off.
+        if (!mStateMirror.skips(AgoraStateMirror.SPEAKERPHONE_ENABLED, enabled)) {
+          mRtcEngine.setEnableSpeakerphone(enabled);
+        }
       }
       break;
       case "isSpeakerphoneEnabled": {
-        boolean enabled = mRtcEngine.isSpeakerphoneEnabled();
+        Boolean enabled = (Boolean) mStateMirror.get(AgoraStateMirror.SPEAKERPHONE_ENABLED);
+        if (enabled == null) {
+          enabled = mRtcEngine.isSpeakerphoneEnabled();
+          mStateMirror.set(AgoraStateMirror.SPEAKERPHONE_ENABLED, enabled);
+        }
         result.success(enabled);
       }
       break;
@@ -295,6 +894,25 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
         int userPriority = call.argument("userPriority");
         mRtcEngine.setRemoteUserPriority(uid, userPriority);
       }
+      break;
+      case "enableSubscriptionAllocator": {
+        Map<String, Object> configMap = call.argument("config");
+        mSubscriptionAllocator.setConfig((configMap != null) ? AgoraSubscriptionAllocator.Config.fromMap(configMap) : null);
+      }
+      break;
+      case "setSubscriptionPins": {
+        List<Integer> uids = call.argument("uids");
+        int[] pinned = new int[uids.size()];
+        for (int i = 0; i < pinned.length; i++) {
+          pinned[i] = uids.get(i);
+        }
+        mSubscriptionAllocator.setPinnedUids(pinned);
+      }
+      break;
+      case "getSubscriptionAllocation": {
+        result.success(mSubscriptionAllocator.getAllocation());
+      }
+      break;
       case "setLocalPublishFallbackOption": {
         int option = call.argument("option");
         mRtcEngine.setLocalPublishFallbackOption(option);
@@ -309,18 +927,32 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
       // Dual-stream Mode
       case "enableDualStreamMode": {
         boolean enabled = call.argument("enabled");
-        mRtcEngine.enableDualStreamMode(enabled);
+        if (!mStateMirror.skips(AgoraStateMirror.DUAL_STREAM_MODE, enabled) && mRtcEngine.enableDualStreamMode(enabled) == 0) {
+          mStateMirror.set(AgoraStateMirror.DUAL_STREAM_MODE, enabled);
+        }
       }
       break;
       case "setRemoteVideoStreamType": {
         int uid = call.argument("uid");
         int streamType = call.argument("streamType");
-        mRtcEngine.setRemoteVideoStreamType(uid, streamType);
+        if (!mStateMirror.skipsRemote(uid, AgoraStateMirror.REMOTE_VIDEO_STREAM_TYPE, streamType) && mRtcEngine.setRemoteVideoStreamType(uid, streamType) == 0) {
+          mStateMirror.setRemote(uid, AgoraStateMirror.REMOTE_VIDEO_STREAM_TYPE, streamType);
+        }
+      }
+      break;
+      case "enableAdaptiveStreamSelection": {
+        boolean enabled = call.argument("enabled");
+        int lowThreshold = call.argument("lowThreshold");
+        int highThreshold = call.argument("highThreshold");
+        int settleDelay = call.argument("settleDelay");
+        mStreamSelector.setEnabled(enabled, lowThreshold, highThreshold, settleDelay);
       }
       break;
       case "setRemoteDefaultVideoStreamType": {
         int streamType = call.argument("streamType");
-        mRtcEngine.setRemoteDefaultVideoStreamType(streamType);
+        if (mRtcEngine.setRemoteDefaultVideoStreamType(streamType) == 0) {
+          mStateMirror.clearRemote(AgoraStateMirror.REMOTE_VIDEO_STREAM_TYPE);
+        }
       }
       break;
 
@@ -342,6 +974,32 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
       }
       break;
 
+      // Data Stream
+      case "createDataStream": {
+        boolean reliable = call.argument("reliable");
+        boolean ordered = call.argument("ordered");
+        result.success(mRtcEngine.createDataStream(reliable, ordered));
+      }
+      break;
+      case "sendStreamMessage": {
+        int streamId = call.argument("streamId");
+        byte[] message = call.argument("message");
+        result.success(mDataStreamSender.send(streamId, message) == 0);
+      }
+      break;
+      case "setDataStreamCoalescing": {
+        int streamId = call.argument("streamId");
+        boolean enabled = call.argument("enabled");
+        int interval = call.argument("interval");
+        mDataStreamSender.setCoalescing(streamId, enabled, interval);
+      }
+      break;
+      case "setStreamMessageOptions": {
+        mStreamMessageText = call.argument("text");
+        mUnpackStreamMessages = call.argument("unpack");
+      }
+      break;
+
       // Miscellaneous Methods
       case "getSdkVersion": {
         String version = RtcEngine.getSdkVersion();
@@ -349,28 +1007,232 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
       }
       break;
 
+      // Raw Audio Data
+      case "enableAudioFrameStreaming": {
+        boolean enabled = call.argument("enabled");
+        if (!enabled) {
+          mRtcEngine.registerAudioFrameObserver(null);
+          mAudioFrameStreamer = null;
+          break;
+        }
+        int sampleRate = call.argument("sampleRate");
+        int channels = call.argument("channels");
+        int chunkSize = call.argument("chunkSize");
+        boolean record = call.argument("record");
+        boolean playback = call.argument("playback");
+        // The chunk size divides every frame on the SDK's audio thread.
+        if (chunkSize <= 0 || sampleRate <= 0 || channels <= 0) {
+          result.error(call.method, "chunkSize, sampleRate and channels must be positive", null);
+          break;
+        }
+        // Ask the SDK for 10 ms frames in the requested format.
+        int samplesPerCall = sampleRate / 100 * channels;
+        mRtcEngine.setRecordingAudioFrameParameters(sampleRate, channels, Constants.RAW_AUDIO_FRAME_OP_MODE_READ_ONLY, samplesPerCall);
+        mRtcEngine.setPlaybackAudioFrameParameters(sampleRate, channels, Constants.RAW_AUDIO_FRAME_OP_MODE_READ_ONLY, samplesPerCall);
+        mAudioFrameStreamer = new AgoraAudioFrameStreamer(mRegistrar.messenger(), mEventHandler, chunkSize, record, playback);
+        mRtcEngine.registerAudioFrameObserver(mAudioFrameStreamer);
+      }
+      break;
+      case "getAudioFrameStats": {
+        AgoraAudioFrameStreamer streamer = mAudioFrameStreamer;
+        HashMap<String, Object> map = new HashMap<>();
+        map.put("recordDroppedFrames", (streamer != null) ? streamer.getDroppedFrames(AgoraAudioFrameStreamer.SOURCE_RECORD) : 0L);
+        map.put("playbackDroppedFrames", (streamer != null) ? streamer.getDroppedFrames(AgoraAudioFrameStreamer.SOURCE_PLAYBACK) : 0L);
+        result.success(map);
+      }
+      break;
+
+      // Raw Video Data
+      case "setVideoFrameSampling": {
+        boolean enabled = call.argument("enabled");
+        if (!enabled) {
+          mVideoFrameSampler.setConfig(null);
+          break;
+        }
+        int width = call.argument("width");
+        int height = call.argument("height");
+        int interval = call.argument("interval");
+        List<Integer> uidList = call.argument("uids");
+        int[] uids = null;
+        if (uidList != null) {
+          uids = new int[uidList.size()];
+          for (int i = 0; i < uids.length; i++) {
+            uids[i] = uidList.get(i);
+          }
+        }
+        mVideoFrameSampler.setConfig(new AgoraVideoFrameSampler.Config(width, height, interval, uids));
+      }
+      break;
+
+      // Plugin Configuration
+      case "batch": {
+        List<Map<String, Object>> calls = call.argument("calls");
+        if (calls == null) {
+          result.error(call.method, "calls is required", null);
+          return;
+        }
+        // The batch runs on the engine thread, where neither nested batches nor main thread methods belong.
+        for (int i = 0; i < calls.size(); i++) {
+          String method = (String) calls.get(i).get("method");
+          if (method == null || "batch".equals(method) || isMainThreadMethod(method)) {
+            HashMap<String, Object> details = new HashMap<>();
+            details.put("index", i);
+            details.put("results", new ArrayList<>());
+            result.error(call.method, "cannot batch " + method, details);
+            return;
+          }
+        }
+        ArrayList<Object> results = new ArrayList<>(calls.size());
+        for (int i = 0; i < calls.size(); i++) {
+          Map<String, Object> item = calls.get(i);
+          MethodCall batchedCall = new MethodCall((String) item.get("method"), item.get("arguments"));
+          BatchedResult batchedResult = new BatchedResult();
+          try {
+            handleMethodCall(batchedCall, batchedResult);
+          } catch (Exception e) {
+            batchedResult.error(batchedCall.method, e.toString(), null);
+          }
+          if (batchedResult.mErrorCode != null) {
+            HashMap<String, Object> details = new HashMap<>();
+            details.put("index", i);
+            details.put("results", results);
+            details.put("details", batchedResult.mErrorDetails);
+            result.error(batchedResult.mErrorCode, batchedResult.mErrorMessage, details);
+            return;
+          }
+          results.add(batchedResult.mValue);
+        }
+        result.success(results);
+      }
+      break;
+      case "enableEngineWorkerThread": {
+        boolean enabled = call.argument("enabled");
+        setWorkerThreadEnabled(enabled);
+      }
+      break;
+      case "enableBinaryEventTransport": {
+        boolean enabled = call.argument("enabled");
+        mBinaryEventChannel.setEnabled(enabled);
+      }
+      break;
+      case "setEventSubscriptions": {
+        List<String> events = call.argument("events");
+        boolean[] subscribed = new boolean[AgoraEvents.COUNT];
+        for (String event : events) {
+          int index = AgoraEvents.indexOf(event);
+          if (index >= 0) {
+            subscribed[index] = true;
+          }
+        }
+        mEventDispatcher.setSubscriptions(subscribed);
+      }
+      break;
+      case "enableStatsAggregation": {
+        boolean enabled = call.argument("enabled");
+        int interval = call.argument("interval");
+        int windowSize = call.argument("windowSize");
+        boolean forwardRawStats = call.argument("forwardRawStats");
+        mStatsAggregator.setEnabled(enabled, interval, windowSize, forwardRawStats);
+      }
+      break;
+      case "enableStatsDeltaEncoding": {
+        boolean enabled = call.argument("enabled");
+        int keyframeInterval = call.argument("keyframeInterval");
+        mStatsDeltaEncoder.setEnabled(enabled, keyframeInterval);
+      }
+      break;
+      case "enablePluginMetrics": {
+        boolean enabled = call.argument("enabled");
+        boolean trace = call.argument("trace");
+        mMetrics.setEnabled(enabled, trace);
+      }
+      break;
+      case "getPluginMetrics": {
+        boolean reset = call.argument("reset");
+        result.success(mMetrics.snapshot(reset));
+      }
+      break;
+      case "getFakeEngineReport": {
+        boolean reset = call.argument("reset");
+        AgoraEngine engine = mRtcEngine;
+        result.success((engine instanceof AgoraFakeEngine) ? ((AgoraFakeEngine) engine).report(reset) : null);
+      }
+      break;
+      case "enableEventBatching": {
+        boolean enabled = call.argument("enabled");
+        int interval = call.argument("interval");
+        mEventDispatcher.setBatching(enabled, interval);
+      }
+      break;
+      case "enableEventQueue": {
+        boolean enabled = call.argument("enabled");
+        int capacity = call.argument("capacity");
+        Map<String, Integer> policies = call.argument("policies");
+        mEventDispatcher.setQueue(enabled, capacity, policies);
+      }
+      break;
+      case "getStateSnapshot": {
+        result.success(mStateMirror.getSnapshot());
+      }
+      break;
+      case "enableRedundantCommandSkipping": {
+        boolean enabled = call.argument("enabled");
+        mStateMirror.setSkipRedundantCommands(enabled);
+      }
+      break;
+      case "enableEventPriorityLanes": {
+        boolean enabled = call.argument("enabled");
+        List<String> telemetryEvents = call.argument("telemetryEvents");
+        mEventDispatcher.setPriorityLanes(enabled, telemetryEvents);
+      }
+      break;
+      case "startBackgroundIsolate": {
+        long dispatcherHandle = ((Number) call.argument("dispatcherHandle")).longValue();
+        long handlerHandle = ((Number) call.argument("handlerHandle")).longValue();
+        List<String> events = call.argument("events");
+        mBackgroundIsolate.start(dispatcherHandle, handlerHandle, events);
+      }
+      break;
+      case "stopBackgroundIsolate": {
+        mBackgroundIsolate.stop();
+      }
+      break;
+      case "getBackgroundIsolateStats": {
+        result.success(mBackgroundIsolate.getStats());
+      }
+      break;
+      case "getEventQueueStats": {
+        boolean reset = call.argument("reset");
+        result.success(mEventDispatcher.getQueueStats(reset));
+      }
+      break;
+
       default:
         result.notImplemented();
     }
   }
 
-  private VideoEncoderConfiguration.ORIENTATION_MODE orientationFromValue(int value) {
-    switch (value) {
-      case 0:
-        return VideoEncoderConfiguration.ORIENTATION_MODE.ORIENTATION_MODE_ADAPTIVE;
-      case 1:
-        return VideoEncoderConfiguration.ORIENTATION_MODE.ORIENTATION_MODE_FIXED_LANDSCAPE;
-      case 2:
-        return VideoEncoderConfiguration.ORIENTATION_MODE.ORIENTATION_MODE_FIXED_PORTRAIT;
-      default:
-        return VideoEncoderConfiguration.ORIENTATION_MODE.ORIENTATION_MODE_ADAPTIVE;
+  private final AgoraEnginePrewarmer.Listener mEnginePrewarmListener = new AgoraEnginePrewarmer.Listener() {
+    @Override
+    public void onPrewarmed(String appId, long elapsed, Exception error) {
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_ENGINE_PREWARMED)) {
+        return;
+      }
+      HashMap<String, Object> map = new HashMap<>();
+      map.put("appId", appId);
+      map.put("elapsed", elapsed);
+      map.put("error", (error != null) ? error.toString() : null);
+      invokeMethod("onEnginePrewarmed", map);
     }
-  }
+  };
 
   private final IRtcEngineEventHandler mRtcEventHandler = new IRtcEngineEventHandler() {
     @Override
     public void onWarning(int warn) {
       super.onWarning(warn);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_WARNING)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("warn", warn);
       invokeMethod("onWarning", map);
@@ -379,6 +1241,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onError(int err) {
       super.onError(err);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_ERROR)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("err", err);
       invokeMethod("onError", map);
@@ -387,6 +1252,11 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onJoinChannelSuccess(String channel, int uid, int elapsed) {
       super.onJoinChannelSuccess(channel, uid, elapsed);
+      mStateMirror.set(AgoraStateMirror.CHANNEL_ID, channel);
+      mStateMirror.set(AgoraStateMirror.UID, uid);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_JOIN_CHANNEL_SUCCESS)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("channel", channel);
       map.put("uid", uid);
@@ -397,6 +1267,11 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onRejoinChannelSuccess(String channel, int uid, int elapsed) {
       super.onRejoinChannelSuccess(channel, uid, elapsed);
+      mStateMirror.set(AgoraStateMirror.CHANNEL_ID, channel);
+      mStateMirror.set(AgoraStateMirror.UID, uid);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_REJOIN_CHANNEL_SUCCESS)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("channel", channel);
       map.put("uid", uid);
@@ -407,14 +1282,33 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onLeaveChannel(RtcStats stats) {
       super.onLeaveChannel(stats);
+      mStatsAggregator.clear();
+      mVolumeIndicationFilter.reset();
+      mStatsDeltaEncoder.reset();
+      mStateMirror.leaveChannel();
+      mStreamSelector.reset();
+      mSubscriptionAllocator.clear();
+      runOnEngineThread(new Runnable() {
+        @Override
+        public void run() {
+          clearChannelRemoteVideoState();
+        }
+      });
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_LEAVE_CHANNEL)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
-      map.put("stats", mapFromStats(stats));
+      map.put("stats", AgoraMarshalling.mapFromStats(stats));
       invokeMethod("onLeaveChannel", map);
     }
 
     @Override
     public void onClientRoleChanged(int oldRole, int newRole) {
       super.onClientRoleChanged(oldRole, newRole);
+      mStateMirror.set(AgoraStateMirror.CLIENT_ROLE, newRole);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_CLIENT_ROLE_CHANGED)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("oldRole", oldRole);
       map.put("newRole", newRole);
@@ -422,8 +1316,21 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     }
 
     @Override
-    public void onUserJoined(int uid, int elapsed) {
+    public void onUserJoined(final int uid, int elapsed) {
       super.onUserJoined(uid, elapsed);
+      mStateMirror.addUid(uid);
+      mSubscriptionAllocator.addUid(uid);
+      runOnEngineThread(new Runnable() {
+        @Override
+        public void run() {
+          if (mRemoteVideoMuteReasons.get(uid) != 0) {
+            applyRemoteVideoMute(uid, false);
+          }
+        }
+      });
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_USER_JOINED)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("uid", uid);
       map.put("elapsed", elapsed);
@@ -431,8 +1338,24 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     }
 
     @Override
-    public void onUserOffline(int uid, int reason) {
+    public void onUserOffline(final int uid, int reason) {
       super.onUserOffline(uid, reason);
+      mStatsAggregator.removeUid(uid);
+      mVolumeIndicationFilter.removeUid(uid);
+      mStatsDeltaEncoder.removeUid(uid);
+      mStateMirror.removeUid(uid);
+      mSubscriptionAllocator.removeUid(uid);
+      runOnEngineThread(new Runnable() {
+        @Override
+        public void run() {
+          // The allocation starts over if the user joins again.
+          mAllocatedStreamTypes.delete(uid);
+          dropRemoteVideoMuteReasons(uid, REMOTE_VIDEO_OVER_BUDGET);
+        }
+      });
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_USER_OFFLINE)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("uid", uid);
       map.put("reason", reason);
@@ -442,6 +1365,11 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onConnectionStateChanged(int state, int reason) {
       super.onConnectionStateChanged(state, reason);
+      mStateMirror.set(AgoraStateMirror.CONNECTION_STATE, state);
+      mStateMirror.set(AgoraStateMirror.CONNECTION_CHANGED_REASON, reason);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_CONNECTION_STATE_CHANGED)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("state", state);
       map.put("reason", reason);
@@ -451,12 +1379,18 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onConnectionLost() {
       super.onConnectionLost();
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_CONNECTION_LOST)) {
+        return;
+      }
       invokeMethod("onConnectionLost", null);
     }
 
     @Override
     public void onNetworkTypeChanged (int type) {
       super.onNetworkTypeChanged(type);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_NETWORK_TYPE_CHANGED)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("type", type);
       invokeMethod("onNetworkTypeChanged", map);
@@ -465,6 +1399,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onApiCallExecuted(int error, String api, String result) {
       super.onApiCallExecuted(error, api, result);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_API_CALL_EXECUTED)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("error", error);
       map.put("api", api);
@@ -475,6 +1412,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onTokenPrivilegeWillExpire(String token) {
       super.onTokenPrivilegeWillExpire(token);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_TOKEN_PRIVILEGE_WILL_EXPIRE)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("token", token);
       invokeMethod("onTokenPrivilegeWillExpire", map);
@@ -483,12 +1423,18 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onRequestToken() {
       super.onRequestToken();
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_REQUEST_TOKEN)) {
+        return;
+      }
       invokeMethod("onRequestToken", null);
     }
 
     @Override
     public void onMicrophoneEnabled(boolean enabled) {
       super.onMicrophoneEnabled(enabled);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_MICROPHONE_ENABLED)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("enabled", enabled);
       invokeMethod("onMicrophoneEnabled", map);
@@ -497,15 +1443,43 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onAudioVolumeIndication(AudioVolumeInfo[] speakers, int totalVolume) {
       super.onAudioVolumeIndication(speakers, totalVolume);
+      if (speakers != null && mSubscriptionAllocator.isEnabled()) {
+        mSubscriptionAllocator.recordVolumes(speakers);
+      }
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_AUDIO_VOLUME_INDICATION)) {
+        return;
+      }
+      if (mVolumeIndicationFilter.isEnabled()) {
+        int[] packed = mVolumeIndicationFilter.filter(speakers, totalVolume);
+        if (packed == null || (!mEventDispatcher.isRoutedToBackground(AgoraEvents.ON_AUDIO_VOLUME_INDICATION) && mBinaryEventChannel.writeAudioVolumeIndication(packed))) {
+          return;
+        }
+        HashMap<String, Object> map = new HashMap<>();
+        map.put("packed", packed);
+        invokeMethod("onAudioVolumeIndication", map, volumeIndicationKey(speakers));
+        return;
+      }
+      if (!mEventDispatcher.isRoutedToBackground(AgoraEvents.ON_AUDIO_VOLUME_INDICATION) && mBinaryEventChannel.writeAudioVolumeIndication(speakers, totalVolume)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("totalVolume", totalVolume);
-      map.put("speakers", arrayFromSpeakers(speakers));
-      invokeMethod("onAudioVolumeIndication", map);
+      map.put("speakers", AgoraMarshalling.arrayFromSpeakers(speakers));
+      invokeMethod("onAudioVolumeIndication", map, volumeIndicationKey(speakers));
+    }
+
+    /** The local and the remote volume indications are coalesced separately. */
+    private int volumeIndicationKey(AudioVolumeInfo[] speakers) {
+      return (speakers != null && speakers.length == 1 && speakers[0].uid == 0) ? 0 : 1;
     }
 
     @Override
     public void onActiveSpeaker(int uid) {
       super.onActiveSpeaker(uid);
+      mSubscriptionAllocator.recordActiveSpeaker(uid);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_ACTIVE_SPEAKER)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("uid", uid);
       invokeMethod("onActiveSpeaker", map);
@@ -514,6 +1488,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onFirstLocalAudioFrame(int elapsed) {
       super.onFirstLocalAudioFrame(elapsed);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_FIRST_LOCAL_AUDIO_FRAME)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("elapsed", elapsed);
       invokeMethod("onFirstLocalAudioFrame", map);
@@ -522,6 +1499,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onFirstRemoteAudioFrame(int uid, int elapsed) {
       super.onFirstRemoteAudioFrame(uid, elapsed);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_FIRST_REMOTE_AUDIO_FRAME)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("uid", uid);
       map.put("elapsed", elapsed);
@@ -531,6 +1511,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onFirstRemoteAudioDecoded(int uid, int elapsed) {
       super.onFirstRemoteAudioDecoded(uid, elapsed);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_FIRST_REMOTE_AUDIO_DECODED)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("uid", uid);
       map.put("elapsed", elapsed);
@@ -540,6 +1523,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onFirstLocalVideoFrame(int width, int height, int elapsed) {
       super.onFirstLocalVideoFrame(width, height, elapsed);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_FIRST_LOCAL_VIDEO_FRAME)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("width", width);
       map.put("height", height);
@@ -550,6 +1536,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onFirstRemoteVideoDecoded(int uid, int width, int height, int elapsed) {
       super.onFirstRemoteVideoDecoded(uid, width, height, elapsed);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_FIRST_REMOTE_VIDEO_DECODED)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("uid", uid);
       map.put("width", width);
@@ -561,6 +1550,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onFirstRemoteVideoFrame(int uid, int width, int height, int elapsed) {
       super.onFirstRemoteVideoFrame(uid, width, height, elapsed);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_FIRST_REMOTE_VIDEO_FRAME)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("uid", uid);
       map.put("width", width);
@@ -572,6 +1564,10 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onUserMuteAudio(int uid, boolean muted) {
       super.onUserMuteAudio(uid, muted);
+      mStateMirror.setRemote(uid, AgoraStateMirror.USER_MUTED_AUDIO, muted);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_USER_MUTE_AUDIO)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("uid", uid);
       map.put("muted", muted);
@@ -581,6 +1577,10 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onUserMuteVideo(int uid, boolean muted) {
       super.onUserMuteVideo(uid, muted);
+      mStateMirror.setRemote(uid, AgoraStateMirror.USER_MUTED_VIDEO, muted);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_USER_MUTE_VIDEO)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("uid", uid);
       map.put("muted", muted);
@@ -590,6 +1590,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onUserEnableVideo(int uid, boolean enabled) {
       super.onUserEnableVideo(uid, enabled);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_USER_ENABLE_VIDEO)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("uid", uid);
       map.put("enabled", enabled);
@@ -599,6 +1602,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onUserEnableLocalVideo(int uid, boolean enabled) {
       super.onUserEnableLocalVideo(uid, enabled);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_USER_ENABLE_LOCAL_VIDEO)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("uid", uid);
       map.put("enabled", enabled);
@@ -608,6 +1614,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onVideoSizeChanged(int uid, int width, int height, int rotation) {
       super.onVideoSizeChanged(uid, width, height, rotation);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_VIDEO_SIZE_CHANGED)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("uid", uid);
       map.put("width", width);
@@ -619,6 +1628,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onRemoteVideoStateChanged(int uid, int state) {
       super.onRemoteVideoStateChanged(uid, state);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_REMOTE_VIDEO_STATE_CHANGED)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("uid", uid);
       map.put("state", state);
@@ -628,6 +1640,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onLocalPublishFallbackToAudioOnly(boolean isFallbackOrRecover) {
       super.onLocalPublishFallbackToAudioOnly(isFallbackOrRecover);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_LOCAL_PUBLISH_FALLBACK_TO_AUDIO_ONLY)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("isFallbackOrRecover", isFallbackOrRecover);
       invokeMethod("onLocalPublishFallbackToAudioOnly", map);
@@ -636,6 +1651,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onRemoteSubscribeFallbackToAudioOnly(int uid, boolean isFallbackOrRecover) {
       super.onRemoteSubscribeFallbackToAudioOnly(uid, isFallbackOrRecover);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_REMOTE_SUBSCRIBE_FALLBACK_TO_AUDIO_ONLY)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("uid", uid);
       map.put("isFallbackOrRecover", isFallbackOrRecover);
@@ -645,6 +1663,11 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onAudioRouteChanged(int routing) {
       super.onAudioRouteChanged(routing);
+      mStateMirror.set(AgoraStateMirror.AUDIO_ROUTE, routing);
+      mStateMirror.set(AgoraStateMirror.SPEAKERPHONE_ENABLED, routing == Constants.AUDIO_ROUTE_SPEAKERPHONE);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_AUDIO_ROUTE_CHANGED)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("routing", routing);
       invokeMethod("onAudioRouteChanged", map);
@@ -653,6 +1676,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onCameraFocusAreaChanged(Rect rect) {
       super.onCameraFocusAreaChanged(rect);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_CAMERA_FOCUS_AREA_CHANGED)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("rect", mapFromRect(rect));
       invokeMethod("onCameraFocusAreaChanged", map);
@@ -661,6 +1687,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onCameraExposureAreaChanged(Rect rect) {
       super.onCameraExposureAreaChanged(rect);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_CAMERA_EXPOSURE_AREA_CHANGED)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("rect", mapFromRect(rect));
       invokeMethod("onCameraExposureAreaChanged", map);
@@ -669,14 +1698,32 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onRtcStats(RtcStats stats) {
       super.onRtcStats(stats);
+      if (mEncoderTuner.isEnabled()) {
+        mEncoderTuner.recordRtcStats(stats);
+      }
+      if (mSubscriptionAllocator.isEnabled()) {
+        mSubscriptionAllocator.recordRtcStats(stats);
+      }
+      if (mStatsAggregator.isEnabled()) {
+        mStatsAggregator.recordRtcStats(stats);
+      }
+      if (!mStatsAggregator.isForwardingRawStats() || !mEventDispatcher.isSubscribed(AgoraEvents.ON_RTC_STATS)) {
+        return;
+      }
+      if (!mEventDispatcher.isRoutedToBackground(AgoraEvents.ON_RTC_STATS) && mBinaryEventChannel.writeRtcStats(stats)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
-      map.put("stats", mapFromStats(stats));
+      map.put("stats", mStatsDeltaEncoder.isEnabled() ? mStatsDeltaEncoder.encodeRtcStats(stats) : AgoraMarshalling.mapFromStats(stats));
       invokeMethod("onRtcStats", map);
     }
 
     @Override
     public void onLastmileQuality(int quality) {
       super.onLastmileQuality(quality);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_LASTMILE_QUALITY)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("quality", quality);
       invokeMethod("onLastmileQuality", map);
@@ -685,62 +1732,118 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onNetworkQuality(int uid, int txQuality, int rxQuality) {
       super.onNetworkQuality(uid, txQuality, rxQuality);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_NETWORK_QUALITY)) {
+        return;
+      }
+      if (!mEventDispatcher.isRoutedToBackground(AgoraEvents.ON_NETWORK_QUALITY) && mBinaryEventChannel.writeNetworkQuality(uid, txQuality, rxQuality)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("uid", uid);
       map.put("txQuality", txQuality);
       map.put("rxQuality", rxQuality);
-      invokeMethod("onNetworkQuality", map);
+      invokeMethod("onNetworkQuality", map, uid);
     }
 
     @Override
     public void onLocalVideoStats(LocalVideoStats stats) {
       super.onLocalVideoStats(stats);
+      if (mEncoderTuner.isEnabled()) {
+        mEncoderTuner.recordLocalVideoStats(stats);
+      }
+      if (mStatsAggregator.isEnabled()) {
+        mStatsAggregator.recordLocalVideoStats(stats);
+      }
+      if (!mStatsAggregator.isForwardingRawStats() || !mEventDispatcher.isSubscribed(AgoraEvents.ON_LOCAL_VIDEO_STATS)) {
+        return;
+      }
+      if (!mEventDispatcher.isRoutedToBackground(AgoraEvents.ON_LOCAL_VIDEO_STATS) && mBinaryEventChannel.writeLocalVideoStats(stats)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
-      map.put("stats", mapFromLocalVideoStats(stats));
+      map.put("stats", mStatsDeltaEncoder.isEnabled() ? mStatsDeltaEncoder.encodeLocalVideoStats(stats) : AgoraMarshalling.mapFromLocalVideoStats(stats));
       invokeMethod("onLocalVideoStats", map);
     }
 
     @Override
     public void onRemoteVideoStats(RemoteVideoStats stats) {
       super.onRemoteVideoStats(stats);
+      if (mSubscriptionAllocator.isEnabled()) {
+        mSubscriptionAllocator.recordRemoteVideoStats(stats);
+      }
+      if (mStatsAggregator.isEnabled()) {
+        mStatsAggregator.recordRemoteVideoStats(stats);
+      }
+      if (!mStatsAggregator.isForwardingRawStats() || !mEventDispatcher.isSubscribed(AgoraEvents.ON_REMOTE_VIDEO_STATS)) {
+        return;
+      }
+      if (!mEventDispatcher.isRoutedToBackground(AgoraEvents.ON_REMOTE_VIDEO_STATS) && mBinaryEventChannel.writeRemoteVideoStats(stats)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
-      map.put("stats", mapFromRemoteVideoStats(stats));
-      invokeMethod("onRemoteVideoStats", map);
+      map.put("stats", mStatsDeltaEncoder.isEnabled() ? mStatsDeltaEncoder.encodeRemoteVideoStats(stats) : AgoraMarshalling.mapFromRemoteVideoStats(stats));
+      invokeMethod("onRemoteVideoStats", map, stats.uid);
     }
 
     @Override
     public void onRemoteAudioStats(RemoteAudioStats stats) {
       super.onRemoteAudioStats(stats);
+      if (mStatsAggregator.isEnabled()) {
+        mStatsAggregator.recordRemoteAudioStats(stats);
+      }
+      if (!mStatsAggregator.isForwardingRawStats() || !mEventDispatcher.isSubscribed(AgoraEvents.ON_REMOTE_AUDIO_STATS)) {
+        return;
+      }
+      if (!mEventDispatcher.isRoutedToBackground(AgoraEvents.ON_REMOTE_AUDIO_STATS) && mBinaryEventChannel.writeRemoteAudioStats(stats)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
-      map.put("stats", mapFromRemoteAudioStats(stats));
-      invokeMethod("onRemoteAudioStats", map);
+      map.put("stats", AgoraMarshalling.mapFromRemoteAudioStats(stats));
+      invokeMethod("onRemoteAudioStats", map, stats.uid);
     }
 
     @Override
     public void onRemoteAudioTransportStats(int uid, int delay, int lost, int rxKBitRate) {
       super.onRemoteAudioTransportStats(uid, delay, lost, rxKBitRate);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_REMOTE_AUDIO_TRANSPORT_STATS)) {
+        return;
+      }
+      if (!mEventDispatcher.isRoutedToBackground(AgoraEvents.ON_REMOTE_AUDIO_TRANSPORT_STATS) && mBinaryEventChannel.writeTransportStats(
+          AgoraBinaryEventChannel.EVENT_REMOTE_AUDIO_TRANSPORT_STATS, uid, delay, lost, rxKBitRate)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("uid", uid);
       map.put("delay", delay);
       map.put("lost", lost);
       map.put("rxKBitRate", rxKBitRate);
-      invokeMethod("onRemoteAudioTransportStats", map);
+      invokeMethod("onRemoteAudioTransportStats", map, uid);
     }
 
     @Override
     public void onRemoteVideoTransportStats(int uid, int delay, int lost, int rxKBitRate) {
       super.onRemoteVideoTransportStats(uid, delay, lost, rxKBitRate);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_REMOTE_VIDEO_TRANSPORT_STATS)) {
+        return;
+      }
+      if (!mEventDispatcher.isRoutedToBackground(AgoraEvents.ON_REMOTE_VIDEO_TRANSPORT_STATS) && mBinaryEventChannel.writeTransportStats(
+          AgoraBinaryEventChannel.EVENT_REMOTE_VIDEO_TRANSPORT_STATS, uid, delay, lost, rxKBitRate)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("uid", uid);
       map.put("delay", delay);
       map.put("lost", lost);
       map.put("rxKBitRate", rxKBitRate);
-      invokeMethod("onRemoteVideoTransportStats", map);
+      invokeMethod("onRemoteVideoTransportStats", map, uid);
     }
 
     @Override
     public void onLocalVideoStateChanged(int localVideoState, int error) {
       super.onLocalVideoStateChanged(localVideoState, error);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_LOCAL_VIDEO_STATE_CHANGED)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("localVideoState", localVideoState);
       map.put("error", error);
@@ -750,6 +1853,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onAudioEffectFinished(int soundId) {
       super.onAudioEffectFinished(soundId);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_AUDIO_EFFECT_FINISHED)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("soundId", soundId);
       invokeMethod("onAudioEffectFinished", map);
@@ -758,6 +1864,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onStreamPublished(String url, int error) {
       super.onStreamPublished(url, error);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_STREAM_PUBLISHED)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("url", url);
       map.put("error", error);
@@ -767,6 +1876,9 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onStreamUnpublished(String url) {
       super.onStreamUnpublished(url);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_STREAM_UNPUBLISHED)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("url", url);
       invokeMethod("onStreamUnpublished", map);
@@ -775,12 +1887,18 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onTranscodingUpdated() {
       super.onTranscodingUpdated();
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_TRANSCODING_UPDATED)) {
+        return;
+      }
       invokeMethod("onTranscodingUpdated", null);
     }
 
     @Override
     public void onStreamInjectedStatus(String url, int uid, int status) {
       super.onStreamInjectedStatus(url, uid, status);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_STREAM_INJECTED_STATUS)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("url", url);
       map.put("uid", uid);
@@ -789,23 +1907,28 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     }
 
     @Override
-    public void onStreamMessage(int uid, int streamId, byte[] data) {
+    public void onStreamMessage(final int uid, final int streamId, byte[] data) {
       super.onStreamMessage(uid, streamId, data);
-      try {
-        String message = new String(data, "UTF-8");
-        HashMap<String, Object> map = new HashMap<>();
-        map.put("streamId", streamId);
-        map.put("uid", uid);
-        map.put("message", message);
-        invokeMethod("onStreamMessage", map);
-      } catch (Exception e) {
-          e.printStackTrace();
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_STREAM_MESSAGE)) {
+        return;
+      }
+      if (mUnpackStreamMessages && AgoraDataStreamSender.unpack(data, new AgoraDataStreamSender.MessageHandler() {
+        @Override
+        public void onMessage(byte[] message) {
+          sendStreamMessageEvent(uid, streamId, message);
+        }
+      })) {
+        return;
       }
+      sendStreamMessageEvent(uid, streamId, data);
     }
 
     @Override
     public void onStreamMessageError(int uid, int streamId, int error, int missed, int cached) {
       super.onStreamMessageError(uid, streamId, error, missed, cached);
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_STREAM_MESSAGE_ERROR)) {
+        return;
+      }
       HashMap<String, Object> map = new HashMap<>();
       map.put("uid", uid);
       map.put("streamId", streamId);
@@ -818,33 +1941,21 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
     @Override
     public void onMediaEngineLoadSuccess() {
       super.onMediaEngineLoadSuccess();
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_MEDIA_ENGINE_LOAD_SUCCESS)) {
+        return;
+      }
       invokeMethod("onMediaEngineLoadSuccess", null);
     }
 
     @Override
     public void onMediaEngineStartCallSuccess() {
       super.onMediaEngineStartCallSuccess();
+      if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_MEDIA_ENGINE_START_CALL_SUCCESS)) {
+        return;
+      }
       invokeMethod("onMediaEngineStartCallSuccess", null);
     }
 
-    private HashMap<String, Object> mapFromStats(RtcStats stats) {
-      HashMap<String, Object> map = new HashMap<>();
-      map.put("duration", stats.totalDuration);
-      map.put("txBytes", stats.txBytes);
-      map.put("rxBytes", stats.rxBytes);
-      map.put("txAudioKBitrate", stats.txAudioKBitRate);
-      map.put("rxAudioKBitrate", stats.rxAudioKBitRate);
-      map.put("txVideoKBitrate", stats.txVideoKBitRate);
-      map.put("rxVideoKBitrate", stats.rxVideoKBitRate);
-      map.put("txPacketLossRate", stats.txPacketLossRate);
-      map.put("rxPacketLossRate", stats.rxPacketLossRate);
-      map.put("lastmileDelay", stats.lastmileDelay);
-      map.put("userCount", stats.users);
-      map.put("cpuAppUsage", stats.cpuAppUsage);
-      map.put("cpuTotalUsage", stats.cpuTotalUsage);
-      return map;
-    }
-
     private HashMap<String, Object> mapFromRect(Rect rect) {
       HashMap<String, Object> map = new HashMap<>();
 
@@ -854,101 +1965,97 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
       map.put("height", rect.height());
       return map;
     }
+  };
 
-    private HashMap<String, Object> mapFromLocalVideoStats(LocalVideoStats stats) {
-      HashMap<String, Object> map = new HashMap<>();
-      map.put("sentBitrate", stats.sentBitrate);
-      map.put("sentFrameRate", stats.sentFrameRate);
-      map.put("encoderOutputFrameRate", stats.encoderOutputFrameRate);
-      map.put("rendererOutputFrameRate", stats.rendererOutputFrameRate);
-      return map;
-    }
-
-    private HashMap<String, Object> mapFromRemoteVideoStats(RemoteVideoStats stats) {
-      HashMap<String, Object> map = new HashMap<>();
-      map.put("uid", stats.uid);
-      map.put("width", stats.width);
-      map.put("height", stats.height);
-      map.put("receivedBitrate", stats.receivedBitrate);
-      map.put("decoderOutputFrameRate", stats.decoderOutputFrameRate);
-      map.put("rendererOutputFrameRate", stats.rendererOutputFrameRate);
-      map.put("rxStreamType", stats.rxStreamType);
-      return map;
+  private void sendStreamMessageEvent(int uid, int streamId, byte[] data) {
+    HashMap<String, Object> map = new HashMap<>();
+    map.put("streamId", streamId);
+    map.put("uid", uid);
+    if (mStreamMessageText) {
+      map.put("message", new String(data, UTF_8));
+    } else {
+      map.put("data", data);
     }
+    invokeMethod("onStreamMessage", map);
+  }
 
-    private HashMap<String, Object> mapFromRemoteAudioStats(RemoteAudioStats stats) {
-      HashMap<String, Object> map = new HashMap<>();
-      map.put("uid", stats.uid);
-      map.put("quality", stats.quality);
-      map.put("networkTransportDelay", stats.networkTransportDelay);
-      map.put("jitterBufferDelay", stats.jitterBufferDelay);
-      map.put("audioLossRate", stats.audioLossRate);
-      return map;
-    }
-
-    private ArrayList<HashMap<String, Object>> arrayFromSpeakers(AudioVolumeInfo[] speakers) {
-      ArrayList<HashMap<String, Object>> list = new ArrayList<>();
-
-        for (AudioVolumeInfo info: speakers) {
-            HashMap<String, Object> map = new HashMap<>();
-            map.put("uid", info.uid);
-            map.put("volume", info.volume);
-
-            list.add(map);
-        }
-
-      return list;
-    }
-  };
+  private void invokeMethod(final String method, final HashMap map) {
+    mEventDispatcher.dispatch(method, map);
+  }
 
-  private BeautyOptions beautyOptionsFromMap(HashMap<String, Object> map) {
-    BeautyOptions options = new BeautyOptions();
-    options.lighteningContrastLevel = ((Double)(map.get("lighteningContrastLevel"))).intValue();
-    options.lighteningLevel = ((Double)(map.get("lighteningLevel"))).floatValue();
-    options.smoothnessLevel = ((Double)(map.get("smoothnessLevel"))).floatValue();
-    options.rednessLevel = ((Double)(map.get("rednessLevel"))).floatValue();
-    return options;
+  /** Invokes a periodic event; key tells apart the events the bounded queue coalesces. */
+  private void invokeMethod(final String method, final HashMap map, int key) {
+    mEventDispatcher.dispatch(method, map, key);
   }
 
-  private VideoEncoderConfiguration videoEncoderConfigurationFromMap(HashMap<String, Object> map) {
-    int width = (int)(map.get("width"));
-    int height = (int)(map.get("height"));
-    int frameRate = (int)(map.get("frameRate"));
-    int bitrate = (int)(map.get("bitrate"));
-    int minBitrate = (int)(map.get("minBitrate"));
-    int orientationMode = (int)(map.get("orientationMode"));
+  /** Collects the result of one call of a batch; batched calls complete synchronously. */
+  private static class BatchedResult implements MethodChannel.Result {
+    private Object mValue;
+    private String mErrorCode;
+    private String mErrorMessage;
+    private Object mErrorDetails;
 
-    VideoEncoderConfiguration configuration = new VideoEncoderConfiguration();
-    configuration.dimensions = new VideoEncoderConfiguration.VideoDimensions(width, height);
-    configuration.frameRate = frameRate;
-    configuration.bitrate = bitrate;
-    configuration.minBitrate = minBitrate;
-    configuration.orientationMode = orientationFromValue(orientationMode);
+    @Override
+    public void success(Object result) {
+      mValue = result;
+    }
 
-    return configuration;
-  }
+    @Override
+    public void error(String errorCode, String errorMessage, Object errorDetails) {
+      mErrorCode = errorCode;
+      mErrorMessage = errorMessage;
+      mErrorDetails = errorDetails;
+    }
 
-  private void invokeMethod(final String method, final HashMap map) {
-    mEventHandler.post(new Runnable() {
-      @Override
-      public void run() {
-        mMethodChannel.invokeMethod(method, map);
-      }
-    });
+    @Override
+    public void notImplemented() {
+      error("notImplemented", "Method not implemented", null);
+    }
   }
 
   private static class MethodResultWrapper implements MethodChannel.Result {
     private MethodChannel.Result mResult;
     private Handler mHandler;
+    private AgoraPluginMetrics mMetrics;
+    private boolean mReplied;
 
-    MethodResultWrapper(MethodChannel.Result result, Handler handler) {
+    MethodResultWrapper(MethodChannel.Result result, Handler handler, AgoraPluginMetrics metrics) {
       this.mResult = result;
       this.mHandler = handler;
+      this.mMetrics = metrics;
+    }
+
+    boolean isReplied() {
+      return mReplied;
+    }
+
+    private boolean isMainThread() {
+      return Looper.myLooper() == Looper.getMainLooper();
+    }
+
+    private void postReply(final Runnable reply) {
+      final long postTime = mMetrics.onMainThreadMessagePosted();
+      if (postTime == 0) {
+        mHandler.post(reply);
+        return;
+      }
+      mHandler.post(new Runnable() {
+        @Override
+        public void run() {
+          mMetrics.onMainThreadMessageRun(postTime, false);
+          reply.run();
+        }
+      });
     }
 
     @Override
     public void success(final Object result) {
-      mHandler.post(new Runnable() {
+      mReplied = true;
+      if (isMainThread()) {
+        mResult.success(result);
+        return;
+      }
+      postReply(new Runnable() {
         @Override
         public void run() {
           mResult.success(result);
@@ -958,7 +2065,12 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
 
     @Override
     public void error(final String errorCode, final String errorMessage, final Object errorDetails) {
-      mHandler.post(new Runnable() {
+      mReplied = true;
+      if (isMainThread()) {
+        mResult.error(errorCode, errorMessage, errorDetails);
+        return;
+      }
+      postReply(new Runnable() {
         @Override
         public void run() {
           mResult.error(errorCode, errorMessage, errorDetails);
@@ -968,7 +2080,12 @@ public class AgoraRtcEnginePlugin implements MethodCallHandler {
 
     @Override
     public void notImplemented() {
-      mHandler.post(new Runnable() {
+      mReplied = true;
+      if (isMainThread()) {
+        mResult.notImplemented();
+        return;
+      }
+      postReply(new Runnable() {
         @Override
         public void run() {
           mResult.notImplemented();
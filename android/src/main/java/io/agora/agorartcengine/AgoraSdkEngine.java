@@ -0,0 +1,289 @@
+package io.agora.agorartcengine;
+
+import android.content.Context;
+
+import io.agora.rtc.IAudioFrameObserver;
+import io.agora.rtc.IRtcEngineEventHandler;
+import io.agora.rtc.RtcEngine;
+import io.agora.rtc.mediaio.IVideoSink;
+import io.agora.rtc.video.BeautyOptions;
+import io.agora.rtc.video.VideoCanvas;
+import io.agora.rtc.video.VideoEncoderConfiguration;
+
+/** Forwards the engine methods to the Agora SDK. */
+final class AgoraSdkEngine implements AgoraEngine {
+  private final RtcEngine mRtcEngine;
+
+  private AgoraSdkEngine(RtcEngine rtcEngine) {
+    this.mRtcEngine = rtcEngine;
+  }
+
+  static AgoraSdkEngine create(Context context, String appId, IRtcEngineEventHandler handler) throws Exception {
+    return new AgoraSdkEngine(RtcEngine.create(context, appId, handler));
+  }
+
+  @Override
+  public void destroy() {
+    RtcEngine.destroy();
+  }
+
+  @Override
+  public int setChannelProfile(int profile) {
+    return mRtcEngine.setChannelProfile(profile);
+  }
+
+  @Override
+  public int setClientRole(int role) {
+    return mRtcEngine.setClientRole(role);
+  }
+
+  @Override
+  public int joinChannel(String token, String channelName, String optionalInfo, int optionalUid) {
+    return mRtcEngine.joinChannel(token, channelName, optionalInfo, optionalUid);
+  }
+
+  @Override
+  public int leaveChannel() {
+    return mRtcEngine.leaveChannel();
+  }
+
+  @Override
+  public int renewToken(String token) {
+    return mRtcEngine.renewToken(token);
+  }
+
+  @Override
+  public int enableWebSdkInteroperability(boolean enabled) {
+    return mRtcEngine.enableWebSdkInteroperability(enabled);
+  }
+
+  @Override
+  public int getConnectionState() {
+    return mRtcEngine.getConnectionState();
+  }
+
+  @Override
+  public int enableAudio() {
+    return mRtcEngine.enableAudio();
+  }
+
+  @Override
+  public int disableAudio() {
+    return mRtcEngine.disableAudio();
+  }
+
+  @Override
+  public int setAudioProfile(int profile, int scenario) {
+    return mRtcEngine.setAudioProfile(profile, scenario);
+  }
+
+  @Override
+  public int adjustRecordingSignalVolume(int volume) {
+    return mRtcEngine.adjustRecordingSignalVolume(volume);
+  }
+
+  @Override
+  public int adjustPlaybackSignalVolume(int volume) {
+    return mRtcEngine.adjustPlaybackSignalVolume(volume);
+  }
+
+  @Override
+  public int enableAudioVolumeIndication(int interval, int smooth) {
+    return mRtcEngine.enableAudioVolumeIndication(interval, smooth);
+  }
+
+  @Override
+  public int enableLocalAudio(boolean enabled) {
+    return mRtcEngine.enableLocalAudio(enabled);
+  }
+
+  @Override
+  public int muteLocalAudioStream(boolean muted) {
+    return mRtcEngine.muteLocalAudioStream(muted);
+  }
+
+  @Override
+  public int muteRemoteAudioStream(int uid, boolean muted) {
+    return mRtcEngine.muteRemoteAudioStream(uid, muted);
+  }
+
+  @Override
+  public int muteAllRemoteAudioStreams(boolean muted) {
+    return mRtcEngine.muteAllRemoteAudioStreams(muted);
+  }
+
+  @Override
+  public int setDefaultMuteAllRemoteAudioStreams(boolean muted) {
+    return mRtcEngine.setDefaultMuteAllRemoteAudioStreams(muted);
+  }
+
+  @Override
+  public int setBeautyEffectOptions(boolean enabled, BeautyOptions options) {
+    return mRtcEngine.setBeautyEffectOptions(enabled, options);
+  }
+
+  @Override
+  public int enableVideo() {
+    return mRtcEngine.enableVideo();
+  }
+
+  @Override
+  public int disableVideo() {
+    return mRtcEngine.disableVideo();
+  }
+
+  @Override
+  public int setVideoEncoderConfiguration(VideoEncoderConfiguration config) {
+    return mRtcEngine.setVideoEncoderConfiguration(config);
+  }
+
+  @Override
+  public int setupLocalVideo(VideoCanvas local) {
+    return mRtcEngine.setupLocalVideo(local);
+  }
+
+  @Override
+  public int setupRemoteVideo(VideoCanvas remote) {
+    return mRtcEngine.setupRemoteVideo(remote);
+  }
+
+  @Override
+  public int setLocalVideoRenderer(IVideoSink render) {
+    return mRtcEngine.setLocalVideoRenderer(render);
+  }
+
+  @Override
+  public int setRemoteVideoRenderer(int uid, IVideoSink render) {
+    return mRtcEngine.setRemoteVideoRenderer(uid, render);
+  }
+
+  @Override
+  public int setLocalRenderMode(int mode) {
+    return mRtcEngine.setLocalRenderMode(mode);
+  }
+
+  @Override
+  public int setRemoteRenderMode(int uid, int mode) {
+    return mRtcEngine.setRemoteRenderMode(uid, mode);
+  }
+
+  @Override
+  public int startPreview() {
+    return mRtcEngine.startPreview();
+  }
+
+  @Override
+  public int stopPreview() {
+    return mRtcEngine.stopPreview();
+  }
+
+  @Override
+  public int enableLocalVideo(boolean enabled) {
+    return mRtcEngine.enableLocalVideo(enabled);
+  }
+
+  @Override
+  public int muteLocalVideoStream(boolean muted) {
+    return mRtcEngine.muteLocalVideoStream(muted);
+  }
+
+  @Override
+  public int muteRemoteVideoStream(int uid, boolean muted) {
+    return mRtcEngine.muteRemoteVideoStream(uid, muted);
+  }
+
+  @Override
+  public int muteAllRemoteVideoStreams(boolean muted) {
+    return mRtcEngine.muteAllRemoteVideoStreams(muted);
+  }
+
+  @Override
+  public int setDefaultMuteAllRemoteVideoStreams(boolean muted) {
+    return mRtcEngine.setDefaultMuteAllRemoteVideoStreams(muted);
+  }
+
+  @Override
+  public int setDefaultAudioRoutetoSpeakerphone(boolean defaultToSpeaker) {
+    return mRtcEngine.setDefaultAudioRoutetoSpeakerphone(defaultToSpeaker);
+  }
+
+  @Override
+  public int setEnableSpeakerphone(boolean enabled) {
+    return mRtcEngine.setEnableSpeakerphone(enabled);
+  }
+
+  @Override
+  public boolean isSpeakerphoneEnabled() {
+    return mRtcEngine.isSpeakerphoneEnabled();
+  }
+
+  @Override
+  public int setRemoteUserPriority(int uid, int userPriority) {
+    return mRtcEngine.setRemoteUserPriority(uid, userPriority);
+  }
+
+  @Override
+  public int setLocalPublishFallbackOption(int option) {
+    return mRtcEngine.setLocalPublishFallbackOption(option);
+  }
+
+  @Override
+  public int setRemoteSubscribeFallbackOption(int option) {
+    return mRtcEngine.setRemoteSubscribeFallbackOption(option);
+  }
+
+  @Override
+  public int enableDualStreamMode(boolean enabled) {
+    return mRtcEngine.enableDualStreamMode(enabled);
+  }
+
+  @Override
+  public int setRemoteVideoStreamType(int uid, int streamType) {
+    return mRtcEngine.setRemoteVideoStreamType(uid, streamType);
+  }
+
+  @Override
+  public int setRemoteDefaultVideoStreamType(int streamType) {
+    return mRtcEngine.setRemoteDefaultVideoStreamType(streamType);
+  }
+
+  @Override
+  public int setEncryptionSecret(String secret) {
+    return mRtcEngine.setEncryptionSecret(secret);
+  }
+
+  @Override
+  public int setEncryptionMode(String encryptionMode) {
+    return mRtcEngine.setEncryptionMode(encryptionMode);
+  }
+
+  @Override
+  public int switchCamera() {
+    return mRtcEngine.switchCamera();
+  }
+
+  @Override
+  public int createDataStream(boolean reliable, boolean ordered) {
+    return mRtcEngine.createDataStream(reliable, ordered);
+  }
+
+  @Override
+  public int sendStreamMessage(int streamId, byte[] message) {
+    return mRtcEngine.sendStreamMessage(streamId, message);
+  }
+
+  @Override
+  public int registerAudioFrameObserver(IAudioFrameObserver observer) {
+    return mRtcEngine.registerAudioFrameObserver(observer);
+  }
+
+  @Override
+  public int setRecordingAudioFrameParameters(int sampleRate, int channel, int mode, int samplesPerCall) {
+    return mRtcEngine.setRecordingAudioFrameParameters(sampleRate, channel, mode, samplesPerCall);
+  }
+
+  @Override
+  public int setPlaybackAudioFrameParameters(int sampleRate, int channel, int mode, int samplesPerCall) {
+    return mRtcEngine.setPlaybackAudioFrameParameters(sampleRate, channel, mode, samplesPerCall);
+  }
+}
@@ -0,0 +1,179 @@
+package io.agora.agorartcengine;
+
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import io.agora.rtc.Constants;
+
+/**
+ * Mirrors the engine state set through the plugin's commands and reported by the engine's
+ * callbacks, so that state queries are answered without calling into the SDK. {@link #getSnapshot}
+ * returns all of it in one map.
+ *
+ * Values are null while unknown: the documented defaults are set when the engine is created, the
+ * rest once a command succeeds or a callback reports them. Per-user values are kept for users the
+ * plugin sent commands for or saw join, until they leave or the local user leaves the channel.
+ *
+ * With redundant command skipping enabled, {@link #skips} tells the plugin to drop commands whose
+ * value equals the known one. Unknown values are never skipped.
+ */
+class AgoraStateMirror {
+  static final int CONNECTION_STATE = 0;
+  static final int CONNECTION_CHANGED_REASON = 1;
+  static final int CHANNEL_ID = 2;
+  static final int UID = 3;
+  static final int CHANNEL_PROFILE = 4;
+  static final int CLIENT_ROLE = 5;
+  static final int AUDIO_ENABLED = 6;
+  static final int VIDEO_ENABLED = 7;
+  static final int LOCAL_AUDIO_ENABLED = 8;
+  static final int LOCAL_VIDEO_ENABLED = 9;
+  static final int LOCAL_AUDIO_MUTED = 10;
+  static final int LOCAL_VIDEO_MUTED = 11;
+  static final int ALL_REMOTE_AUDIO_MUTED = 12;
+  static final int ALL_REMOTE_VIDEO_MUTED = 13;
+  static final int SPEAKERPHONE_ENABLED = 14;
+  static final int AUDIO_ROUTE = 15;
+  static final int DUAL_STREAM_MODE = 16;
+
+  private static final String[] NAMES = {
+      "connectionState",
+      "connectionChangedReason",
+      "channelId",
+      "uid",
+      "channelProfile",
+      "clientRole",
+      "audioEnabled",
+      "videoEnabled",
+      "localAudioEnabled",
+      "localVideoEnabled",
+      "localAudioMuted",
+      "localVideoMuted",
+      "allRemoteAudioMuted",
+      "allRemoteVideoMuted",
+      "speakerphoneEnabled",
+      "audioRoute",
+      "dualStreamMode",
+  };
+
+  // Per-user values
+  static final int REMOTE_AUDIO_MUTED = 0;
+  static final int REMOTE_VIDEO_MUTED = 1;
+  static final int REMOTE_VIDEO_STREAM_TYPE = 2;
+  static final int USER_MUTED_AUDIO = 3;
+  static final int USER_MUTED_VIDEO = 4;
+
+  private static final String[] REMOTE_NAMES = {
+      "audioMuted",
+      "videoMuted",
+      "videoStreamType",
+      "userMutedAudio",
+      "userMutedVideo",
+  };
+
+  private final Object[] mValues = new Object[NAMES.length];
+  private final SparseArray<Object[]> mRemoteValues = new SparseArray<>();
+  private boolean mSkipRedundantCommands;
+
+  /** Forgets all values and sets the defaults of a newly created engine. */
+  synchronized void reset() {
+    for (int i = 0; i < mValues.length; i++) {
+      mValues[i] = null;
+    }
+    mRemoteValues.clear();
+    mValues[CONNECTION_STATE] = Constants.CONNECTION_STATE_DISCONNECTED;
+    mValues[AUDIO_ENABLED] = true;
+    mValues[VIDEO_ENABLED] = false;
+    mValues[LOCAL_AUDIO_ENABLED] = true;
+    mValues[LOCAL_VIDEO_ENABLED] = true;
+    mValues[LOCAL_AUDIO_MUTED] = false;
+    mValues[LOCAL_VIDEO_MUTED] = false;
+    mValues[ALL_REMOTE_AUDIO_MUTED] = false;
+    mValues[ALL_REMOTE_VIDEO_MUTED] = false;
+    mValues[DUAL_STREAM_MODE] = false;
+  }
+
+  synchronized void setSkipRedundantCommands(boolean enabled) {
+    mSkipRedundantCommands = enabled;
+  }
+
+  synchronized Object get(int field) {
+    return mValues[field];
+  }
+
+  synchronized void set(int field, Object value) {
+    mValues[field] = value;
+  }
+
+  /** Whether a command setting field to value can be skipped. */
+  synchronized boolean skips(int field, Object value) {
+    return mSkipRedundantCommands && value.equals(mValues[field]);
+  }
+
+  synchronized Object getRemote(int uid, int field) {
+    Object[] values = mRemoteValues.get(uid);
+    return (values != null) ? values[field] : null;
+  }
+
+  synchronized void setRemote(int uid, int field, Object value) {
+    remoteValues(uid)[field] = value;
+  }
+
+  /** Whether a command setting the field of uid to value can be skipped. */
+  synchronized boolean skipsRemote(int uid, int field, Object value) {
+    return mSkipRedundantCommands && value.equals(getRemote(uid, field));
+  }
+
+  /** Forgets the field for all users, after a command that changes it for everyone. */
+  synchronized void clearRemote(int field) {
+    for (int i = 0; i < mRemoteValues.size(); i++) {
+      mRemoteValues.valueAt(i)[field] = null;
+    }
+  }
+
+  synchronized void addUid(int uid) {
+    remoteValues(uid);
+  }
+
+  synchronized void removeUid(int uid) {
+    mRemoteValues.remove(uid);
+  }
+
+  /** Forgets the channel and its users once the local user left it. */
+  synchronized void leaveChannel() {
+    mValues[CHANNEL_ID] = null;
+    mValues[UID] = null;
+    mRemoteValues.clear();
+  }
+
+  /** Returns every value by name, with the users in "remoteUsers" as a list of maps with a "uid". */
+  synchronized HashMap<String, Object> getSnapshot() {
+    HashMap<String, Object> map = new HashMap<>();
+    for (int i = 0; i < mValues.length; i++) {
+      map.put(NAMES[i], mValues[i]);
+    }
+    ArrayList<HashMap<String, Object>> remoteUsers = new ArrayList<>(mRemoteValues.size());
+    for (int i = 0; i < mRemoteValues.size(); i++) {
+      Object[] values = mRemoteValues.valueAt(i);
+      HashMap<String, Object> remoteUser = new HashMap<>();
+      remoteUser.put("uid", mRemoteValues.keyAt(i));
+      for (int field = 0; field < values.length; field++) {
+        remoteUser.put(REMOTE_NAMES[field], values[field]);
+      }
+      remoteUsers.add(remoteUser);
+    }
+    map.put("remoteUsers", remoteUsers);
+    return map;
+  }
+
+  private Object[] remoteValues(int uid) {
+    Object[] values = mRemoteValues.get(uid);
+    if (values == null) {
+      values = new Object[REMOTE_NAMES.length];
+      mRemoteValues.put(uid, values);
+    }
+    return values;
+  }
+}
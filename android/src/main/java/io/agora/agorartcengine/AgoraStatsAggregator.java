@@ -0,0 +1,246 @@
+package io.agora.agorartcengine;
+
+import android.os.Handler;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import io.agora.rtc.IRtcEngineEventHandler.LocalVideoStats;
+import io.agora.rtc.IRtcEngineEventHandler.RemoteAudioStats;
+import io.agora.rtc.IRtcEngineEventHandler.RemoteVideoStats;
+import io.agora.rtc.IRtcEngineEventHandler.RtcStats;
+
+/**
+ * Aggregates stats callbacks over a rolling window and reports min/avg/p50/p95/max per uid and
+ * metric as a single "onStatsSummary" event every interval.
+ *
+ * Every uid has one fixed-size ring of doubles per metric, allocated when the uid is first seen.
+ * Channel-wide and local stats are recorded under uid 0. Samples are recorded on the SDK
+ * callback thread; summaries are computed on the main thread into a preallocated scratch array.
+ */
+class AgoraStatsAggregator {
+  static final String METHOD_STATS_SUMMARY = "onStatsSummary";
+
+  // RtcStats, local video stats: uid 0
+  static final int TX_KBITRATE = 0;
+  static final int RX_KBITRATE = 1;
+  static final int TX_PACKET_LOSS_RATE = 2;
+  static final int RX_PACKET_LOSS_RATE = 3;
+  static final int LASTMILE_DELAY = 4;
+  static final int CPU_APP_USAGE = 5;
+  static final int CPU_TOTAL_USAGE = 6;
+  static final int SENT_VIDEO_BITRATE = 7;
+  static final int SENT_VIDEO_FRAME_RATE = 8;
+  // Remote video and audio stats
+  static final int RECEIVED_VIDEO_BITRATE = 9;
+  static final int RECEIVED_VIDEO_FRAME_RATE = 10;
+  static final int VIDEO_DELAY = 11;
+  static final int AUDIO_NETWORK_DELAY = 12;
+  static final int AUDIO_JITTER_BUFFER_DELAY = 13;
+  static final int AUDIO_LOSS_RATE = 14;
+
+  static final String[] METRIC_NAMES = {
+      "txKBitRate",
+      "rxKBitRate",
+      "txPacketLossRate",
+      "rxPacketLossRate",
+      "lastmileDelay",
+      "cpuAppUsage",
+      "cpuTotalUsage",
+      "sentVideoBitrate",
+      "sentVideoFrameRate",
+      "receivedVideoBitrate",
+      "receivedVideoFrameRate",
+      "videoDelay",
+      "audioNetworkDelay",
+      "audioJitterBufferDelay",
+      "audioLossRate",
+  };
+
+  private static final int METRIC_COUNT = METRIC_NAMES.length;
+
+  private final AgoraEventDispatcher mEventDispatcher;
+  private final Handler mHandler;
+  private final SparseArray<Window> mWindows = new SparseArray<>();
+  private volatile boolean mEnabled;
+  private volatile boolean mForwardRawStats = true;
+  private int mWindowSize;
+  private volatile long mInterval;
+  private double[] mScratch;
+
+  private final Runnable mReportRunnable = new Runnable() {
+    @Override
+    public void run() {
+      report();
+      mHandler.postDelayed(this, mInterval);
+    }
+  };
+
+  private final Runnable mRescheduleRunnable = new Runnable() {
+    @Override
+    public void run() {
+      mHandler.removeCallbacks(mReportRunnable);
+      if (mEnabled) {
+        mHandler.postDelayed(mReportRunnable, mInterval);
+      }
+    }
+  };
+
+  /** The samples of one uid, one ring of mWindowSize values per metric. */
+  private static final class Window {
+    final double[] mValues;
+    final int[] mCounts = new int[METRIC_COUNT];
+    final int[] mPositions = new int[METRIC_COUNT];
+
+    Window(int windowSize) {
+      mValues = new double[METRIC_COUNT * windowSize];
+    }
+  }
+
+  AgoraStatsAggregator(AgoraEventDispatcher eventDispatcher, Handler handler) {
+    this.mEventDispatcher = eventDispatcher;
+    this.mHandler = handler;
+  }
+
+  /**
+   * Starts/Stops aggregation. Summaries are reported every interval milliseconds over the last
+   * windowSize samples of each metric; previous samples are dropped.
+   */
+  void setEnabled(boolean enabled, long interval, int windowSize, boolean forwardRawStats) {
+    synchronized (this) {
+      mWindows.clear();
+      mWindowSize = Math.max(windowSize, 1);
+      mScratch = new double[mWindowSize];
+    }
+    mInterval = Math.max(interval, 1);
+    mForwardRawStats = !enabled || forwardRawStats;
+    mEnabled = enabled;
+    // The report timer is only touched on the main thread.
+    mHandler.post(mRescheduleRunnable);
+  }
+
+  boolean isEnabled() {
+    return mEnabled;
+  }
+
+  /** Whether the raw stats callbacks are still forwarded to Dart. */
+  boolean isForwardingRawStats() {
+    return mForwardRawStats;
+  }
+
+  synchronized void recordRtcStats(RtcStats stats) {
+    Window window = windowOf(0);
+    add(window, TX_KBITRATE, stats.txKBitRate);
+    add(window, RX_KBITRATE, stats.rxKBitRate);
+    add(window, TX_PACKET_LOSS_RATE, stats.txPacketLossRate);
+    add(window, RX_PACKET_LOSS_RATE, stats.rxPacketLossRate);
+    add(window, LASTMILE_DELAY, stats.lastmileDelay);
+    add(window, CPU_APP_USAGE, stats.cpuAppUsage);
+    add(window, CPU_TOTAL_USAGE, stats.cpuTotalUsage);
+  }
+
+  synchronized void recordLocalVideoStats(LocalVideoStats stats) {
+    Window window = windowOf(0);
+    add(window, SENT_VIDEO_BITRATE, stats.sentBitrate);
+    add(window, SENT_VIDEO_FRAME_RATE, stats.sentFrameRate);
+  }
+
+  synchronized void recordRemoteVideoStats(RemoteVideoStats stats) {
+    Window window = windowOf(stats.uid);
+    add(window, RECEIVED_VIDEO_BITRATE, stats.receivedBitrate);
+    add(window, RECEIVED_VIDEO_FRAME_RATE, stats.rendererOutputFrameRate);
+    add(window, VIDEO_DELAY, stats.delay);
+  }
+
+  synchronized void recordRemoteAudioStats(RemoteAudioStats stats) {
+    Window window = windowOf(stats.uid);
+    add(window, AUDIO_NETWORK_DELAY, stats.networkTransportDelay);
+    add(window, AUDIO_JITTER_BUFFER_DELAY, stats.jitterBufferDelay);
+    add(window, AUDIO_LOSS_RATE, stats.audioLossRate);
+  }
+
+  /** Drops the samples of a uid that went offline. */
+  synchronized void removeUid(int uid) {
+    mWindows.remove(uid);
+  }
+
+  /** Drops all samples, e.g. when the local user leaves the channel. */
+  synchronized void clear() {
+    mWindows.clear();
+  }
+
+  private Window windowOf(int uid) {
+    Window window = mWindows.get(uid);
+    if (window == null) {
+      window = new Window(mWindowSize);
+      mWindows.put(uid, window);
+    }
+    return window;
+  }
+
+  private void add(Window window, int metric, double value) {
+    int position = window.mPositions[metric];
+    window.mValues[metric * mWindowSize + position] = value;
+    window.mPositions[metric] = (position + 1) % mWindowSize;
+    if (window.mCounts[metric] < mWindowSize) {
+      window.mCounts[metric]++;
+    }
+  }
+
+  /**
+   * Reports a list with one entry per uid: {"uid": uid, "metrics": {name: [min, avg, p50, p95,
+   * max]}}. Metrics without samples are left out.
+   */
+  private void report() {
+    if (!mEventDispatcher.isSubscribed(AgoraEvents.ON_STATS_SUMMARY)) {
+      return;
+    }
+    ArrayList<Object> summaries = new ArrayList<>();
+    synchronized (this) {
+      for (int i = 0; i < mWindows.size(); i++) {
+        Window window = mWindows.valueAt(i);
+        HashMap<String, Object> metrics = new HashMap<>();
+        for (int metric = 0; metric < METRIC_COUNT; metric++) {
+          int count = window.mCounts[metric];
+          if (count > 0) {
+            metrics.put(METRIC_NAMES[metric], summarize(window, metric, count));
+          }
+        }
+        HashMap<String, Object> summary = new HashMap<>();
+        summary.put("uid", mWindows.keyAt(i));
+        summary.put("metrics", metrics);
+        summaries.add(summary);
+      }
+    }
+    if (summaries.isEmpty()) {
+      return;
+    }
+    HashMap<String, Object> map = new HashMap<>();
+    map.put("summaries", summaries);
+    mEventDispatcher.dispatch(METHOD_STATS_SUMMARY, map);
+  }
+
+  private double[] summarize(Window window, int metric, int count) {
+    System.arraycopy(window.mValues, metric * mWindowSize, mScratch, 0, count);
+    Arrays.sort(mScratch, 0, count);
+    double sum = 0;
+    for (int i = 0; i < count; i++) {
+      sum += mScratch[i];
+    }
+    return new double[] {
+        mScratch[0],
+        sum / count,
+        percentile(count, 50),
+        percentile(count, 95),
+        mScratch[count - 1],
+    };
+  }
+
+  /** Nearest-rank percentile of the first count sorted scratch values. */
+  private double percentile(int count, int percent) {
+    int rank = (percent * count + 99) / 100;
+    return mScratch[Math.max(rank, 1) - 1];
+  }
+}
@@ -0,0 +1,175 @@
+package io.agora.agorartcengine;
+
+import android.util.SparseArray;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.agora.rtc.IRtcEngineEventHandler.LocalVideoStats;
+import io.agora.rtc.IRtcEngineEventHandler.RemoteVideoStats;
+import io.agora.rtc.IRtcEngineEventHandler.RtcStats;
+
+/**
+ * Encodes periodic stats events as the fields that changed since the last event of the same type
+ * and uid, with a full keyframe every keyframeInterval events.
+ *
+ * The encoded map uses the keys of the full stats maps, plus "keyframe", which tells Dart whether
+ * to replace or patch its copy of the stats. Remote video stats always carry their uid. The last
+ * sent values are kept as primitives; called on the SDK callback thread.
+ */
+class AgoraStatsDeltaEncoder {
+  static final int RTC_STATS = 0;
+  static final int LOCAL_VIDEO_STATS = 1;
+  static final int REMOTE_VIDEO_STATS = 2;
+
+  private static final String[][] FIELDS = {
+      {"duration", "txBytes", "rxBytes", "txAudioKBitrate", "rxAudioKBitrate", "txVideoKBitrate",
+          "rxVideoKBitrate", "txPacketLossRate", "rxPacketLossRate", "lastmileDelay", "userCount",
+          "cpuAppUsage", "cpuTotalUsage"},
+      {"sentBitrate", "sentFrameRate", "encoderOutputFrameRate", "rendererOutputFrameRate"},
+      {"uid", "width", "height", "receivedBitrate", "decoderOutputFrameRate", "rendererOutputFrameRate",
+          "rxStreamType"},
+  };
+  // Fields from this index on are doubles, the others ints.
+  private static final int[] FIRST_DOUBLE_FIELD = {11, 4, 7};
+
+  private volatile boolean mEnabled;
+  private int mKeyframeInterval;
+  @SuppressWarnings("unchecked")
+  private final SparseArray<Snapshot>[] mSnapshots = new SparseArray[] {
+      new SparseArray<Snapshot>(), new SparseArray<Snapshot>(), new SparseArray<Snapshot>(),
+  };
+  private final double[][] mScratch = {
+      new double[FIELDS[RTC_STATS].length],
+      new double[FIELDS[LOCAL_VIDEO_STATS].length],
+      new double[FIELDS[REMOTE_VIDEO_STATS].length],
+  };
+
+  private static final class Snapshot {
+    final double[] mValues;
+    int mEventsSinceKeyframe;
+
+    Snapshot(int fieldCount) {
+      mValues = new double[fieldCount];
+    }
+  }
+
+  boolean isEnabled() {
+    return mEnabled;
+  }
+
+  /** Enables/Disables delta encoding; the next event of every type and uid is a keyframe. */
+  synchronized void setEnabled(boolean enabled, int keyframeInterval) {
+    mKeyframeInterval = Math.max(keyframeInterval, 1);
+    reset();
+    mEnabled = enabled;
+  }
+
+  synchronized HashMap<String, Object> encodeRtcStats(RtcStats stats) {
+    double[] values = mScratch[RTC_STATS];
+    values[0] = stats.totalDuration;
+    values[1] = stats.txBytes;
+    values[2] = stats.rxBytes;
+    values[3] = stats.txAudioKBitRate;
+    values[4] = stats.rxAudioKBitRate;
+    values[5] = stats.txVideoKBitRate;
+    values[6] = stats.rxVideoKBitRate;
+    values[7] = stats.txPacketLossRate;
+    values[8] = stats.rxPacketLossRate;
+    values[9] = stats.lastmileDelay;
+    values[10] = stats.users;
+    values[11] = stats.cpuAppUsage;
+    values[12] = stats.cpuTotalUsage;
+    return encode(RTC_STATS, 0, values);
+  }
+
+  synchronized HashMap<String, Object> encodeLocalVideoStats(LocalVideoStats stats) {
+    double[] values = mScratch[LOCAL_VIDEO_STATS];
+    values[0] = stats.sentBitrate;
+    values[1] = stats.sentFrameRate;
+    values[2] = stats.encoderOutputFrameRate;
+    values[3] = stats.rendererOutputFrameRate;
+    return encode(LOCAL_VIDEO_STATS, 0, values);
+  }
+
+  synchronized HashMap<String, Object> encodeRemoteVideoStats(RemoteVideoStats stats) {
+    double[] values = mScratch[REMOTE_VIDEO_STATS];
+    values[0] = stats.uid;
+    values[1] = stats.width;
+    values[2] = stats.height;
+    values[3] = stats.receivedBitrate;
+    values[4] = stats.decoderOutputFrameRate;
+    values[5] = stats.rendererOutputFrameRate;
+    values[6] = stats.rxStreamType;
+    HashMap<String, Object> map = encode(REMOTE_VIDEO_STATS, stats.uid, values);
+    map.put("uid", stats.uid);
+    return map;
+  }
+
+  /**
+   * Merges queued stats events: a newer event that only holds changed fields is applied to the
+   * older stats, so that no change is lost; otherwise the newer event replaces the older one.
+   */
+  static final AgoraEventDispatcher.Coalescer COALESCER = new AgoraEventDispatcher.Coalescer() {
+    @Override
+    public Object coalesce(Object older, Object newer) {
+      return coalesceStats(older, newer);
+    }
+  };
+
+  @SuppressWarnings("unchecked")
+  private static Object coalesceStats(Object older, Object newer) {
+    if (!(older instanceof Map) || !(newer instanceof Map)) {
+      return newer;
+    }
+    Object olderStats = ((Map<String, Object>) older).get("stats");
+    Object newerStats = ((Map<String, Object>) newer).get("stats");
+    if (!(olderStats instanceof Map) || !(newerStats instanceof Map)
+        || !Boolean.FALSE.equals(((Map<String, Object>) newerStats).get("keyframe"))) {
+      return newer;
+    }
+    // Full stats without a keyframe flag were sent before delta encoding was enabled.
+    Map<String, Object> merged = (Map<String, Object>) olderStats;
+    boolean keyframe = !Boolean.FALSE.equals(merged.get("keyframe"));
+    merged.putAll((Map<String, Object>) newerStats);
+    merged.put("keyframe", keyframe);
+    return older;
+  }
+
+  /** Forgets the snapshots of a uid that went offline. */
+  synchronized void removeUid(int uid) {
+    mSnapshots[REMOTE_VIDEO_STATS].remove(uid);
+  }
+
+  /** Forgets all snapshots, e.g. when the local user leaves the channel. */
+  synchronized void reset() {
+    for (SparseArray<Snapshot> snapshots : mSnapshots) {
+      snapshots.clear();
+    }
+  }
+
+  private HashMap<String, Object> encode(int type, int uid, double[] values) {
+    Snapshot snapshot = mSnapshots[type].get(uid);
+    boolean keyframe = snapshot == null || snapshot.mEventsSinceKeyframe >= mKeyframeInterval - 1;
+    if (snapshot == null) {
+      snapshot = new Snapshot(values.length);
+      mSnapshots[type].put(uid, snapshot);
+    }
+    snapshot.mEventsSinceKeyframe = keyframe ? 0 : snapshot.mEventsSinceKeyframe + 1;
+
+    HashMap<String, Object> map = new HashMap<>();
+    map.put("keyframe", keyframe);
+    String[] fields = FIELDS[type];
+    for (int i = 0; i < values.length; i++) {
+      if (keyframe || values[i] != snapshot.mValues[i]) {
+        if (i >= FIRST_DOUBLE_FIELD[type]) {
+          map.put(fields[i], values[i]);
+        } else {
+          map.put(fields[i], (int) values[i]);
+        }
+        snapshot.mValues[i] = values[i];
+      }
+    }
+    return map;
+  }
+}
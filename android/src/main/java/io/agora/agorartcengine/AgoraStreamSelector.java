@@ -0,0 +1,172 @@
+package io.agora.agorartcengine;
+
+import android.os.Handler;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.SurfaceView;
+import android.view.View;
+
+import io.agora.rtc.Constants;
+
+/**
+ * Subscribes each remote uid bound to a renderer view to the high or the low video stream,
+ * depending on the size of the view on screen.
+ *
+ * A uid switches to the high stream once the shorter side of its view reaches the high threshold,
+ * and to the low stream once it shrinks to the low threshold; in between it keeps its stream, so
+ * that small size changes do not flip it back and forth. Sizes are evaluated once they have not
+ * changed for the settle delay, which skips the intermediate sizes of animations. Views that are
+ * not laid out keep their stream.
+ *
+ * Only takes effect for senders that enabled the dual-stream mode. All methods may be called on
+ * any thread; views are observed and streams selected on the main thread.
+ */
+class AgoraStreamSelector implements View.OnLayoutChangeListener {
+  interface Listener {
+    /** Called on the main thread when the stream type of uid should change. */
+    void onStreamTypeSelected(int uid, int streamType);
+  }
+
+  private final Handler mHandler;
+  private final Listener mListener;
+  // Only accessed on the main thread.
+  private boolean mEnabled;
+  private int mLowThreshold;
+  private int mHighThreshold;
+  private long mSettleDelay;
+  private final SparseArray<SurfaceView> mViews = new SparseArray<>();
+  private final SparseIntArray mStreamTypes = new SparseIntArray();
+
+  private final Runnable mEvaluateRunnable = new Runnable() {
+    @Override
+    public void run() {
+      evaluate();
+    }
+  };
+
+  AgoraStreamSelector(Handler handler, Listener listener) {
+    this.mHandler = handler;
+    this.mListener = listener;
+  }
+
+  /**
+   * Enables or disables the selection, with thresholds in pixels of the view's shorter side and
+   * the settle delay in milliseconds. Disabling keeps the streams selected so far.
+   */
+  void setEnabled(final boolean enabled, final int lowThreshold, final int highThreshold, final long settleDelay) {
+    mHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        mEnabled = enabled;
+        mLowThreshold = lowThreshold;
+        mHighThreshold = Math.max(highThreshold, lowThreshold);
+        mSettleDelay = settleDelay;
+        mStreamTypes.clear();
+        scheduleEvaluate();
+      }
+    });
+  }
+
+  /** Observes the view uid is rendered in, replacing the previous one. */
+  void bind(final int uid, final SurfaceView view) {
+    mHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        SurfaceView previous = mViews.get(uid);
+        if (previous == view) {
+          return;
+        }
+        if (previous != null && !isObserved(previous, uid)) {
+          previous.removeOnLayoutChangeListener(AgoraStreamSelector.this);
+        }
+        mViews.put(uid, view);
+        view.addOnLayoutChangeListener(AgoraStreamSelector.this);
+        scheduleEvaluate();
+      }
+    });
+  }
+
+  /** Stops observing the view of uid; its stream stays as selected. */
+  void unbind(final int uid) {
+    mHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        SurfaceView view = mViews.get(uid);
+        if (view == null) {
+          return;
+        }
+        mViews.remove(uid);
+        if (!isObserved(view, uid)) {
+          view.removeOnLayoutChangeListener(AgoraStreamSelector.this);
+        }
+      }
+    });
+  }
+
+  /** Forgets the selected streams, after the local user left the channel. */
+  void reset() {
+    mHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        mStreamTypes.clear();
+        scheduleEvaluate();
+      }
+    });
+  }
+
+  @Override
+  public void onLayoutChange(View view, int left, int top, int right, int bottom,
+                             int oldLeft, int oldTop, int oldRight, int oldBottom) {
+    if (right - left != oldRight - oldLeft || bottom - top != oldBottom - oldTop) {
+      scheduleEvaluate();
+    }
+  }
+
+  /** Whether another uid than uid is rendered in view. */
+  private boolean isObserved(SurfaceView view, int uid) {
+    for (int i = 0; i < mViews.size(); i++) {
+      if (mViews.valueAt(i) == view && mViews.keyAt(i) != uid) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void scheduleEvaluate() {
+    if (!mEnabled) {
+      return;
+    }
+    mHandler.removeCallbacks(mEvaluateRunnable);
+    mHandler.postDelayed(mEvaluateRunnable, mSettleDelay);
+  }
+
+  private void evaluate() {
+    if (!mEnabled) {
+      return;
+    }
+    for (int i = 0; i < mViews.size(); i++) {
+      int uid = mViews.keyAt(i);
+      SurfaceView view = mViews.valueAt(i);
+      int size = Math.min(view.getWidth(), view.getHeight());
+      if (size <= 0) {
+        continue;
+      }
+      int current = mStreamTypes.get(uid, -1);
+      int streamType;
+      if (size >= mHighThreshold) {
+        streamType = Constants.VIDEO_STREAM_HIGH;
+      } else if (size <= mLowThreshold) {
+        streamType = Constants.VIDEO_STREAM_LOW;
+      } else if (current != -1) {
+        streamType = current;
+      } else {
+        streamType = (size * 2 >= mLowThreshold + mHighThreshold)
+            ? Constants.VIDEO_STREAM_HIGH : Constants.VIDEO_STREAM_LOW;
+      }
+      if (streamType != current) {
+        mStreamTypes.put(uid, streamType);
+        mListener.onStreamTypeSelected(uid, streamType);
+      }
+    }
+  }
+}
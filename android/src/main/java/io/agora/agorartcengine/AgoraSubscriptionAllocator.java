@@ -0,0 +1,342 @@
+package io.agora.agorartcengine;
+
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.agora.rtc.Constants;
+import io.agora.rtc.IRtcEngineEventHandler.AudioVolumeInfo;
+import io.agora.rtc.IRtcEngineEventHandler.RemoteVideoStats;
+import io.agora.rtc.IRtcEngineEventHandler.RtcStats;
+
+/**
+ * Assigns each remote user the high stream, the low stream or no video, so that the video
+ * received fits a downlink budget and goes to the users that matter most.
+ *
+ * Users are ranked by being pinned by the app, then being the active speaker, then their recent
+ * volume, with a bonus for users on the high stream so that similar volumes do not swap them;
+ * ties keep the join order. On every RtcStats callback the users in rank order get the low stream
+ * while the video budget lasts and no video after, then are upgraded to the high stream in rank
+ * order while it lasts, up to maxHigh users. The top high stream user also gets the SDK's high
+ * priority. Downgrades are applied at once; at most maxUpgradesPerTick upgrades follow per tick.
+ *
+ * The video budget is the downlink budget less the received audio bitrate. A configured budget of
+ * 0 is estimated: cut to 85% of the received bitrate while the packet loss is at least lossHigh,
+ * raised by 5% while it is at most lossLow and the received bitrate uses most of the estimate,
+ * and probed 5% upwards every PROBE_TICKS ticks in a row at most lossLow whatever the usage, as
+ * the allocation's own tiers may keep the received bitrate well below the estimate. The estimate
+ * stays within minBudget and maxBudget. The bitrate of each stream type starts at its configured cost
+ * and follows the received bitrates of the remote video stats.
+ */
+class AgoraSubscriptionAllocator {
+  static final int TIER_NONE = -1;
+  static final int TIER_HIGH = 0;
+  static final int TIER_LOW = 1;
+  static final int TIER_MUTED = 2;
+
+  interface Listener {
+    /**
+     * Called on the SDK callback thread when the tier or priority of uid changes. TIER_NONE
+     * releases the user when tuning stops.
+     */
+    void onAllocated(int uid, int tier, boolean priority);
+  }
+
+  private static final int STICKY_BONUS = 20;
+  private static final double LEVEL_DECAY = 0.5;
+  private static final double COST_WEIGHT = 0.1;
+  private static final int PROBE_TICKS = 3;
+
+  /** An immutable allocator configuration; bitrates are in Kbps, loss rates in percent. */
+  static final class Config {
+    final int budget;
+    final int minBudget;
+    final int maxBudget;
+    final int lossHigh;
+    final int lossLow;
+    final int maxHigh;
+    final int highCost;
+    final int lowCost;
+    final int maxUpgradesPerTick;
+
+    Config(int budget, int minBudget, int maxBudget, int lossHigh, int lossLow, int maxHigh, int highCost,
+           int lowCost, int maxUpgradesPerTick) {
+      this.budget = budget;
+      this.minBudget = minBudget;
+      this.maxBudget = Math.max(maxBudget, minBudget);
+      this.lossHigh = lossHigh;
+      this.lossLow = lossLow;
+      this.maxHigh = maxHigh;
+      this.highCost = highCost;
+      this.lowCost = lowCost;
+      this.maxUpgradesPerTick = Math.max(maxUpgradesPerTick, 1);
+    }
+
+    static Config fromMap(Map<String, Object> map) {
+      return new Config(
+          ((Number) map.get("budget")).intValue(),
+          ((Number) map.get("minBudget")).intValue(),
+          ((Number) map.get("maxBudget")).intValue(),
+          ((Number) map.get("lossHigh")).intValue(),
+          ((Number) map.get("lossLow")).intValue(),
+          ((Number) map.get("maxHigh")).intValue(),
+          ((Number) map.get("highCost")).intValue(),
+          ((Number) map.get("lowCost")).intValue(),
+          ((Number) map.get("maxUpgradesPerTick")).intValue());
+    }
+  }
+
+  private static final class User {
+    final int mUid;
+    final long mJoinOrder;
+    boolean mPinned;
+    double mLevel;
+    int mTier = TIER_NONE;
+    boolean mPriority;
+    // Scratch values of the current tick.
+    int mTarget;
+    double mScore;
+
+    User(int uid, long joinOrder) {
+      this.mUid = uid;
+      this.mJoinOrder = joinOrder;
+    }
+  }
+
+  private static final Comparator<User> RANK = new Comparator<User>() {
+    @Override
+    public int compare(User a, User b) {
+      if (a.mPinned != b.mPinned) {
+        return a.mPinned ? -1 : 1;
+      }
+      int byScore = Double.compare(b.mScore, a.mScore);
+      return (byScore != 0) ? byScore : Long.compare(a.mJoinOrder, b.mJoinOrder);
+    }
+  };
+
+  private final Listener mListener;
+  // Guarded by this.
+  private Config mConfig;
+  private final SparseArray<User> mUsers = new SparseArray<>();
+  private final ArrayList<User> mRanked = new ArrayList<>();
+  private int[] mPinnedUids = new int[0];
+  private long mJoinCount;
+  private int mActiveSpeaker;
+  private double mEstimate;
+  private int mLowLossTicks;
+  private double mHighCost;
+  private double mLowCost;
+  private int mVideoBudget;
+
+  AgoraSubscriptionAllocator(Listener listener) {
+    this.mListener = listener;
+  }
+
+  /** Replaces the configuration, null stops allocating and releases every user. */
+  void setConfig(Config config) {
+    ArrayList<User> released = new ArrayList<>();
+    synchronized (this) {
+      mConfig = config;
+      if (config != null) {
+        mEstimate = (config.minBudget + config.maxBudget) / 2.0;
+        mLowLossTicks = 0;
+        mHighCost = config.highCost;
+        mLowCost = config.lowCost;
+        return;
+      }
+      for (int i = 0; i < mUsers.size(); i++) {
+        User user = mUsers.valueAt(i);
+        if (user.mTier != TIER_NONE) {
+          user.mTier = TIER_NONE;
+          user.mPriority = false;
+          released.add(user);
+        }
+      }
+    }
+    for (User user : released) {
+      mListener.onAllocated(user.mUid, TIER_NONE, false);
+    }
+  }
+
+  synchronized boolean isEnabled() {
+    return mConfig != null;
+  }
+
+  /** Sets the users ranked before all others. */
+  synchronized void setPinnedUids(int[] uids) {
+    mPinnedUids = uids;
+    for (int i = 0; i < mUsers.size(); i++) {
+      User user = mUsers.valueAt(i);
+      user.mPinned = isPinned(user.mUid);
+    }
+  }
+
+  synchronized void addUid(int uid) {
+    if (mUsers.get(uid) == null) {
+      User user = new User(uid, mJoinCount++);
+      user.mPinned = isPinned(uid);
+      mUsers.put(uid, user);
+    }
+  }
+
+  synchronized void removeUid(int uid) {
+    mUsers.remove(uid);
+    if (mActiveSpeaker == uid) {
+      mActiveSpeaker = 0;
+    }
+  }
+
+  /** Forgets every user once the local user left the channel. */
+  synchronized void clear() {
+    mUsers.clear();
+    mActiveSpeaker = 0;
+  }
+
+  synchronized void recordActiveSpeaker(int uid) {
+    mActiveSpeaker = uid;
+  }
+
+  synchronized void recordVolumes(AudioVolumeInfo[] speakers) {
+    for (AudioVolumeInfo speaker : speakers) {
+      User user = mUsers.get(speaker.uid);
+      if (user != null) {
+        user.mLevel = Math.max(user.mLevel, speaker.volume);
+      }
+    }
+  }
+
+  synchronized void recordRemoteVideoStats(RemoteVideoStats stats) {
+    if (stats.receivedBitrate <= 0) {
+      return;
+    }
+    if (stats.rxStreamType == Constants.VIDEO_STREAM_HIGH) {
+      mHighCost += (stats.receivedBitrate - mHighCost) * COST_WEIGHT;
+    } else if (stats.rxStreamType == Constants.VIDEO_STREAM_LOW) {
+      mLowCost += (stats.receivedBitrate - mLowCost) * COST_WEIGHT;
+    }
+  }
+
+  /** Updates the budget and reallocates the users, reporting the changes. */
+  void recordRtcStats(RtcStats stats) {
+    ArrayList<int[]> changed = new ArrayList<>();
+    synchronized (this) {
+      Config config = mConfig;
+      if (config == null) {
+        return;
+      }
+      int budget = (config.budget > 0) ? config.budget : (int) estimate(config, stats);
+      mVideoBudget = Math.max(budget - stats.rxAudioKBitRate, 0);
+      allocate(config, changed);
+    }
+    for (int[] change : changed) {
+      mListener.onAllocated(change[0], change[1], change[2] != 0);
+    }
+  }
+
+  /** Returns {"budget", "highCost", "lowCost", "users": [{"uid", "tier", "priority"}]}. */
+  synchronized HashMap<String, Object> getAllocation() {
+    ArrayList<Object> users = new ArrayList<>(mUsers.size());
+    for (int i = 0; i < mUsers.size(); i++) {
+      User user = mUsers.valueAt(i);
+      HashMap<String, Object> map = new HashMap<>();
+      map.put("uid", user.mUid);
+      map.put("tier", user.mTier);
+      map.put("priority", user.mPriority);
+      users.add(map);
+    }
+    HashMap<String, Object> map = new HashMap<>();
+    map.put("budget", mVideoBudget);
+    map.put("highCost", (int) mHighCost);
+    map.put("lowCost", (int) mLowCost);
+    map.put("users", users);
+    return map;
+  }
+
+  private double estimate(Config config, RtcStats stats) {
+    if (stats.rxPacketLossRate >= config.lossHigh) {
+      mEstimate = Math.min(mEstimate, stats.rxKBitRate) * 0.85;
+      mLowLossTicks = 0;
+    } else if (stats.rxPacketLossRate <= config.lossLow) {
+      mLowLossTicks++;
+      if (stats.rxKBitRate >= mEstimate * 0.8 || mLowLossTicks >= PROBE_TICKS) {
+        mEstimate *= 1.05;
+        mLowLossTicks = 0;
+      }
+    } else {
+      mLowLossTicks = 0;
+    }
+    mEstimate = Math.max(config.minBudget, Math.min(mEstimate, config.maxBudget));
+    return mEstimate;
+  }
+
+  /** Ranks the users and adds {uid, tier, priority} to changed for each user that changes. */
+  private void allocate(Config config, ArrayList<int[]> changed) {
+    mRanked.clear();
+    for (int i = 0; i < mUsers.size(); i++) {
+      User user = mUsers.valueAt(i);
+      user.mScore = user.mLevel
+          + (user.mUid == mActiveSpeaker ? 256 : 0)
+          + (user.mTier == TIER_HIGH ? STICKY_BONUS : 0);
+      user.mLevel *= LEVEL_DECAY;
+      mRanked.add(user);
+    }
+    Collections.sort(mRanked, RANK);
+
+    double remaining = mVideoBudget;
+    for (User user : mRanked) {
+      if (remaining >= mLowCost) {
+        user.mTarget = TIER_LOW;
+        remaining -= mLowCost;
+      } else {
+        user.mTarget = TIER_MUTED;
+      }
+    }
+    int highCount = 0;
+    for (User user : mRanked) {
+      if (highCount >= config.maxHigh) {
+        break;
+      }
+      if (user.mTarget == TIER_LOW && remaining >= mHighCost - mLowCost) {
+        user.mTarget = TIER_HIGH;
+        remaining -= mHighCost - mLowCost;
+        highCount++;
+      }
+    }
+
+    // Downgrades free the downlink for the upgrades, so they are never held back.
+    int upgrades = 0;
+    boolean priorityGiven = false;
+    for (User user : mRanked) {
+      int target = user.mTarget;
+      // Users not allocated yet receive the SDK's default, the high stream.
+      int current = (user.mTier == TIER_NONE) ? TIER_HIGH : user.mTier;
+      if (target < current) {
+        if (upgrades >= config.maxUpgradesPerTick) {
+          target = user.mTier;
+        } else {
+          upgrades++;
+        }
+      }
+      boolean priority = !priorityGiven && target == TIER_HIGH;
+      priorityGiven |= priority;
+      if (target != user.mTier || priority != user.mPriority) {
+        user.mTier = target;
+        user.mPriority = priority;
+        changed.add(new int[] {user.mUid, target, priority ? 1 : 0});
+      }
+    }
+  }
+
+  private boolean isPinned(int uid) {
+    for (int pinned : mPinnedUids) {
+      if (pinned == uid) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,180 @@
+package io.agora.agorartcengine;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.SurfaceTexture;
+import android.os.Build;
+import android.view.Surface;
+
+import java.nio.ByteBuffer;
+
+import io.flutter.view.TextureRegistry;
+
+import io.agora.rtc.mediaio.IVideoSink;
+import io.agora.rtc.mediaio.MediaIO;
+
+/**
+ * Renders the frames of a local or remote video stream into a Flutter texture, so that Dart can
+ * show them with a Texture widget instead of a SurfaceView platform view.
+ *
+ * The SDK delivers I420 frames on its render thread, which {@link AgoraYuvSurfaceDrawer} uploads
+ * and draws, converted and rotated upright on the GPU, onto the surface of the registered
+ * SurfaceTexture. Without EGL14, below API 17, the SDK converts frames to RGBA instead, and each
+ * frame is copied into a reusable bitmap and drawn with a canvas. The texture is sized to the
+ * upright frame; scaling to the widget is left to Flutter.
+ *
+ * Frames are also offered to the {@link AgoraVideoFrameSampler} under the uid the renderer is
+ * bound to.
+ */
+class AgoraTextureRenderer implements IVideoSink {
+  private static final boolean GL_RENDERING = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1;
+
+  private final TextureRegistry.SurfaceTextureEntry mTextureEntry;
+  private final SurfaceTexture mSurfaceTexture;
+  private final Surface mSurface;
+  private final AgoraYuvSurfaceDrawer mDrawer;
+  private final Matrix mMatrix = new Matrix();
+  private final AgoraVideoFrameSampler mSampler;
+  private volatile boolean mBound;
+  private volatile int mUid;
+  private Bitmap mBitmap;
+  private ByteBuffer mArrayBuffer;
+  private int mSurfaceWidth;
+  private int mSurfaceHeight;
+  private boolean mReleased;
+
+  AgoraTextureRenderer(TextureRegistry.SurfaceTextureEntry textureEntry, AgoraVideoFrameSampler sampler) {
+    this.mTextureEntry = textureEntry;
+    this.mSampler = sampler;
+    this.mSurfaceTexture = textureEntry.surfaceTexture();
+    this.mSurface = new Surface(mSurfaceTexture);
+    this.mDrawer = GL_RENDERING ? new AgoraYuvSurfaceDrawer(mSurface) : null;
+  }
+
+  long getTextureId() {
+    return mTextureEntry.id();
+  }
+
+  /** Records the uid whose video is rendered, 0 for the local video. */
+  void bindUid(int uid) {
+    mUid = uid;
+    mBound = true;
+  }
+
+  /** Stops rendering and releases the texture. Must be called on the main thread. */
+  synchronized void release() {
+    if (mReleased) {
+      return;
+    }
+    mReleased = true;
+    if (mDrawer != null) {
+      mDrawer.release();
+    }
+    mSurface.release();
+    mTextureEntry.release();
+    if (mBitmap != null) {
+      mBitmap.recycle();
+      mBitmap = null;
+    }
+  }
+
+  @Override
+  public boolean onInitialize() {
+    return true;
+  }
+
+  @Override
+  public boolean onStart() {
+    return true;
+  }
+
+  @Override
+  public void onStop() {}
+
+  @Override
+  public void onDispose() {}
+
+  @Override
+  public long getEGLContextHandle() {
+    return 0;
+  }
+
+  @Override
+  public int getBufferType() {
+    return MediaIO.BufferType.BYTE_BUFFER.intValue();
+  }
+
+  @Override
+  public int getPixelFormat() {
+    return (GL_RENDERING ? MediaIO.PixelFormat.I420 : MediaIO.PixelFormat.RGBA).intValue();
+  }
+
+  @Override
+  public void consumeByteBufferFrame(ByteBuffer buffer, int format, int width, int height, int rotation, long timestamp) {
+    sampleFrame(buffer, format, width, height, rotation);
+    drawFrame(buffer, width, height, rotation);
+  }
+
+  @Override
+  public void consumeByteArrayFrame(byte[] data, int format, int width, int height, int rotation, long timestamp) {
+    if (mArrayBuffer == null || mArrayBuffer.array() != data) {
+      mArrayBuffer = ByteBuffer.wrap(data);
+    }
+    sampleFrame(mArrayBuffer, format, width, height, rotation);
+    drawFrame(mArrayBuffer, width, height, rotation);
+  }
+
+  @Override
+  public void consumeTextureFrame(int textureId, int format, int width, int height, int rotation, long timestamp, float[] matrix) {
+    // Only byte buffer frames are requested in getBufferType.
+  }
+
+  private void sampleFrame(ByteBuffer buffer, int format, int width, int height, int rotation) {
+    if (mBound) {
+      mSampler.onFrame(mUid, buffer, format == MediaIO.PixelFormat.I420.intValue(), width, height, rotation);
+    }
+  }
+
+  private synchronized void drawFrame(ByteBuffer buffer, int width, int height, int rotation) {
+    if (mReleased || width <= 0 || height <= 0) {
+      return;
+    }
+    boolean rotated = rotation == 90 || rotation == 270;
+    int surfaceWidth = rotated ? height : width;
+    int surfaceHeight = rotated ? width : height;
+    if (surfaceWidth != mSurfaceWidth || surfaceHeight != mSurfaceHeight) {
+      mSurfaceTexture.setDefaultBufferSize(surfaceWidth, surfaceHeight);
+      mSurfaceWidth = surfaceWidth;
+      mSurfaceHeight = surfaceHeight;
+    }
+    if (mDrawer != null) {
+      buffer.rewind();
+      mDrawer.draw(buffer, width, height, rotation, surfaceWidth, surfaceHeight);
+      return;
+    }
+
+    if (mBitmap == null || mBitmap.getWidth() != width || mBitmap.getHeight() != height) {
+      if (mBitmap != null) {
+        mBitmap.recycle();
+      }
+      mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    buffer.rewind();
+    mBitmap.copyPixelsFromBuffer(buffer);
+    mMatrix.reset();
+    mMatrix.postRotate(rotation, width / 2f, height / 2f);
+    mMatrix.postTranslate((surfaceWidth - width) / 2f, (surfaceHeight - height) / 2f);
+
+    Canvas canvas;
+    try {
+      canvas = mSurface.lockCanvas(null);
+    } catch (Exception e) {
+      // The surface is gone or busy, drop the frame.
+      return;
+    }
+    canvas.drawBitmap(mBitmap, mMatrix, null);
+    mSurface.unlockCanvasAndPost(canvas);
+  }
+}
@@ -0,0 +1,171 @@
+package io.agora.agorartcengine;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.SparseArray;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.BinaryCodec;
+import io.flutter.plugin.common.BinaryMessenger;
+
+/**
+ * Samples I420 or RGBA video frames per uid at a limited rate, downscales them natively to RGBA and
+ * sends them to Dart on a dedicated channel.
+ *
+ * Frames come from the plugin's own video sinks ({@link AgoraTextureRenderer}); the local video
+ * is reported as uid 0. The sampling configuration can be replaced at any time and is picked up
+ * with the next frame. Every uid has a reusable direct buffer, and a sample is skipped while the
+ * previous one of the same uid is still waiting to be sent.
+ *
+ * Sample layout: uid, width, height, rotation as little-endian int32, followed by width * height
+ * RGBA pixels. The pixels are not rotated.
+ */
+class AgoraVideoFrameSampler {
+  static final String CHANNEL_NAME = "agora_rtc_engine/video_frames";
+
+  private static final int HEADER_SIZE = 4 * 4;
+
+  private final BasicMessageChannel<ByteBuffer> mChannel;
+  private final Handler mHandler;
+  private final SparseArray<Slot> mSlots = new SparseArray<>();
+  private volatile Config mConfig;
+
+  /** An immutable sampling configuration; null uids samples every uid. */
+  static final class Config {
+    final int width;
+    final int height;
+    final long interval;
+    final int[] uids;
+
+    Config(int width, int height, long interval, int[] uids) {
+      this.width = width;
+      this.height = height;
+      this.interval = interval;
+      this.uids = uids;
+    }
+
+    boolean includes(int uid) {
+      if (uids == null) {
+        return true;
+      }
+      for (int target : uids) {
+        if (target == uid) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  AgoraVideoFrameSampler(BinaryMessenger messenger, Handler handler) {
+    this.mChannel = new BasicMessageChannel<>(messenger, CHANNEL_NAME, BinaryCodec.INSTANCE);
+    this.mHandler = handler;
+  }
+
+  /** Replaces the configuration, null stops sampling. */
+  void setConfig(Config config) {
+    mConfig = config;
+  }
+
+  /** Called on the SDK render thread with a tightly packed I420 or RGBA frame of {@code uid}. */
+  void onFrame(int uid, ByteBuffer frame, boolean i420, int width, int height, int rotation) {
+    Config config = mConfig;
+    if (config == null || !config.includes(uid) || width <= 0 || height <= 0) {
+      return;
+    }
+
+    Slot slot;
+    synchronized (mSlots) {
+      slot = mSlots.get(uid);
+      if (slot == null) {
+        slot = new Slot();
+        mSlots.put(uid, slot);
+      }
+    }
+
+    long now = SystemClock.elapsedRealtime();
+    if (now - slot.mLastSampleTime < config.interval || slot.mPending.get()) {
+      return;
+    }
+    slot.mLastSampleTime = now;
+
+    // Never upscale, and keep the aspect ratio of the frame within the requested box.
+    float scale = Math.min(1f, Math.min((float) config.width / width, (float) config.height / height));
+    int targetWidth = Math.max(1, (int) (width * scale));
+    int targetHeight = Math.max(1, (int) (height * scale));
+    int size = HEADER_SIZE + targetWidth * targetHeight * 4;
+    if (slot.mBuffer == null || slot.mBuffer.capacity() < size) {
+      slot.mBuffer = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    ByteBuffer buffer = slot.mBuffer;
+    buffer.clear();
+    buffer.putInt(uid);
+    buffer.putInt(targetWidth);
+    buffer.putInt(targetHeight);
+    buffer.putInt(rotation);
+    if (i420) {
+      downscaleI420(frame, width, height, buffer, targetWidth, targetHeight);
+    } else {
+      downscale(frame, width, height, buffer, targetWidth, targetHeight);
+    }
+
+    slot.mPending.set(true);
+    mHandler.post(slot.mSendRunnable);
+  }
+
+  /** Nearest-neighbour RGBA downscale; pixels are copied as ints read in the target's byte order. */
+  private static void downscale(ByteBuffer frame, int width, int height, ByteBuffer target, int targetWidth, int targetHeight) {
+    ByteBuffer source = frame.duplicate().order(target.order());
+    for (int y = 0; y < targetHeight; y++) {
+      int sourceRow = (y * height / targetHeight) * width * 4;
+      for (int x = 0; x < targetWidth; x++) {
+        target.putInt(source.getInt(sourceRow + (x * width / targetWidth) * 4));
+      }
+    }
+  }
+
+  /** Nearest-neighbour I420 downscale to RGBA, with the BT.601 limited range conversion. */
+  private static void downscaleI420(ByteBuffer frame, int width, int height, ByteBuffer target, int targetWidth, int targetHeight) {
+    int base = frame.position();
+    int chromaWidth = (width + 1) / 2;
+    int uPlane = base + width * height;
+    int vPlane = uPlane + chromaWidth * ((height + 1) / 2);
+    for (int y = 0; y < targetHeight; y++) {
+      int sourceY = y * height / targetHeight;
+      for (int x = 0; x < targetWidth; x++) {
+        int sourceX = x * width / targetWidth;
+        int chroma = (sourceY / 2) * chromaWidth + sourceX / 2;
+        int luma = 298 * ((frame.get(base + sourceY * width + sourceX) & 0xff) - 16);
+        int u = (frame.get(uPlane + chroma) & 0xff) - 128;
+        int v = (frame.get(vPlane + chroma) & 0xff) - 128;
+        target.put(clamp((luma + 409 * v + 128) >> 8));
+        target.put(clamp((luma - 100 * u - 208 * v + 128) >> 8));
+        target.put(clamp((luma + 516 * u + 128) >> 8));
+        target.put((byte) 0xff);
+      }
+    }
+  }
+
+  private static byte clamp(int value) {
+    return (byte) Math.max(0, Math.min(value, 255));
+  }
+
+  private final class Slot {
+    private ByteBuffer mBuffer;
+    private long mLastSampleTime = Long.MIN_VALUE / 2;
+    private final AtomicBoolean mPending = new AtomicBoolean();
+
+    private final Runnable mSendRunnable = new Runnable() {
+      @Override
+      public void run() {
+        mChannel.send(mBuffer);
+        mPending.set(false);
+      }
+    };
+  }
+}
@@ -0,0 +1,262 @@
+package io.agora.agorartcengine;
+
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.SparseArray;
+import android.view.SurfaceView;
+import android.view.View;
+
+/**
+ * Tracks whether each remote uid has a renderer view on screen, so that the video of uids
+ * without one can be paused.
+ *
+ * Every renderer view bound to a uid counts for it until the view is disposed or bound to
+ * another uid, so a uid shown in several views stays visible while any of them is. A view is
+ * visible while it is attached, shown, laid out with a non-empty size, partly inside its window
+ * and not hidden by the app; the app can hide views the platform cannot see covered or scrolled
+ * away, as views are composed by Flutter.
+ *
+ * A uid is reported visible as soon as one of its views is, and hidden once none has been for
+ * the hide delay, which keeps uids decoding across short scrolls and transitions. All methods
+ * may be called on any thread; views are observed and changes reported on the main thread.
+ */
+class AgoraVisibilityTracker implements View.OnAttachStateChangeListener, View.OnLayoutChangeListener {
+  interface Listener {
+    /** Called on the main thread when a uid reported hidden becomes visible, or the reverse. */
+    void onVisibilityChanged(int uid, boolean visible);
+  }
+
+  private static final class Entry {
+    final SurfaceView mView;
+    int mUid;
+    boolean mAppVisible = true;
+    boolean mVisible;
+
+    Entry(SurfaceView view, int uid) {
+      this.mView = view;
+      this.mUid = uid;
+    }
+  }
+
+  private static final class UidState {
+    int mVisibleViews;
+    // Uptime at which the uid lost its last visible view, or 0 while it has one.
+    long mHiddenSince;
+    boolean mReportedHidden;
+  }
+
+  private final Handler mHandler;
+  private final Listener mListener;
+  private final Rect mRect = new Rect();
+  // Only accessed on the main thread.
+  private boolean mEnabled;
+  private long mHideDelay;
+  private final SparseArray<Entry> mEntries = new SparseArray<>();
+  private final SparseArray<UidState> mUids = new SparseArray<>();
+
+  private final Runnable mHideRunnable = new Runnable() {
+    @Override
+    public void run() {
+      reportHidden();
+    }
+  };
+
+  AgoraVisibilityTracker(Handler handler, Listener listener) {
+    this.mHandler = handler;
+    this.mListener = listener;
+  }
+
+  /**
+   * Enables or disables reporting. Disabling reports every uid reported hidden as visible again.
+   */
+  void setEnabled(final boolean enabled, final long hideDelay) {
+    mHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        mHideDelay = hideDelay;
+        if (enabled == mEnabled) {
+          return;
+        }
+        mEnabled = enabled;
+        mHandler.removeCallbacks(mHideRunnable);
+        if (enabled) {
+          for (int i = 0; i < mEntries.size(); i++) {
+            update(mEntries.valueAt(i));
+          }
+          scheduleHide();
+        } else {
+          for (int i = 0; i < mUids.size(); i++) {
+            UidState state = mUids.valueAt(i);
+            if (state.mReportedHidden) {
+              state.mReportedHidden = false;
+              mListener.onVisibilityChanged(mUids.keyAt(i), true);
+            }
+          }
+        }
+      }
+    });
+  }
+
+  /** Counts the renderer view of viewId for uid, moving it from the uid it was bound to before. */
+  void track(final int viewId, final int uid, final SurfaceView view) {
+    mHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        Entry entry = mEntries.get(viewId);
+        if (entry != null && entry.mView == view) {
+          if (entry.mUid == uid) {
+            return;
+          }
+          setVisible(entry, false);
+          entry.mUid = uid;
+        } else {
+          if (entry != null) {
+            remove(viewId, entry);
+          }
+          entry = new Entry(view, uid);
+          mEntries.put(viewId, entry);
+          view.addOnAttachStateChangeListener(AgoraVisibilityTracker.this);
+          view.addOnLayoutChangeListener(AgoraVisibilityTracker.this);
+        }
+        uidState(uid);
+        update(entry);
+        scheduleHide();
+      }
+    });
+  }
+
+  /** Stops counting the renderer view of viewId, after it was disposed or unbound. */
+  void untrack(final int viewId) {
+    mHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        Entry entry = mEntries.get(viewId);
+        if (entry != null) {
+          remove(viewId, entry);
+          scheduleHide();
+        }
+      }
+    });
+  }
+
+  /** Sets whether the app shows the renderer view of viewId. */
+  void setAppVisible(final int viewId, final boolean visible) {
+    mHandler.post(new Runnable() {
+      @Override
+      public void run() {
+        Entry entry = mEntries.get(viewId);
+        if (entry != null) {
+          entry.mAppVisible = visible;
+          update(entry);
+          scheduleHide();
+        }
+      }
+    });
+  }
+
+  @Override
+  public void onViewAttachedToWindow(View view) {
+    updateView(view);
+  }
+
+  @Override
+  public void onViewDetachedFromWindow(View view) {
+    updateView(view);
+  }
+
+  @Override
+  public void onLayoutChange(View view, int left, int top, int right, int bottom,
+                             int oldLeft, int oldTop, int oldRight, int oldBottom) {
+    updateView(view);
+  }
+
+  private void updateView(View view) {
+    for (int i = 0; i < mEntries.size(); i++) {
+      Entry entry = mEntries.valueAt(i);
+      if (entry.mView == view) {
+        update(entry);
+      }
+    }
+    scheduleHide();
+  }
+
+  private void remove(int viewId, Entry entry) {
+    setVisible(entry, false);
+    mEntries.remove(viewId);
+    entry.mView.removeOnAttachStateChangeListener(this);
+    entry.mView.removeOnLayoutChangeListener(this);
+  }
+
+  private void update(Entry entry) {
+    View view = entry.mView;
+    setVisible(entry, entry.mAppVisible
+        && view.getWindowToken() != null
+        && view.isShown()
+        && view.getWidth() > 0
+        && view.getHeight() > 0
+        && view.getGlobalVisibleRect(mRect));
+  }
+
+  private void setVisible(Entry entry, boolean visible) {
+    if (entry.mVisible == visible) {
+      return;
+    }
+    entry.mVisible = visible;
+    UidState state = uidState(entry.mUid);
+    state.mVisibleViews += visible ? 1 : -1;
+    if (state.mVisibleViews > 0) {
+      state.mHiddenSince = 0;
+      if (state.mReportedHidden) {
+        state.mReportedHidden = false;
+        if (mEnabled) {
+          mListener.onVisibilityChanged(entry.mUid, true);
+        }
+      }
+    } else {
+      state.mHiddenSince = SystemClock.uptimeMillis();
+    }
+  }
+
+  private UidState uidState(int uid) {
+    UidState state = mUids.get(uid);
+    if (state == null) {
+      state = new UidState();
+      state.mHiddenSince = SystemClock.uptimeMillis();
+      mUids.put(uid, state);
+    }
+    return state;
+  }
+
+  private void scheduleHide() {
+    if (mEnabled) {
+      mHandler.removeCallbacks(mHideRunnable);
+      reportHidden();
+    }
+  }
+
+  /** Reports the uids hidden for the hide delay, and runs again when the next one will be. */
+  private void reportHidden() {
+    if (!mEnabled) {
+      return;
+    }
+    long now = SystemClock.uptimeMillis();
+    long next = Long.MAX_VALUE;
+    for (int i = 0; i < mUids.size(); i++) {
+      UidState state = mUids.valueAt(i);
+      if (state.mVisibleViews > 0 || state.mReportedHidden) {
+        continue;
+      }
+      long due = state.mHiddenSince + mHideDelay;
+      if (due <= now) {
+        state.mReportedHidden = true;
+        mListener.onVisibilityChanged(mUids.keyAt(i), false);
+      } else {
+        next = Math.min(next, due);
+      }
+    }
+    if (next != Long.MAX_VALUE) {
+      mHandler.postAtTime(mHideRunnable, next);
+    }
+  }
+}
@@ -0,0 +1,199 @@
+package io.agora.agorartcengine;
+
+import android.util.SparseIntArray;
+
+import java.util.Map;
+
+import io.agora.rtc.IRtcEngineEventHandler.AudioVolumeInfo;
+
+/**
+ * Reduces audio volume indications before they are sent to Dart, and packs the result into a
+ * single int array: totalVolume, count, then count x (uid, volume).
+ *
+ * In top-K mode only the K loudest speakers of each indication are kept. In delta mode only the
+ * uids whose volume moved by at least the threshold since it was last sent are kept; remote uids
+ * missing from a remote indication count as silent. An indication with no speakers left and an
+ * unchanged total volume is not sent at all.
+ *
+ * The SDK reports the local user (uid 0) and the remote users in separate indications, so the
+ * last total volume is kept for each kind. Called on the SDK callback thread.
+ *
+ * As a {@link AgoraEventDispatcher.Coalescer}, it merges queued delta indications so that the
+ * speakers of the replaced indication are not lost.
+ */
+class AgoraVolumeIndicationFilter implements AgoraEventDispatcher.Coalescer {
+  static final int MODE_ALL = 0;
+  static final int MODE_TOP_K = 1;
+  static final int MODE_DELTA = 2;
+
+  private static final AudioVolumeInfo[] NO_SPEAKERS = new AudioVolumeInfo[0];
+
+  private volatile int mMode = MODE_ALL;
+  private int mTopK;
+  private int mThreshold;
+  private final SparseIntArray mLastVolumes = new SparseIntArray();
+  private int mLastLocalTotalVolume;
+  private int mLastRemoteTotalVolume;
+  private int[] mScratch = new int[0];
+
+  boolean isEnabled() {
+    return mMode != MODE_ALL;
+  }
+
+  synchronized void setMode(int mode, int topK, int threshold) {
+    mTopK = Math.max(topK, 1);
+    mThreshold = Math.max(threshold, 0);
+    mLastVolumes.clear();
+    mLastLocalTotalVolume = 0;
+    mLastRemoteTotalVolume = 0;
+    mMode = mode;
+  }
+
+  /** Returns the packed indication, or null when there is nothing worth sending. */
+  synchronized int[] filter(AudioVolumeInfo[] speakers, int totalVolume) {
+    if (speakers == null) {
+      speakers = NO_SPEAKERS;
+    }
+    boolean local = speakers.length == 1 && speakers[0].uid == 0;
+    int lastTotalVolume = local ? mLastLocalTotalVolume : mLastRemoteTotalVolume;
+    int count = (mMode == MODE_TOP_K) ? selectTopK(speakers) : selectChanged(speakers, local);
+
+    if (count == 0 && Math.abs(totalVolume - lastTotalVolume) < Math.max(mThreshold, 1)) {
+      return null;
+    }
+    if (local) {
+      mLastLocalTotalVolume = totalVolume;
+    } else {
+      mLastRemoteTotalVolume = totalVolume;
+    }
+
+    int[] packed = new int[2 + count * 2];
+    packed[0] = totalVolume;
+    packed[1] = count;
+    System.arraycopy(mScratch, 0, packed, 2, count * 2);
+    return packed;
+  }
+
+  /** Keeps the K loudest speakers in mScratch, loudest first. */
+  private int selectTopK(AudioVolumeInfo[] speakers) {
+    ensureScratch(mTopK);
+    int count = 0;
+    for (AudioVolumeInfo info : speakers) {
+      int i = count;
+      while (i > 0 && mScratch[(i - 1) * 2 + 1] < info.volume) {
+        if (i < mTopK) {
+          mScratch[i * 2] = mScratch[(i - 1) * 2];
+          mScratch[i * 2 + 1] = mScratch[(i - 1) * 2 + 1];
+        }
+        i--;
+      }
+      if (i < mTopK) {
+        mScratch[i * 2] = info.uid;
+        mScratch[i * 2 + 1] = info.volume;
+        count = Math.min(count + 1, mTopK);
+      }
+    }
+    return count;
+  }
+
+  /** Keeps the speakers whose volume changed by at least the threshold in mScratch. */
+  private int selectChanged(AudioVolumeInfo[] speakers, boolean local) {
+    ensureScratch(speakers.length + (local ? 0 : mLastVolumes.size()));
+    int count = 0;
+    for (AudioVolumeInfo info : speakers) {
+      int index = mLastVolumes.indexOfKey(info.uid);
+      if (index < 0 || Math.abs(info.volume - mLastVolumes.valueAt(index)) >= mThreshold) {
+        mScratch[count * 2] = info.uid;
+        mScratch[count * 2 + 1] = info.volume;
+        count++;
+      }
+    }
+    if (!local) {
+      // Remote uids that are no longer reported fell silent.
+      for (int i = 0; i < mLastVolumes.size(); i++) {
+        int uid = mLastVolumes.keyAt(i);
+        if (uid != 0 && mLastVolumes.valueAt(i) >= Math.max(mThreshold, 1) && !contains(speakers, uid)) {
+          mScratch[count * 2] = uid;
+          mScratch[count * 2 + 1] = 0;
+          count++;
+        }
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      mLastVolumes.put(mScratch[i * 2], mScratch[i * 2 + 1]);
+    }
+    return count;
+  }
+
+  private static boolean contains(AudioVolumeInfo[] speakers, int uid) {
+    for (AudioVolumeInfo info : speakers) {
+      if (info.uid == uid) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void ensureScratch(int speakers) {
+    if (mScratch.length < speakers * 2) {
+      mScratch = new int[speakers * 2];
+    }
+  }
+
+  @Override
+  public Object coalesce(Object older, Object newer) {
+    if (mMode != MODE_DELTA || !(older instanceof Map) || !(newer instanceof Map)) {
+      return newer;
+    }
+    Object olderPacked = ((Map<?, ?>) older).get("packed");
+    Object newerPacked = ((Map<?, ?>) newer).get("packed");
+    if (!(olderPacked instanceof int[]) || !(newerPacked instanceof int[])) {
+      return newer;
+    }
+    int[] olderSpeakers = (int[]) olderPacked;
+    int[] newerSpeakers = (int[]) newerPacked;
+    int[] merged = new int[olderSpeakers.length + newerSpeakers.length - 2];
+    System.arraycopy(newerSpeakers, 0, merged, 0, newerSpeakers.length);
+    int count = newerSpeakers[1];
+    for (int i = 0; i < olderSpeakers[1]; i++) {
+      int uid = olderSpeakers[2 + i * 2];
+      if (!containsUid(newerSpeakers, uid)) {
+        merged[2 + count * 2] = uid;
+        merged[3 + count * 2] = olderSpeakers[3 + i * 2];
+        count++;
+      }
+    }
+    merged[1] = count;
+    @SuppressWarnings("unchecked")
+    Map<String, Object> map = (Map<String, Object>) newer;
+    map.put("packed", (count == olderSpeakers[1] + newerSpeakers[1]) ? merged : trim(merged, count));
+    return map;
+  }
+
+  private static boolean containsUid(int[] packed, int uid) {
+    for (int i = 0; i < packed[1]; i++) {
+      if (packed[2 + i * 2] == uid) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int[] trim(int[] packed, int count) {
+    int[] trimmed = new int[2 + count * 2];
+    System.arraycopy(packed, 0, trimmed, 0, trimmed.length);
+    return trimmed;
+  }
+
+  /** Forgets the last volume of a uid that went offline. */
+  synchronized void removeUid(int uid) {
+    mLastVolumes.delete(uid);
+  }
+
+  /** Forgets the last volumes, e.g. when the local user leaves the channel. */
+  synchronized void reset() {
+    mLastVolumes.clear();
+    mLastLocalTotalVolume = 0;
+    mLastRemoteTotalVolume = 0;
+  }
+}
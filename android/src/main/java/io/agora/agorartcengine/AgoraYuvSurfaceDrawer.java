@@ -0,0 +1,243 @@
+package io.agora.agorartcengine;
+
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLSurface;
+import android.opengl.GLES20;
+import android.view.Surface;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Draws I420 frames onto a surface with OpenGL ES 2.0, converting them to RGB and rotating them
+ * upright on the GPU.
+ *
+ * Each drawer has its own EGL context and window surface, made current on the calling thread for
+ * the duration of a frame only, so frames may come from any thread and the drawer can be released
+ * from another one. The planes are uploaded as luminance textures, reused while the frame size
+ * does not change. Requires API 17 for EGL14.
+ */
+class AgoraYuvSurfaceDrawer {
+  private static final int EGL_OPENGL_ES2_BIT = 4;
+
+  private static final String VERTEX_SHADER =
+      "attribute vec4 aPosition;\n"
+      + "attribute vec2 aTexCoord;\n"
+      + "varying vec2 vTexCoord;\n"
+      + "void main() {\n"
+      + "  gl_Position = aPosition;\n"
+      + "  vTexCoord = aTexCoord;\n"
+      + "}\n";
+
+  // BT.601 limited range, as the SDK's I420 frames.
+  private static final String FRAGMENT_SHADER =
+      "precision mediump float;\n"
+      + "varying vec2 vTexCoord;\n"
+      + "uniform sampler2D uY;\n"
+      + "uniform sampler2D uU;\n"
+      + "uniform sampler2D uV;\n"
+      + "void main() {\n"
+      + "  float y = 1.164 * (texture2D(uY, vTexCoord).r - 0.0625);\n"
+      + "  float u = texture2D(uU, vTexCoord).r - 0.5;\n"
+      + "  float v = texture2D(uV, vTexCoord).r - 0.5;\n"
+      + "  gl_FragColor = vec4(y + 1.596 * v, y - 0.392 * u - 0.813 * v, y + 2.017 * u, 1.0);\n"
+      + "}\n";
+
+  // Triangle strip covering the viewport: bottom-left, bottom-right, top-left, top-right.
+  private static final float[] POSITIONS = {-1f, -1f, 1f, -1f, -1f, 1f, 1f, 1f};
+  // The same corners in top-left based surface coordinates.
+  private static final float[] CORNERS = {0f, 1f, 1f, 1f, 0f, 0f, 1f, 0f};
+
+  private final Surface mSurface;
+  private EGLDisplay mDisplay = EGL14.EGL_NO_DISPLAY;
+  private EGLContext mContext = EGL14.EGL_NO_CONTEXT;
+  private EGLSurface mEglSurface = EGL14.EGL_NO_SURFACE;
+  private int mProgram;
+  private int mPositionLocation;
+  private int mTexCoordLocation;
+  private final int[] mTextures = new int[3];
+  private final FloatBuffer mPositions = floatBuffer(POSITIONS);
+  private final FloatBuffer mTexCoords = floatBuffer(new float[8]);
+  private final float[] mTexCoordValues = new float[8];
+  private int mTextureWidth;
+  private int mTextureHeight;
+  private int mRotation = -1;
+  private boolean mFailed;
+
+  AgoraYuvSurfaceDrawer(Surface surface) {
+    this.mSurface = surface;
+  }
+
+  /**
+   * Draws a tightly packed I420 frame, rotated clockwise by rotation, over the whole surface of
+   * surfaceWidth x surfaceHeight pixels. Returns false if the frame could not be drawn.
+   */
+  boolean draw(ByteBuffer frame, int width, int height, int rotation, int surfaceWidth, int surfaceHeight) {
+    if (mFailed || (mContext == EGL14.EGL_NO_CONTEXT && !setUp())) {
+      return false;
+    }
+    if (!EGL14.eglMakeCurrent(mDisplay, mEglSurface, mEglSurface, mContext)) {
+      return false;
+    }
+    try {
+      int chromaWidth = (width + 1) / 2;
+      int chromaHeight = (height + 1) / 2;
+      boolean resized = width != mTextureWidth || height != mTextureHeight;
+      mTextureWidth = width;
+      mTextureHeight = height;
+      GLES20.glPixelStorei(GLES20.GL_UNPACK_ALIGNMENT, 1);
+      int offset = frame.position();
+      upload(0, frame, offset, width, height, resized);
+      upload(1, frame, offset + width * height, chromaWidth, chromaHeight, resized);
+      upload(2, frame, offset + width * height + chromaWidth * chromaHeight, chromaWidth, chromaHeight, resized);
+      frame.position(offset);
+
+      if (rotation != mRotation) {
+        setTexCoords(rotation);
+        mRotation = rotation;
+      }
+      GLES20.glViewport(0, 0, surfaceWidth, surfaceHeight);
+      GLES20.glUseProgram(mProgram);
+      GLES20.glVertexAttribPointer(mPositionLocation, 2, GLES20.GL_FLOAT, false, 0, mPositions);
+      GLES20.glVertexAttribPointer(mTexCoordLocation, 2, GLES20.GL_FLOAT, false, 0, mTexCoords);
+      GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+      return EGL14.eglSwapBuffers(mDisplay, mEglSurface);
+    } finally {
+      EGL14.eglMakeCurrent(mDisplay, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_CONTEXT);
+    }
+  }
+
+  /** Destroys the EGL context and surface; the textures and program go with the context. */
+  void release() {
+    if (mContext != EGL14.EGL_NO_CONTEXT) {
+      EGL14.eglDestroySurface(mDisplay, mEglSurface);
+      EGL14.eglDestroyContext(mDisplay, mContext);
+    }
+    mEglSurface = EGL14.EGL_NO_SURFACE;
+    mContext = EGL14.EGL_NO_CONTEXT;
+    mFailed = true;
+  }
+
+  private boolean setUp() {
+    mDisplay = EGL14.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+    int[] version = new int[2];
+    if (!EGL14.eglInitialize(mDisplay, version, 0, version, 1)) {
+      mFailed = true;
+      return false;
+    }
+    int[] configAttributes = {
+        EGL14.EGL_RED_SIZE, 8,
+        EGL14.EGL_GREEN_SIZE, 8,
+        EGL14.EGL_BLUE_SIZE, 8,
+        EGL14.EGL_RENDERABLE_TYPE, EGL_OPENGL_ES2_BIT,
+        EGL14.EGL_NONE,
+    };
+    EGLConfig[] configs = new EGLConfig[1];
+    int[] configCount = new int[1];
+    if (!EGL14.eglChooseConfig(mDisplay, configAttributes, 0, configs, 0, 1, configCount, 0) || configCount[0] == 0) {
+      mFailed = true;
+      return false;
+    }
+    int[] contextAttributes = {EGL14.EGL_CONTEXT_CLIENT_VERSION, 2, EGL14.EGL_NONE};
+    mContext = EGL14.eglCreateContext(mDisplay, configs[0], EGL14.EGL_NO_CONTEXT, contextAttributes, 0);
+    if (mContext == EGL14.EGL_NO_CONTEXT) {
+      mFailed = true;
+      return false;
+    }
+    mEglSurface = EGL14.eglCreateWindowSurface(mDisplay, configs[0], mSurface, new int[] {EGL14.EGL_NONE}, 0);
+    if (mEglSurface == EGL14.EGL_NO_SURFACE
+        || !EGL14.eglMakeCurrent(mDisplay, mEglSurface, mEglSurface, mContext)) {
+      release();
+      return false;
+    }
+
+    mProgram = GLES20.glCreateProgram();
+    GLES20.glAttachShader(mProgram, compileShader(GLES20.GL_VERTEX_SHADER, VERTEX_SHADER));
+    GLES20.glAttachShader(mProgram, compileShader(GLES20.GL_FRAGMENT_SHADER, FRAGMENT_SHADER));
+    GLES20.glLinkProgram(mProgram);
+    GLES20.glUseProgram(mProgram);
+    mPositionLocation = GLES20.glGetAttribLocation(mProgram, "aPosition");
+    mTexCoordLocation = GLES20.glGetAttribLocation(mProgram, "aTexCoord");
+    GLES20.glEnableVertexAttribArray(mPositionLocation);
+    GLES20.glEnableVertexAttribArray(mTexCoordLocation);
+
+    GLES20.glGenTextures(3, mTextures, 0);
+    String[] samplers = {"uY", "uU", "uV"};
+    for (int i = 0; i < 3; i++) {
+      GLES20.glActiveTexture(GLES20.GL_TEXTURE0 + i);
+      GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextures[i]);
+      GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+      GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+      GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+      GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+      GLES20.glUniform1i(GLES20.glGetUniformLocation(mProgram, samplers[i]), i);
+    }
+    mTextureWidth = 0;
+    mTextureHeight = 0;
+    EGL14.eglMakeCurrent(mDisplay, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_CONTEXT);
+    return true;
+  }
+
+  private void upload(int plane, ByteBuffer frame, int offset, int width, int height, boolean resized) {
+    GLES20.glActiveTexture(GLES20.GL_TEXTURE0 + plane);
+    GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextures[plane]);
+    frame.position(offset);
+    if (resized) {
+      GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_LUMINANCE, width, height, 0,
+          GLES20.GL_LUMINANCE, GLES20.GL_UNSIGNED_BYTE, frame);
+    } else {
+      GLES20.glTexSubImage2D(GLES20.GL_TEXTURE_2D, 0, 0, 0, width, height,
+          GLES20.GL_LUMINANCE, GLES20.GL_UNSIGNED_BYTE, frame);
+    }
+  }
+
+  /**
+   * Maps each corner of the surface to the frame pixel shown there: a frame rotated clockwise by
+   * rotation shows at surface point (x, y) the frame point (y, 1 - x) for 90, (1 - x, 1 - y) for
+   * 180 and (1 - y, x) for 270.
+   */
+  private void setTexCoords(int rotation) {
+    for (int i = 0; i < 8; i += 2) {
+      float x = CORNERS[i];
+      float y = CORNERS[i + 1];
+      switch (rotation) {
+        case 90:
+          mTexCoordValues[i] = y;
+          mTexCoordValues[i + 1] = 1f - x;
+          break;
+        case 180:
+          mTexCoordValues[i] = 1f - x;
+          mTexCoordValues[i + 1] = 1f - y;
+          break;
+        case 270:
+          mTexCoordValues[i] = 1f - y;
+          mTexCoordValues[i + 1] = x;
+          break;
+        default:
+          mTexCoordValues[i] = x;
+          mTexCoordValues[i + 1] = y;
+      }
+    }
+    mTexCoords.clear();
+    mTexCoords.put(mTexCoordValues);
+    mTexCoords.position(0);
+  }
+
+  private static int compileShader(int type, String source) {
+    int shader = GLES20.glCreateShader(type);
+    GLES20.glShaderSource(shader, source);
+    GLES20.glCompileShader(shader);
+    return shader;
+  }
+
+  private static FloatBuffer floatBuffer(float[] values) {
+    FloatBuffer buffer = ByteBuffer.allocateDirect(values.length * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    buffer.put(values);
+    buffer.position(0);
+    return buffer;
+  }
+}
@@ -291,6 +291,23 @@
   else if ([@"switchCamera" isEqualToString:method]) {
     [self.agoraRtcEngine switchCamera];
   }
+  // Data Stream
+  else if ([@"createDataStream" isEqualToString:method]) {
+    BOOL reliable = [self boolFromArguments:arguments key:@"reliable"];
+    BOOL ordered = [self boolFromArguments:arguments key:@"ordered"];
+    NSInteger streamId = 0;
+    int ret = [self.agoraRtcEngine createDataStream:&streamId reliable:reliable ordered:ordered];
+    if (result) {
+      result(@(ret < 0 ? ret : streamId));
+    }
+  } else if ([@"sendStreamMessage" isEqualToString:method]) {
+    NSInteger streamId = [self intFromArguments:arguments key:@"streamId"];
+    FlutterStandardTypedData *message = arguments[@"message"];
+    BOOL success = (0 == [self.agoraRtcEngine sendStreamMessage:streamId data:message.data]);
+    if (result) {
+      result([NSNumber numberWithBool:success]);
+    }
+  }
   // Miscellaneous Methods
   else if ([@"getSdkVersion" isEqualToString:method]) {
     NSString *version = [AgoraRtcEngineKit getSdkVersion];
@@ -524,10 +541,7 @@
 }
 
 - (void)rtcEngine:(AgoraRtcEngineKit * _Nonnull)engine receiveStreamMessageFromUid:(NSUInteger)uid streamId:(NSInteger)streamId data:(NSData * _Nonnull)data {
-  NSString *message = [[NSString alloc] initWithData:data encoding:NSUTF8StringEncoding];
-  if (message) {
-    [self.methodChannel invokeMethod:@"onStreamMessage" arguments:@{@"uid": @(uid), @"streamId": @(streamId), @"message": message}];
-  }
+  [self.methodChannel invokeMethod:@"onStreamMessage" arguments:@{@"uid": @(uid), @"streamId": @(streamId), @"data": [FlutterStandardTypedData typedDataWithBytes:data]}];
 }
 
 - (void)rtcEngine:(AgoraRtcEngineKit * _Nonnull)engine didOccurStreamMessageErrorFromUid:(NSUInteger)uid streamId:(NSInteger)streamId error:(NSInteger)error missed:(NSInteger)missed cached:(NSInteger)cached {
@@ -1,221 +1,684 @@
 import 'dart:async';
+import 'dart:convert';
+import 'dart:typed_data';
 import 'dart:io';
+import 'dart:ui' show CallbackHandle, PluginUtilities;
 import 'package:flutter/material.dart';
 import 'package:flutter/services.dart';
 
 class AgoraRtcEngine {
   static const MethodChannel _channel = const MethodChannel('agora_rtc_engine');
+  static const BasicMessageChannel<ByteData> _eventChannel =
+      const BasicMessageChannel<ByteData>(
+          'agora_rtc_engine/events', const BinaryCodec());
+  static const BasicMessageChannel<ByteData> _audioFrameChannel =
+      const BasicMessageChannel<ByteData>(
+          'agora_rtc_engine/audio_frames', const BinaryCodec());
+  static const BasicMessageChannel<ByteData> _videoFrameChannel =
+      const BasicMessageChannel<ByteData>(
+          'agora_rtc_engine/video_frames', const BinaryCodec());
 
   // Core Events
   /// Reports a warning during SDK runtime.
   ///
   /// In most cases, the app can ignore the warning reported by the SDK because the SDK can usually fix the issue and resume running.
-  static void Function(int warn) onWarning;
+  static void Function(int warn) get onWarning => _onWarning;
+  static set onWarning(void Function(int warn) handler) {
+    _onWarning = handler;
+    _updateEventSubscription('onWarning', handler != null);
+  }
+
+  static void Function(int warn) _onWarning;
 
   /// Reports an error during SDK runtime.
   ///
   /// In most cases, the SDK cannot fix the issue and resume running. The SDK requires the app to take action or informs the user about the issue.
-  static void Function(int err) onError;
+  static void Function(int err) get onError => _onError;
+  static set onError(void Function(int err) handler) {
+    _onError = handler;
+    _updateEventSubscription('onError', handler != null);
+  }
+
+  static void Function(int err) _onError;
 
   /// Occurs when a user joins a specified channel.
   ///
   /// The channel name assignment is based on channelName specified in the [joinChannel] method.
   /// If the uid is not specified when [joinChannel] is called, the server automatically assigns a uid.
   static void Function(String channel, int uid, int elapsed)
-      onJoinChannelSuccess;
+      get onJoinChannelSuccess => _onJoinChannelSuccess;
+  static set onJoinChannelSuccess(
+      void Function(String channel, int uid, int elapsed) handler) {
+    _onJoinChannelSuccess = handler;
+    _updateEventSubscription('onJoinChannelSuccess', handler != null);
+  }
+
+  static void Function(String channel, int uid, int elapsed)
+      _onJoinChannelSuccess;
 
   /// Occurs when a user rejoins the channel after being disconnected due to network problems.
   ///
   /// When a user loses connection with the server because of network problems, the SDK automatically tries to reconnect and triggers this callback upon reconnection.
   static void Function(String channel, int uid, int elapsed)
-      onRejoinChannelSuccess;
+      get onRejoinChannelSuccess => _onRejoinChannelSuccess;
+  static set onRejoinChannelSuccess(
+      void Function(String channel, int uid, int elapsed) handler) {
+    _onRejoinChannelSuccess = handler;
+    _updateEventSubscription('onRejoinChannelSuccess', handler != null);
+  }
+
+  static void Function(String channel, int uid, int elapsed)
+      _onRejoinChannelSuccess;
 
   /// Occurs when a user leaves the channel.
   ///
   /// When the app calls the [leaveChannel] method, the SDK uses this callback to notify the app when the user leaves the channel.
-  static VoidCallback onLeaveChannel;
+  static VoidCallback get onLeaveChannel => _onLeaveChannel;
+  static set onLeaveChannel(VoidCallback handler) {
+    _onLeaveChannel = handler;
+    _updateEventSubscription('onLeaveChannel', handler != null);
+  }
+
+  static VoidCallback _onLeaveChannel;
 
   /// Occurs when the user role switches in a live broadcast.
   static void Function(ClientRole oldRole, ClientRole newRole)
-      onClientRoleChanged;
+      get onClientRoleChanged => _onClientRoleChanged;
+  static set onClientRoleChanged(
+      void Function(ClientRole oldRole, ClientRole newRole) handler) {
+    _onClientRoleChanged = handler;
+    _updateEventSubscription('onClientRoleChanged', handler != null);
+  }
+
+  static void Function(ClientRole oldRole, ClientRole newRole)
+      _onClientRoleChanged;
 
   /// Occurs when a remote user (Communication)/host (Live Broadcast) joins the channel.
   ///
   /// Communication profile: This callback notifies the app when another user joins the channel. If other users are already in the channel, the SDK also reports to the app on the existing users.
   /// Live-broadcast profile: This callback notifies the app when the host joins the channel. If other hosts are already in the channel, the SDK also reports to the app on the existing hosts. Agora recommends having at most 17 hosts in a channel
-  static void Function(int uid, int elapsed) onUserJoined;
+  static void Function(int uid, int elapsed) get onUserJoined => _onUserJoined;
+  static set onUserJoined(void Function(int uid, int elapsed) handler) {
+    _onUserJoined = handler;
+    _updateEventSubscription('onUserJoined', handler != null);
+  }
+
+  static void Function(int uid, int elapsed) _onUserJoined;
 
   /// Occurs when a remote user (Communication)/host (Live Broadcast) leaves the channel.
   ///
   /// There are two reasons for users to become offline:
   /// 1. Leave the channel: When the user/host leaves the channel, the user/host sends a goodbye message. When this message is received, the SDK determines that the user/host leaves the channel.
   /// 2. Drop offline: When no data packet of the user or host is received for a certain period of time (20 seconds for the communication profile, and more for the live broadcast profile), the SDK assumes that the user/host drops offline. A poor network connection may lead to false detections, so Agora recommends using the signaling system for reliable offline detection.
-  static void Function(int uid, int elapsed) onUserOffline;
+  static void Function(int uid, int elapsed)
+      get onUserOffline => _onUserOffline;
+  static set onUserOffline(void Function(int uid, int elapsed) handler) {
+    _onUserOffline = handler;
+    _updateEventSubscription('onUserOffline', handler != null);
+  }
+
+  static void Function(int uid, int elapsed) _onUserOffline;
 
   /// Occurs when the network connection state changes.
-  static void Function(int state, int reason) onConnectionStateChanged;
+  static void Function(int state, int reason)
+      get onConnectionStateChanged => _onConnectionStateChanged;
+  static set onConnectionStateChanged(
+      void Function(int state, int reason) handler) {
+    _onConnectionStateChanged = handler;
+    _updateEventSubscription('onConnectionStateChanged', handler != null);
+  }
+
+  static void Function(int state, int reason) _onConnectionStateChanged;
 
   /// Occurs when the local network type changes.
   ///
   /// When the network connection is interrupted, this callback indicates whether the interruption is caused by a network type change or poor network conditions.
-  static void Function(int type) onNetworkTypeChanged;
+  static void Function(int type)
+      get onNetworkTypeChanged => _onNetworkTypeChanged;
+  static set onNetworkTypeChanged(void Function(int type) handler) {
+    _onNetworkTypeChanged = handler;
+    _updateEventSubscription('onNetworkTypeChanged', handler != null);
+  }
+
+  static void Function(int type) _onNetworkTypeChanged;
 
   /// Occurs when the SDK cannot reconnect to Agora's edge server 10 seconds after its connection to the server is interrupted.
   ///
   /// The SDK triggers this callback when it cannot connect to the server 10 seconds after calling [joinChannel], regardless of whether it is in the channel or not.
-  static VoidCallback onConnectionLost;
+  static VoidCallback get onConnectionLost => _onConnectionLost;
+  static set onConnectionLost(VoidCallback handler) {
+    _onConnectionLost = handler;
+    _updateEventSubscription('onConnectionLost', handler != null);
+  }
+
+  static VoidCallback _onConnectionLost;
 
   /// Occurs when an API method is executed.
-  static void Function(int error, String api, String result) onApiCallExecuted;
+  static void Function(int error, String api, String result)
+      get onApiCallExecuted => _onApiCallExecuted;
+  static set onApiCallExecuted(
+      void Function(int error, String api, String result) handler) {
+    _onApiCallExecuted = handler;
+    _updateEventSubscription('onApiCallExecuted', handler != null);
+  }
+
+  static void Function(int error, String api, String result) _onApiCallExecuted;
 
   /// Occurs when the token expires in 30 seconds.
-  static void Function(String token) onTokenPrivilegeWillExpire;
+  static void Function(String token)
+      get onTokenPrivilegeWillExpire => _onTokenPrivilegeWillExpire;
+  static set onTokenPrivilegeWillExpire(void Function(String token) handler) {
+    _onTokenPrivilegeWillExpire = handler;
+    _updateEventSubscription('onTokenPrivilegeWillExpire', handler != null);
+  }
+
+  static void Function(String token) _onTokenPrivilegeWillExpire;
 
   /// Occurs when the token expires.
-  static VoidCallback onRequestToken;
+  static VoidCallback get onRequestToken => _onRequestToken;
+  static set onRequestToken(VoidCallback handler) {
+    _onRequestToken = handler;
+    _updateEventSubscription('onRequestToken', handler != null);
+  }
+
+  static VoidCallback _onRequestToken;
 
   // Media Events
   /// Occurs when the microphone is enabled/disabled.
-  static void Function(bool enabled) onMicrophoneEnabled;
+  static void Function(bool enabled)
+      get onMicrophoneEnabled => _onMicrophoneEnabled;
+  static set onMicrophoneEnabled(void Function(bool enabled) handler) {
+    _onMicrophoneEnabled = handler;
+    _updateEventSubscription('onMicrophoneEnabled', handler != null);
+  }
+
+  static void Function(bool enabled) _onMicrophoneEnabled;
 
   /// Reports which users are speaking and the speakers' volume.
   ///
   /// This callback reports the ID and volume of the loudest speakers at the moment in the channel. This callback is disabled by default and can be enabled by the [enableAudioVolumeIndication] method.
   static void Function(int totalVolume, List<AudioVolumeInfo> speakers)
-      onAudioVolumeIndication;
+      get onAudioVolumeIndication => _onAudioVolumeIndication;
+  static set onAudioVolumeIndication(
+      void Function(int totalVolume, List<AudioVolumeInfo> speakers) handler) {
+    _onAudioVolumeIndication = handler;
+    _updateEventSubscription('onAudioVolumeIndication', handler != null);
+  }
+
+  static void Function(int totalVolume, List<AudioVolumeInfo> speakers)
+      _onAudioVolumeIndication;
 
   /// Reports which user is the loudest speaker.
   ///
   /// If the user enables the audio volume indication by calling [enableAudioVolumeIndication], this callback returns the uid of the active speaker whose voice is detected by the audio volume detection module of the SDK.
-  static void Function(int uid) onActiveSpeaker;
+  static void Function(int uid) get onActiveSpeaker => _onActiveSpeaker;
+  static set onActiveSpeaker(void Function(int uid) handler) {
+    _onActiveSpeaker = handler;
+    _updateEventSubscription('onActiveSpeaker', handler != null);
+  }
+
+  static void Function(int uid) _onActiveSpeaker;
 
   /// Occurs when the first local audio frame is sent.
-  static void Function(int elapsed) onFirstLocalAudioFrame;
+  static void Function(int elapsed)
+      get onFirstLocalAudioFrame => _onFirstLocalAudioFrame;
+  static set onFirstLocalAudioFrame(void Function(int elapsed) handler) {
+    _onFirstLocalAudioFrame = handler;
+    _updateEventSubscription('onFirstLocalAudioFrame', handler != null);
+  }
+
+  static void Function(int elapsed) _onFirstLocalAudioFrame;
 
   /// Occurs when the first remote audio frame is received.
-  static void Function(int uid, int elapsed) onFirstRemoteAudioFrame;
+  static void Function(int uid, int elapsed)
+      get onFirstRemoteAudioFrame => _onFirstRemoteAudioFrame;
+  static set onFirstRemoteAudioFrame(
+      void Function(int uid, int elapsed) handler) {
+    _onFirstRemoteAudioFrame = handler;
+    _updateEventSubscription('onFirstRemoteAudioFrame', handler != null);
+  }
+
+  static void Function(int uid, int elapsed) _onFirstRemoteAudioFrame;
 
   /// Occurs when the SDK decodes the first remote audio frame for playback.
-  static void Function(int uid, int elapsed) onFirstRemoteAudioDecoded;
+  static void Function(int uid, int elapsed)
+      get onFirstRemoteAudioDecoded => _onFirstRemoteAudioDecoded;
+  static set onFirstRemoteAudioDecoded(
+      void Function(int uid, int elapsed) handler) {
+    _onFirstRemoteAudioDecoded = handler;
+    _updateEventSubscription('onFirstRemoteAudioDecoded', handler != null);
+  }
+
+  static void Function(int uid, int elapsed) _onFirstRemoteAudioDecoded;
 
   /// Occurs when the first local video frame is sent.
   ///
   /// This callback is triggered after the first local video frame is rendered on the video window.
   static void Function(int width, int height, int elapsed)
-      onFirstLocalVideoFrame;
+      get onFirstLocalVideoFrame => _onFirstLocalVideoFrame;
+  static set onFirstLocalVideoFrame(
+      void Function(int width, int height, int elapsed) handler) {
+    _onFirstLocalVideoFrame = handler;
+    _updateEventSubscription('onFirstLocalVideoFrame', handler != null);
+  }
+
+  static void Function(int width, int height, int elapsed)
+      _onFirstLocalVideoFrame;
 
   /// Occurs when the first remote video frame is decoded.
   ///
   /// This callback is triggered after the first frame of the remote video is received and decoded. The app can configure the user view settings with this callback.
   static void Function(int uid, int width, int height, int elapsed)
-      onFirstRemoteVideoDecoded;
+      get onFirstRemoteVideoDecoded => _onFirstRemoteVideoDecoded;
+  static set onFirstRemoteVideoDecoded(
+      void Function(int uid, int width, int height, int elapsed) handler) {
+    _onFirstRemoteVideoDecoded = handler;
+    _updateEventSubscription('onFirstRemoteVideoDecoded', handler != null);
+  }
+
+  static void Function(int uid, int width, int height, int elapsed)
+      _onFirstRemoteVideoDecoded;
 
   /// Occurs when the first remote video frame is rendered.
   ///
   /// This callback is triggered after the first frame of the remote video is rendered on the video window. The application can retrieve the data of the time elapsed from the user joining the channel until the first video frame is displayed.
   static void Function(int uid, int width, int height, int elapsed)
-      onFirstRemoteVideoFrame;
+      get onFirstRemoteVideoFrame => _onFirstRemoteVideoFrame;
+  static set onFirstRemoteVideoFrame(
+      void Function(int uid, int width, int height, int elapsed) handler) {
+    _onFirstRemoteVideoFrame = handler;
+    _updateEventSubscription('onFirstRemoteVideoFrame', handler != null);
+  }
+
+  static void Function(int uid, int width, int height, int elapsed)
+      _onFirstRemoteVideoFrame;
 
   /// Occurs when a remote user's audio stream is muted/unmuted.
-  static void Function(int uid, bool muted) onUserMuteAudio;
+  static void Function(int uid, bool muted)
+      get onUserMuteAudio => _onUserMuteAudio;
+  static set onUserMuteAudio(void Function(int uid, bool muted) handler) {
+    _onUserMuteAudio = handler;
+    _updateEventSubscription('onUserMuteAudio', handler != null);
+  }
+
+  static void Function(int uid, bool muted) _onUserMuteAudio;
 
   /// Occurs when a remote user's video stream playback pauses/resumes.
-  static void Function(int uid, bool muted) onUserMuteVideo;
+  static void Function(int uid, bool muted)
+      get onUserMuteVideo => _onUserMuteVideo;
+  static set onUserMuteVideo(void Function(int uid, bool muted) handler) {
+    _onUserMuteVideo = handler;
+    _updateEventSubscription('onUserMuteVideo', handler != null);
+  }
+
+  static void Function(int uid, bool muted) _onUserMuteVideo;
 
   /// Occurs when a remote user enables/disables the video module.
   ///
   /// Once the video module is disabled, the remote user can only use a voice call. The remote user cannot send or receive any video from other users.
-  static void Function(int uid, bool enabled) onUserEnableVideo;
+  static void Function(int uid, bool enabled)
+      get onUserEnableVideo => _onUserEnableVideo;
+  static set onUserEnableVideo(void Function(int uid, bool enabled) handler) {
+    _onUserEnableVideo = handler;
+    _updateEventSubscription('onUserEnableVideo', handler != null);
+  }
+
+  static void Function(int uid, bool enabled) _onUserEnableVideo;
 
   /// Occurs when a remote user enables/disables the local video capture function.
   ///
   /// This callback is only applicable to the scenario when the remote user only wants to watch the remote video without sending any video stream to the other user.
-  static void Function(int uid, bool enabled) onUserEnableLocalVideo;
+  static void Function(int uid, bool enabled)
+      get onUserEnableLocalVideo => _onUserEnableLocalVideo;
+  static set onUserEnableLocalVideo(
+      void Function(int uid, bool enabled) handler) {
+    _onUserEnableLocalVideo = handler;
+    _updateEventSubscription('onUserEnableLocalVideo', handler != null);
+  }
+
+  static void Function(int uid, bool enabled) _onUserEnableLocalVideo;
 
   /// Occurs when the video size or rotation information of a specified remote user changes.
   static void Function(int uid, double width, double height, int rotation)
-      onVideoSizeChanged;
+      get onVideoSizeChanged => _onVideoSizeChanged;
+  static set onVideoSizeChanged(
+      void Function(int uid, double width, double height, int rotation)
+          handler) {
+    _onVideoSizeChanged = handler;
+    _updateEventSubscription('onVideoSizeChanged', handler != null);
+  }
+
+  static void Function(int uid, double width, double height, int rotation)
+      _onVideoSizeChanged;
 
   /// Occurs when the remote video stream state changes.
-  static void Function(int uid, int state) onRemoteVideoStateChanged;
+  static void Function(int uid, int state)
+      get onRemoteVideoStateChanged => _onRemoteVideoStateChanged;
+  static set onRemoteVideoStateChanged(
+      void Function(int uid, int state) handler) {
+    _onRemoteVideoStateChanged = handler;
+    _updateEventSubscription('onRemoteVideoStateChanged', handler != null);
+  }
+
+  static void Function(int uid, int state) _onRemoteVideoStateChanged;
 
   // Fallback Events
   /// Occurs when the published media stream falls back to an audio-only stream due to poor network conditions or switches back to video stream after the network conditions improve.
   ///
   /// If you call [setLocalPublishFallbackOption] and set option as STREAM_FALLBACK_OPTION_AUDIO_ONLY(2), this callback is triggered when the locally published stream falls back to audio-only mode due to poor uplink conditions, or when the audio stream switches back to the video after the uplink network condition improves.
   static void Function(bool isFallbackOrRecover)
-      onLocalPublishFallbackToAudioOnly;
+      get onLocalPublishFallbackToAudioOnly =>
+          _onLocalPublishFallbackToAudioOnly;
+  static set onLocalPublishFallbackToAudioOnly(
+      void Function(bool isFallbackOrRecover) handler) {
+    _onLocalPublishFallbackToAudioOnly = handler;
+    _updateEventSubscription(
+        'onLocalPublishFallbackToAudioOnly', handler != null);
+  }
+
+  static void Function(bool isFallbackOrRecover)
+      _onLocalPublishFallbackToAudioOnly;
 
   /// Occurs when the subscribed media stream falls back to audio-only stream due to poor network conditions or switches back to video stream after the network conditions improve.
   ///
   /// If you call [setRemoteSubscribeFallbackOption] and set option as STREAM_FALLBACK_OPTION_AUDIO_ONLY(2), this callback is triggered when the remotely subscribed media stream falls back to audio-only mode due to poor uplink conditions, or when the remotely subscribed media stream switches back to the video after the uplink network condition improves.
   static void Function(int uid, bool isFallbackOrRecover)
-      onRemoteSubscribeFallbackToAudioOnly;
+      get onRemoteSubscribeFallbackToAudioOnly =>
+          _onRemoteSubscribeFallbackToAudioOnly;
+  static set onRemoteSubscribeFallbackToAudioOnly(
+      void Function(int uid, bool isFallbackOrRecover) handler) {
+    _onRemoteSubscribeFallbackToAudioOnly = handler;
+    _updateEventSubscription(
+        'onRemoteSubscribeFallbackToAudioOnly', handler != null);
+  }
+
+  static void Function(int uid, bool isFallbackOrRecover)
+      _onRemoteSubscribeFallbackToAudioOnly;
 
   // Device Events
   /// Occurs when the local audio pkayout route changes.
   ///
   /// This callback returns that the audio route switched to an earpiece, speakerphone, headset, or Bluetooth device.
-  static void Function(int routing) onAudioRouteChanged;
+  static void Function(int routing)
+      get onAudioRouteChanged => _onAudioRouteChanged;
+  static set onAudioRouteChanged(void Function(int routing) handler) {
+    _onAudioRouteChanged = handler;
+    _updateEventSubscription('onAudioRouteChanged', handler != null);
+  }
+
+  static void Function(int routing) _onAudioRouteChanged;
 
   /// Occurs when the local video stream state changes.
   ///
   /// The SDK returns the current video state in this callback.
   static void Function(
           LocalVideoStreamState localVideoState, LocalVideoStreamError error)
-      onLocalVideoStateChanged;
+      get onLocalVideoStateChanged => _onLocalVideoStateChanged;
+  static set onLocalVideoStateChanged(
+      void Function(LocalVideoStreamState localVideoState,
+              LocalVideoStreamError error)
+          handler) {
+    _onLocalVideoStateChanged = handler;
+    _updateEventSubscription('onLocalVideoStateChanged', handler != null);
+  }
+
+  static void Function(
+          LocalVideoStreamState localVideoState, LocalVideoStreamError error)
+      _onLocalVideoStateChanged;
 
   // Statistics Events
   /// Reports the statistics of the audio stream from each remote user/host.
   ///
   /// The SDK triggers this callback once every two seconds for each remote user/host. If a channel includes multiple remote users, the SDK triggers this callback as many times.
-  static void Function(RemoteAudioStats stats) onRemoteAudioStats;
+  static void Function(RemoteAudioStats stats)
+      get onRemoteAudioStats => _onRemoteAudioStats;
+  static set onRemoteAudioStats(void Function(RemoteAudioStats stats) handler) {
+    _onRemoteAudioStats = handler;
+    _updateEventSubscription('onRemoteAudioStats', handler != null);
+  }
+
+  static void Function(RemoteAudioStats stats) _onRemoteAudioStats;
 
   /// Reports the statistics of the RtcEngine once every two seconds.
-  static void Function(RtcStats stats) onRtcStats;
+  static void Function(RtcStats stats) get onRtcStats => _onRtcStats;
+  static set onRtcStats(void Function(RtcStats stats) handler) {
+    _onRtcStats = handler;
+    _updateEventSubscription('onRtcStats', handler != null);
+  }
+
+  static void Function(RtcStats stats) _onRtcStats;
 
   /// Reports the last mile network quality of each user in the channel once every two seconds.
   ///
   /// Last mile refers to the connection between the local device and Agora's edge server. This callback reports once every two seconds the uplink last mile network conditions of each user in the channel. If a channel includes multiple users, then this callback will be triggered as many times.
-  static void Function(int uid, int txQuality, int rxQuality) onNetworkQuality;
+  static void Function(int uid, int txQuality, int rxQuality)
+      get onNetworkQuality => _onNetworkQuality;
+  static set onNetworkQuality(
+      void Function(int uid, int txQuality, int rxQuality) handler) {
+    _onNetworkQuality = handler;
+    _updateEventSubscription('onNetworkQuality', handler != null);
+  }
+
+  static void Function(int uid, int txQuality, int rxQuality) _onNetworkQuality;
 
   /// Reports the statistics of the uploading local video streams.
   ///
   /// This callback is triggered once every two seconds for each individual user/host. If there are multiple users/hosts in the channel, this callback is triggered multiple times every 2 seconds.
-  static void Function(LocalVideoStats stats) onLocalVideoStats;
+  static void Function(LocalVideoStats stats)
+      get onLocalVideoStats => _onLocalVideoStats;
+  static set onLocalVideoStats(void Function(LocalVideoStats stats) handler) {
+    _onLocalVideoStats = handler;
+    _updateEventSubscription('onLocalVideoStats', handler != null);
+  }
+
+  static void Function(LocalVideoStats stats) _onLocalVideoStats;
 
   /// Reports the statistics of the video stream from each remote user/host.
   ///
   /// The SDK triggers this callback once every two seconds for each remote user/host. If a channel includes multiple remote users, the SDK triggers this callback as many times.
-  static void Function(RemoteVideoStats stats) onRemoteVideoStats;
+  static void Function(RemoteVideoStats stats)
+      get onRemoteVideoStats => _onRemoteVideoStats;
+  static set onRemoteVideoStats(void Function(RemoteVideoStats stats) handler) {
+    _onRemoteVideoStats = handler;
+    _updateEventSubscription('onRemoteVideoStats', handler != null);
+  }
+
+  static void Function(RemoteVideoStats stats) _onRemoteVideoStats;
 
   /// Reports the transport-layer statistics of each remote audio stream.
   ///
   /// This callback reports the transport-layer statistics, such as the packet loss rate and time delay, once every two seconds after the local user receives an audio packet from a remote user.
   static void Function(int uid, int delay, int lost, int rxKBitRate)
-      onRemoteAudioTransportStats;
+      get onRemoteAudioTransportStats => _onRemoteAudioTransportStats;
+  static set onRemoteAudioTransportStats(
+      void Function(int uid, int delay, int lost, int rxKBitRate) handler) {
+    _onRemoteAudioTransportStats = handler;
+    _updateEventSubscription('onRemoteAudioTransportStats', handler != null);
+  }
+
+  static void Function(int uid, int delay, int lost, int rxKBitRate)
+      _onRemoteAudioTransportStats;
 
   /// Reports the transport-layer statistics of each remote video stream.
   ///
   /// This callback reports the transport-layer statistics, such as the packet loss rate and time delay, once every two seconds after the local user receives the video packet from a remote user.
   static void Function(int uid, int delay, int lost, int rxKBitRate)
-      onRemoteVideoTransportStats;
+      get onRemoteVideoTransportStats => _onRemoteVideoTransportStats;
+  static set onRemoteVideoTransportStats(
+      void Function(int uid, int delay, int lost, int rxKBitRate) handler) {
+    _onRemoteVideoTransportStats = handler;
+    _updateEventSubscription('onRemoteVideoTransportStats', handler != null);
+  }
+
+  static void Function(int uid, int delay, int lost, int rxKBitRate)
+      _onRemoteVideoTransportStats;
+
+  /// Reports the min/avg/p50/p95/max of the recent stats of each user after [enableStatsAggregation] is called (Android only).
+  static void Function(List<StatsSummary> summaries) get onStatsSummary =>
+      _onStatsSummary;
+  static set onStatsSummary(
+      void Function(List<StatsSummary> summaries) handler) {
+    _onStatsSummary = handler;
+    _updateEventSubscription('onStatsSummary', handler != null);
+  }
+
+  static void Function(List<StatsSummary> summaries) _onStatsSummary;
+
+  // Data Stream Events
+  /// Occurs when the local user receives a data stream message from a remote user within 5 seconds.
+  ///
+  /// On Android, messages packed by [setDataStreamCoalescing] are delivered one by one once [setStreamMessageOptions] enables unpacking.
+  static void Function(int uid, int streamId, Uint8List data)
+      get onStreamMessage => _onStreamMessage;
+  static set onStreamMessage(
+      void Function(int uid, int streamId, Uint8List data) handler) {
+    _onStreamMessage = handler;
+    _updateStreamMessageSubscription();
+  }
+
+  static void Function(int uid, int streamId, Uint8List data)
+      _onStreamMessage;
+
+  /// Same as [onStreamMessage], with the message decoded as UTF-8 text.
+  ///
+  /// Call [setStreamMessageOptions] with `text: true` to have the text decoded natively when only this handler is used (Android only).
+  static void Function(int uid, int streamId, String message)
+      get onStreamTextMessage => _onStreamTextMessage;
+  static set onStreamTextMessage(
+      void Function(int uid, int streamId, String message) handler) {
+    _onStreamTextMessage = handler;
+    _updateStreamMessageSubscription();
+  }
+
+  static void Function(int uid, int streamId, String message)
+      _onStreamTextMessage;
+
+  /// Occurs when a packet of messages queued by [setDataStreamCoalescing] on [streamId] fails to send, with the number of [messages] it held and the SDK's [error] (Android only).
+  static void Function(int streamId, int messages, int error)
+      get onStreamMessageDropped => _onStreamMessageDropped;
+  static set onStreamMessageDropped(
+      void Function(int streamId, int messages, int error) handler) {
+    _onStreamMessageDropped = handler;
+    _updateEventSubscription('onStreamMessageDropped', handler != null);
+  }
+
+  static void Function(int streamId, int messages, int error)
+      _onStreamMessageDropped;
+
+  static void _updateStreamMessageSubscription() {
+    _updateEventSubscription('onStreamMessage',
+        _onStreamMessage != null || _onStreamTextMessage != null);
+  }
+
+  /// Occurs when the local user fails to receive a data stream message from a remote user within 5 seconds.
+  static void Function(
+          int uid, int streamId, int error, int missed, int cached)
+      get onStreamMessageError => _onStreamMessageError;
+  static set onStreamMessageError(
+      void Function(int uid, int streamId, int error, int missed, int cached)
+          handler) {
+    _onStreamMessageError = handler;
+    _updateEventSubscription('onStreamMessageError', handler != null);
+  }
+
+  static void Function(
+      int uid, int streamId, int error, int missed, int cached)
+      _onStreamMessageError;
 
   // Miscellaneous Events
   /// Occurs when the media engine is loaded.
-  static VoidCallback onMediaEngineLoadSuccess;
+  static VoidCallback get onMediaEngineLoadSuccess => _onMediaEngineLoadSuccess;
+  static set onMediaEngineLoadSuccess(VoidCallback handler) {
+    _onMediaEngineLoadSuccess = handler;
+    _updateEventSubscription('onMediaEngineLoadSuccess', handler != null);
+  }
+
+  static VoidCallback _onMediaEngineLoadSuccess;
 
   /// Occurs when the media engine starts.
-  static VoidCallback onMediaEngineStartCallSuccess;
+  static VoidCallback
+      get onMediaEngineStartCallSuccess => _onMediaEngineStartCallSuccess;
+  static set onMediaEngineStartCallSuccess(VoidCallback handler) {
+    _onMediaEngineStartCallSuccess = handler;
+    _updateEventSubscription('onMediaEngineStartCallSuccess', handler != null);
+  }
+
+  static VoidCallback _onMediaEngineStartCallSuccess;
+
+  /// Occurs when the engine requested by [prewarm] is created, after [elapsed] milliseconds (Android only).
+  ///
+  /// [error] describes why the engine could not be created, or is null.
+  static void Function(String appId, int elapsed, String error)
+      get onEnginePrewarmed => _onEnginePrewarmed;
+  static set onEnginePrewarmed(
+      void Function(String appId, int elapsed, String error) handler) {
+    _onEnginePrewarmed = handler;
+    _updateEventSubscription('onEnginePrewarmed', handler != null);
+  }
+
+  static void Function(String appId, int elapsed, String error)
+      _onEnginePrewarmed;
+
+  /// Occurs when [create] returns the engine, after [elapsed] milliseconds (Android only).
+  ///
+  /// [warm] tells whether the engine was created by [prewarm]; [elapsed] then includes the time waiting for a prewarm still in progress.
+  static void Function(String appId, bool warm, int elapsed)
+      get onEngineCreated => _onEngineCreated;
+  static set onEngineCreated(
+      void Function(String appId, bool warm, int elapsed) handler) {
+    _onEngineCreated = handler;
+    _updateEventSubscription('onEngineCreated', handler != null);
+  }
+
+  static void Function(String appId, bool warm, int elapsed) _onEngineCreated;
+
+  /// Occurs when [enableEncoderAutoTuning] steps the video encoder configuration (Android only).
+  static void Function(EncoderAdjustment adjustment) get onEncoderAdjusted =>
+      _onEncoderAdjusted;
+  static set onEncoderAdjusted(
+      void Function(EncoderAdjustment adjustment) handler) {
+    _onEncoderAdjusted = handler;
+    _updateEventSubscription('onEncoderAdjusted', handler != null);
+  }
+
+  static void Function(EncoderAdjustment adjustment) _onEncoderAdjusted;
+
+  // Raw Data Events
+  /// Delivers a chunk of raw PCM audio after [enableAudioFrameStreaming] is called (Android only).
+  ///
+  /// The chunk's samples are only valid during the callback, copy them to keep them.
+  static void Function(AudioFrameChunk chunk) onAudioFrame;
+
+  /// Delivers a downscaled video frame after [setVideoFrameSampling] is called (Android only).
+  ///
+  /// The frame's pixels are only valid during the callback, copy them to keep them.
+  static void Function(VideoFrameSample sample) onVideoFrameSample;
 
   // Core Methods
   /// Creates an RtcEngine instance.
   ///
   /// The Agora SDK only supports one RtcEngine instance at a time, therefore the app should create one RtcEngine object only.
   /// Only users with the same App ID can join the same channel and call each other.
-  static Future<void> create(String appid) async {
+  ///
+  /// With [fakeEngine], an in-process fake engine that simulates a channel at the configured load is created instead, for load tests without a network (Android only). See [getFakeEngineReport].
+  static Future<void> create(String appid,
+      {FakeEngineConfig fakeEngine}) async {
+    _addMethodCallHandler();
+    _scheduleEventSubscriptionsUpdate();
+    return await _channel.invokeMethod('create', {
+      'appId': appid,
+      'fakeEngine': fakeEngine?._jsonMap(),
+    });
+  }
+
+  /// Starts creating the RtcEngine instance for [appId] on a background thread, which loads the native libraries off the main thread (Android only).
+  ///
+  /// Call it at app start; a later [create] with the same App ID returns the warm engine, waiting for the prewarm if it is still in progress. [onEnginePrewarmed] reports when the engine is ready.
+  /// Returns false if the engine was already created.
+  static Future<bool> prewarm(String appId) async {
     _addMethodCallHandler();
-    return await _channel.invokeMethod('create', {'appId': appid});
+    _scheduleEventSubscriptionsUpdate();
+    return await _channel.invokeMethod('prewarm', {'appId': appId});
   }
 
   /// Destroys the RtcEngine instance and releases all resources used by the Agora SDK.
@@ -288,6 +751,22 @@ class AgoraRtcEngine {
     return state;
   }
 
+  /// Gets the engine state mirrored by the plugin in one call (Android only).
+  ///
+  /// The plugin tracks the state set through this class and reported by callbacks such as [onConnectionStateChanged], [onAudioRouteChanged], [onUserMuteAudio], [onUserMuteVideo] and [onClientRoleChanged]. On Android, [getConnectionState] and [isSpeakerphoneEnabled] are answered from the same state.
+  static Future<EngineStateSnapshot> getStateSnapshot() async {
+    final Map values = await _channel.invokeMethod('getStateSnapshot');
+    return EngineStateSnapshot._fromMap(values);
+  }
+
+  /// Enables/Disables skipping commands that would not change the mirrored engine state (Android only).
+  ///
+  /// When enabled, calls such as [muteLocalAudioStream], [muteRemoteVideoStream], [setClientRole] or [setEnableSpeakerphone] with the value already in [getStateSnapshot] complete without reaching the engine. Values the plugin does not know are always sent. Disabled by default.
+  static Future<void> enableRedundantCommandSkipping(bool enabled) async {
+    await _channel
+        .invokeMethod('enableRedundantCommandSkipping', {'enabled': enabled});
+  }
+
   // Core Audio
   /// Enables the audio module.
   ///
@@ -339,6 +818,17 @@ class AgoraRtcEngine {
         {'interval': interval, 'smooth': smooth});
   }
 
+  /// Sets how [onAudioVolumeIndication] reduces the reported speakers (Android only).
+  ///
+  /// With [AudioVolumeIndicationMode.TopK], only the [topK] loudest speakers of each indication are reported. With [AudioVolumeIndicationMode.Delta], only the users whose volume changed by at least [threshold] since they were last reported are, and remote users that stop being reported are reported once with volume 0.
+  /// Indications with no speakers left and an unchanged total volume are skipped. The speakers are sent as a single packed integer list instead of a map per speaker.
+  static Future<void> setAudioVolumeIndicationFilter(
+      AudioVolumeIndicationMode mode,
+      {int topK = 3, int threshold = 10}) async {
+    await _channel.invokeMethod('setAudioVolumeIndicationFilter',
+        {'mode': mode.index, 'topK': topK, 'threshold': threshold});
+  }
+
   /// Enables/Disables the local audio capture.
   ///
   /// The audio function is enabled by default. This method disables/re-enables the local audio function, that is, to stop or restart local audio capture and processing.
@@ -420,6 +910,16 @@ class AgoraRtcEngine {
         'setVideoEncoderConfiguration', {'config': config._jsonMap()});
   }
 
+  /// Enables/Disables stepping the video encoder configuration down and back up from the device's CPU usage, encoder frame rate and thermal status (Android only).
+  ///
+  /// Enabling applies the first step of the ladder in [config]; while enabled, the plugin replaces the configuration set with [setVideoEncoderConfiguration] at each step. [onEncoderAdjusted] reports every step.
+  /// Pass null to disable; the current configuration is kept.
+  static Future<void> enableEncoderAutoTuning(
+      EncoderTuningConfig config) async {
+    await _channel.invokeMethod(
+        'enableEncoderAutoTuning', {'config': config?._jsonMap()});
+  }
+
   /// Creates the video renderer Widget.
   ///
   /// The Widget is identified by viewId, the operation and layout of the Widget are managed by the app.
@@ -452,24 +952,53 @@ class AgoraRtcEngine {
     await _channel.invokeMethod('removeNativeView', {'viewId': viewId});
   }
 
+  /// Creates a Flutter texture that the SDK renders video frames into (Android only).
+  ///
+  /// Texture rendering avoids the platform view composition cost of [createNativeView], which matters when many video tiles are on screen.
+  /// Pass the returned texture id to [setupLocalVideo] or [setupRemoteVideo] as `textureId`, and show it with [createTextureView].
+  static Future<int> createTextureRender() async {
+    final int textureId = await _channel.invokeMethod('createTextureRender');
+    return textureId;
+  }
+
+  /// Creates the Widget that shows the texture created by [createTextureRender].
+  ///
+  /// The texture has the size of the video frames and is scaled to the Widget, wrap it in an [AspectRatio] or [FittedBox] to keep the aspect ratio.
+  static Widget createTextureView(int textureId) {
+    return Texture(textureId: textureId);
+  }
+
+  /// Releases the texture created by [createTextureRender].
+  static Future<void> removeTextureRender(int textureId) async {
+    await _channel
+        .invokeMethod('removeTextureRender', {'textureId': textureId});
+  }
+
   /// Sets the local video view and configures the video display settings on the local device.
   ///
   /// You can call this method to bind local video streams to Widget created by [createNativeView] of the  and configure the video display settings.
-  static Future<void> setupLocalVideo(
-      int viewId, VideoRenderMode renderMode) async {
-    await _channel.invokeMethod('setupLocalVideo',
-        {'viewId': viewId, 'renderMode': _intFromVideoRenderMode(renderMode)});
+  /// To render into a texture created by [createTextureRender] instead, pass its id as [textureId]; [viewId] and [renderMode] are then ignored.
+  static Future<void> setupLocalVideo(int viewId, VideoRenderMode renderMode,
+      {int textureId}) async {
+    await _channel.invokeMethod('setupLocalVideo', {
+      'viewId': viewId,
+      'renderMode': _intFromVideoRenderMode(renderMode),
+      'textureId': textureId,
+    });
   }
 
   /// Sets the remote user's video view.
   ///
   /// This method binds the remote user to the Widget created by [createNativeView].
+  /// To render into a texture created by [createTextureRender] instead, pass its id as [textureId]; [viewId] and [renderMode] are then ignored.
   static Future<void> setupRemoteVideo(
-      int viewId, VideoRenderMode renderMode, int uid) async {
+      int viewId, VideoRenderMode renderMode, int uid,
+      {int textureId}) async {
     await _channel.invokeMethod('setupRemoteVideo', {
       'viewId': viewId,
       'renderMode': _intFromVideoRenderMode(renderMode),
       'uid': uid,
+      'textureId': textureId,
     });
   }
 
@@ -541,6 +1070,23 @@ class AgoraRtcEngine {
         .invokeMethod('setDefaultMuteAllRemoteVideoStreams', {'muted': muted});
   }
 
+  /// Enables/Disables pausing the video of remote users without a visible view (Android only).
+  ///
+  /// Every [createNativeView] Widget bound with [setupRemoteVideo] counts for its user until it is removed or bound to another user. While none of a user's views is attached, shown and on screen for [hideDelay] milliseconds, the plugin mutes the user's video as [muteRemoteVideoStream] does, and unmutes it as soon as one is visible again.
+  /// The platform cannot see Widgets covered or scrolled away by Flutter; report those with [setNativeViewVisible].
+  /// A user muted with [muteRemoteVideoStream] stays muted.
+  static Future<void> enableHiddenVideoPause(bool enabled,
+      {int hideDelay = 1000}) async {
+    await _channel.invokeMethod('enableHiddenVideoPause',
+        {'enabled': enabled, 'hideDelay': hideDelay});
+  }
+
+  /// Sets whether the app shows the [createNativeView] Widget of [viewId], for [enableHiddenVideoPause] (Android only).
+  static Future<void> setNativeViewVisible(int viewId, bool visible) async {
+    await _channel.invokeMethod(
+        'setNativeViewVisible', {'viewId': viewId, 'visible': visible});
+  }
+
   // Audio Routing Controller
   /// Sets the default audio playback route.
   static Future<void> setDefaultAudioRouteToSpeaker(
@@ -599,6 +1145,29 @@ class AgoraRtcEngine {
         'setRemoteSubscribeFallbackOption', {'option': options.index});
   }
 
+  /// Enables/Disables fitting the received video into a downlink budget, by subscribing each remote user to the high stream, the low stream or no video (Android only).
+  ///
+  /// Users are ranked by [setSubscriptionPins], then the active speaker, then their recent volume; on every [onRtcStats] the ranked users get the low stream while the budget in [config] lasts and no video after, then the high stream in rank order. The top user on the high stream also gets [UserPriority.High].
+  /// The remote users must call [enableDualStreamMode]. Ranking by active speaker and volume requires [enableAudioVolumeIndication]; without it, users keep their join order.
+  /// While enabled, the allocation overrides [setRemoteVideoStreamType] and [setRemoteUserPriority]; a user shown small by [enableAdaptiveStreamSelection] keeps the low stream, and one muted with [muteRemoteVideoStream] stays muted.
+  /// Pass null to disable; every user then returns to the high stream and normal priority.
+  static Future<void> enableSubscriptionAllocator(
+      SubscriptionAllocatorConfig config) async {
+    await _channel.invokeMethod(
+        'enableSubscriptionAllocator', {'config': config?._jsonMap()});
+  }
+
+  /// Sets the users [enableSubscriptionAllocator] ranks before all others, in order (Android only).
+  static Future<void> setSubscriptionPins(List<int> uids) async {
+    await _channel.invokeMethod('setSubscriptionPins', {'uids': uids});
+  }
+
+  /// Gets the current allocation of [enableSubscriptionAllocator] (Android only).
+  static Future<SubscriptionAllocation> getSubscriptionAllocation() async {
+    final Map values = await _channel.invokeMethod('getSubscriptionAllocation');
+    return SubscriptionAllocation._fromMap(values);
+  }
+
   // Dual-stream Mode
   /// Enables/Disables dual-stream mode.
   ///
@@ -621,6 +1190,22 @@ class AgoraRtcEngine {
         'setRemoteDefaultVideoStreamType', {'streamType': streamType});
   }
 
+  /// Enables/Disables selecting the high or low stream of each remote user from the on-screen size of its [createNativeView] Widget (Android only).
+  ///
+  /// A user bound with [setupRemoteVideo] switches to the high stream once the shorter side of its view reaches [highThreshold] pixels, and to the low stream once it shrinks to [lowThreshold] pixels; in between it keeps its stream. Sizes are evaluated after they have not changed for [settleDelay] milliseconds.
+  /// The remote users must call [enableDualStreamMode]. While enabled, the selection overrides [setRemoteVideoStreamType] when a view's size changes.
+  static Future<void> enableAdaptiveStreamSelection(bool enabled,
+      {int lowThreshold = 240,
+      int highThreshold = 360,
+      int settleDelay = 500}) async {
+    await _channel.invokeMethod('enableAdaptiveStreamSelection', {
+      'enabled': enabled,
+      'lowThreshold': lowThreshold,
+      'highThreshold': highThreshold,
+      'settleDelay': settleDelay,
+    });
+  }
+
   // Encryption
   /// Enables built-in encryption with an encryption password before joining a channel.
   ///
@@ -651,6 +1236,47 @@ class AgoraRtcEngine {
     await _channel.invokeMethod('switchCamera');
   }
 
+  // Data Stream
+  /// Creates a data stream.
+  ///
+  /// Each user can create up to five data streams during the lifecycle of the RtcEngine. Set [reliable] and [ordered] both to true or both to false.
+  /// Returns the stream id, or a negative error code.
+  static Future<int> createDataStream(bool reliable, bool ordered) async {
+    final int streamId = await _channel.invokeMethod(
+        'createDataStream', {'reliable': reliable, 'ordered': ordered});
+    return streamId;
+  }
+
+  /// Sends a data stream message to all users in the channel.
+  ///
+  /// The SDK allows each user to send up to 30 messages of up to 1 KB per second, and 6 KB per second in total.
+  /// Returns whether the message was sent, or queued when coalescing is enabled for [streamId]. Messages on such a stream must fit a packed packet, up to 1020 bytes.
+  static Future<bool> sendStreamMessage(
+      int streamId, Uint8List message) async {
+    final bool success = await _channel.invokeMethod(
+        'sendStreamMessage', {'streamId': streamId, 'message': message});
+    return success;
+  }
+
+  /// Enables/Disables coalescing of the small messages sent on [streamId] (Android only).
+  ///
+  /// When enabled, messages are queued and packed together into as few data stream messages as possible every [interval] milliseconds, while staying within the SDK's per-second limits.
+  /// Every message sent on [streamId] is then packed. Receivers using this plugin on Android split packed messages again with [setStreamMessageOptions]; other receivers get the packed form. Failed packets are reported by [onStreamMessageDropped].
+  static Future<void> setDataStreamCoalescing(int streamId, bool enabled,
+      {int interval = 40}) async {
+    await _channel.invokeMethod('setDataStreamCoalescing',
+        {'streamId': streamId, 'enabled': enabled, 'interval': interval});
+  }
+
+  /// Sets how received data stream messages are delivered (Android only).
+  ///
+  /// With [text], messages are decoded natively as UTF-8 text for [onStreamTextMessage]. With [unpack], messages packed by [setDataStreamCoalescing] are split into the original messages; only enable it when the senders pack every stream, as other messages may look packed.
+  static Future<void> setStreamMessageOptions(
+      {bool text = false, bool unpack = false}) async {
+    await _channel.invokeMethod(
+        'setStreamMessageOptions', {'text': text, 'unpack': unpack});
+  }
+
   // Miscellaneous Methods
   /// Gets the SDK version.
   static Future<String> getSdkVersion() async {
@@ -658,299 +1284,787 @@ class AgoraRtcEngine {
     return version;
   }
 
-  // CallHandler
-  static void _addMethodCallHandler() {
-    _channel.setMethodCallHandler((MethodCall call) {
-      Map values = call.arguments;
+  // Raw Audio Data
+  /// Starts/Stops streaming raw PCM audio to [onAudioFrame] (Android only).
+  ///
+  /// The SDK delivers 16-bit PCM at [sampleRate] with [channels] channels for the recorded audio if [record] is true, and for the playback audio if [playback] is true.
+  /// Samples are collected natively into chunks of [chunkSize] bytes, which must be positive. When the app does not keep up, whole frames are dropped and counted in [AudioFrameChunk.droppedFrames] and [getAudioFrameStats].
+  /// Call this method after [create]; [destroy] stops the streaming.
+  static Future<void> enableAudioFrameStreaming(bool enabled,
+      {int sampleRate = 16000,
+      int channels = 1,
+      int chunkSize = 3200,
+      bool record = true,
+      bool playback = false}) async {
+    await _channel.invokeMethod('enableAudioFrameStreaming', {
+      'enabled': enabled,
+      'sampleRate': sampleRate,
+      'channels': channels,
+      'chunkSize': chunkSize,
+      'record': record,
+      'playback': playback,
+    });
+  }
 
-      switch (call.method) {
-        // Core Events
-        case 'onWarning':
-          if (onWarning != null) {
-            onWarning(values['warn']);
-          }
-          break;
-        case 'onError':
-          if (onError != null) {
-            onError(values['err']);
-          }
-          break;
-        case 'onJoinChannelSuccess':
-          if (onJoinChannelSuccess != null) {
-            onJoinChannelSuccess(
-                values['channel'], values['uid'], values['elapsed']);
-          }
-          break;
-        case 'onRejoinChannelSuccess':
-          if (onRejoinChannelSuccess != null) {
-            onRejoinChannelSuccess(
-                values['channel'], values['uid'], values['elapsed']);
-          }
-          break;
-        case 'onLeaveChannel':
-          if (onLeaveChannel != null) {
-            onLeaveChannel();
-          }
-          break;
-        case 'onClientRoleChanged':
-          if (onClientRoleChanged != null) {
-            ClientRole oldRole = _clientRoleFromInt(values['oldRole']);
-            ClientRole newRole = _clientRoleFromInt(values['newRole']);
-            onClientRoleChanged(oldRole, newRole);
-          }
-          break;
-        case 'onUserJoined':
-          if (onUserJoined != null) {
-            onUserJoined(values['uid'], values['elapsed']);
-          }
-          break;
-        case 'onUserOffline':
-          if (onUserOffline != null) {
-            onUserOffline(values['uid'], values['reason']);
-          }
-          break;
-        case 'onConnectionStateChanged':
-          if (onConnectionStateChanged != null) {
-            onConnectionStateChanged(values['state'], values['reason']);
-          }
-          break;
-        case 'onNetworkTypeChanged':
-          if (onNetworkTypeChanged != null) {
-            onNetworkTypeChanged(values['type']);
-          }
-          break;
-        case 'onConnectionLost':
-          if (onConnectionLost != null) {
-            onConnectionLost();
-          }
-          break;
-        case 'onApiCallExecuted':
-          if (onApiCallExecuted != null) {
-            onApiCallExecuted(values['error'], values['api'], values['result']);
-          }
-          break;
-        case 'onTokenPrivilegeWillExpire':
-          if (onTokenPrivilegeWillExpire != null) {
-            onTokenPrivilegeWillExpire(values['token']);
-          }
-          break;
-        case 'onRequestToken':
-          if (onRequestToken != null) {
-            onRequestToken();
-          }
-          break;
-        // Media Events
-        case 'onMicrophoneEnabled':
-          if (onMicrophoneEnabled != null) {
-            onMicrophoneEnabled(values['enabled']);
-          }
-          break;
-        case 'onAudioVolumeIndication':
-          if (onAudioVolumeIndication != null) {
-            List<dynamic> speakerValues = values['speakers'];
-            List<AudioVolumeInfo> speakers = List<AudioVolumeInfo>();
-            for (Map speakerValue in speakerValues) {
-              AudioVolumeInfo info =
-                  AudioVolumeInfo(speakerValue['uid'], speakerValue['volume']);
-              speakers.add(info);
-            }
-            onAudioVolumeIndication(values['totalVolume'], speakers);
-          }
-          break;
-        case 'onActiveSpeaker':
-          if (onActiveSpeaker != null) {
-            onActiveSpeaker(values['uid']);
-          }
-          break;
-        case 'onFirstLocalAudioFrame':
-          if (onFirstLocalAudioFrame != null) {
-            onFirstLocalAudioFrame(values['elapsed']);
-          }
-          break;
-        case 'onFirstRemoteAudioFrame':
-          if (onFirstRemoteAudioFrame != null) {
-            onFirstRemoteAudioFrame(values['uid'], values['elapsed']);
-          }
-          break;
-        case 'onFirstRemoteAudioDecoded':
-          if (onFirstRemoteAudioDecoded != null) {
-            onFirstRemoteAudioDecoded(values['uid'], values['elapsed']);
-          }
-          break;
-        case 'onFirstLocalVideoFrame':
-          if (onFirstLocalVideoFrame != null) {
-            onFirstLocalVideoFrame(
-                values['width'], values['height'], values['elapsed']);
-          }
-          break;
-        case 'onFirstRemoteVideoDecoded':
-          if (onFirstRemoteVideoDecoded != null) {
-            onFirstRemoteVideoDecoded(values['uid'], values['width'],
-                values['height'], values['elapsed']);
-          }
-          break;
-        case 'onFirstRemoteVideoFrame':
-          if (onFirstRemoteVideoFrame != null) {
-            onFirstRemoteVideoFrame(values['uid'], values['width'],
-                values['height'], values['elapsed']);
-          }
-          break;
-        case 'onUserMuteAudio':
-          if (onUserMuteAudio != null) {
-            onUserMuteAudio(values['uid'], values['muted']);
-          }
-          break;
+  /// Gets the number of audio frames dropped because [onAudioFrame] did not keep up (Android only).
+  static Future<AudioFrameStats> getAudioFrameStats() async {
+    final Map values = await _channel.invokeMethod('getAudioFrameStats');
+    AudioFrameStats stats = AudioFrameStats();
+    stats.recordDroppedFrames = values['recordDroppedFrames'];
+    stats.playbackDroppedFrames = values['playbackDroppedFrames'];
+    return stats;
+  }
 
-        case 'onUserMuteVideo':
-          if (onUserMuteVideo != null) {
-            onUserMuteVideo(values['uid'], values['muted']);
-          }
-          break;
-        case 'onUserEnableVideo':
-          if (onUserEnableVideo != null) {
-            onUserEnableVideo(values['uid'], values['enabled']);
-          }
-          break;
-        case 'onUserEnableLocalVideo':
-          if (onUserEnableLocalVideo != null) {
-            onUserEnableLocalVideo(values['uid'], values['enabled']);
-          }
-          break;
-        case 'onVideoSizeChanged':
-          if (onVideoSizeChanged != null) {
-            onVideoSizeChanged(values['uid'], values['width'], values['height'],
-                values['rotation']);
-          }
-          break;
-        case 'onRemoteVideoStateChanged':
-          if (onRemoteVideoStateChanged != null) {
-            onRemoteVideoStateChanged(values['uid'], values['state']);
-          }
-          break;
-        // Fallback Events
-        case 'onLocalPublishFallbackToAudioOnly':
-          if (onLocalPublishFallbackToAudioOnly != null) {
-            onLocalPublishFallbackToAudioOnly(values['isFallbackOrRecover']);
-          }
-          break;
-        case 'onRemoteSubscribeFallbackToAudioOnly':
-          if (onRemoteSubscribeFallbackToAudioOnly != null) {
-            onRemoteSubscribeFallbackToAudioOnly(
-                values['uid'], values['isFallbackOrRecover']);
-          }
-          break;
+  // Raw Video Data
+  /// Starts/Stops sampling video frames to [onVideoFrameSample] (Android only).
+  ///
+  /// At most one frame every [interval] milliseconds is sampled for each uid in [uids], or for every uid when [uids] is null; the local video is uid 0.
+  /// Frames are downscaled natively to fit within [width] x [height], keeping their aspect ratio. Calling this method again replaces the configuration.
+  /// Only videos rendered through [createTextureRender] are sampled.
+  static Future<void> setVideoFrameSampling(bool enabled,
+      {int width = 160,
+      int height = 160,
+      int interval = 1000,
+      List<int> uids}) async {
+    await _channel.invokeMethod('setVideoFrameSampling', {
+      'enabled': enabled,
+      'width': width,
+      'height': height,
+      'interval': interval,
+      'uids': uids,
+    });
+  }
+
+  // Plugin Configuration
+  /// Starts a batch of methods that are sent to the native side together.
+  ///
+  /// On Android the batched methods run in order in a single native dispatch, which saves a platform channel round trip per method during call setup:
+  /// ```dart
+  /// await AgoraRtcEngine.batch()
+  ///     .create(appId)
+  ///     .setChannelProfile(ChannelProfile.LiveBroadcasting)
+  ///     .enableVideo()
+  ///     .joinChannel(null, 'channel', null, 0)
+  ///     .commit();
+  /// ```
+  static AgoraMethodBatch batch() {
+    return AgoraMethodBatch._();
+  }
+
+  /// Runs engine methods on a dedicated native worker thread instead of the platform main thread (Android only).
+  ///
+  /// Methods keep the order they are called in, and every returned future completes with a result or a [PlatformException].
+  /// Call this method before [create], so that engine creation does not block the main thread either.
+  static Future<void> enableEngineWorkerThread(bool enabled) async {
+    await _channel
+        .invokeMethod('enableEngineWorkerThread', {'enabled': enabled});
+  }
+
+  /// Enables/Disables the compact binary transport for high-frequency events (Android only).
+  ///
+  /// When enabled, [onRtcStats], [onLocalVideoStats], [onRemoteVideoStats], [onRemoteAudioStats], [onAudioVolumeIndication], [onNetworkQuality], [onRemoteAudioTransportStats] and [onRemoteVideoTransportStats] are packed into a preallocated native buffer instead of a map per event.
+  /// Events that do not fit into the native buffer fall back to the map-based channel.
+  static Future<void> enableBinaryEventTransport(bool enabled) async {
+    await _channel
+        .invokeMethod('enableBinaryEventTransport', {'enabled': enabled});
+  }
+
+  /// Enables/Disables event batching (Android only).
+  ///
+  /// When enabled, events are queued natively and delivered together once per display frame, or every [interval] milliseconds if [interval] is greater than 0.
+  /// Events are still dispatched to the callbacks in the order the SDK reported them, unless [enableEventPriorityLanes] delivers control events ahead of telemetry.
+  static Future<void> enableEventBatching(bool enabled,
+      {int interval = 0}) async {
+    await _channel.invokeMethod(
+        'enableEventBatching', {'enabled': enabled, 'interval': interval});
+  }
+
+  /// Enables/Disables the delivery of control events ahead of telemetry events (Android only, disabled by default).
+  ///
+  /// Telemetry events are the periodic stats, network quality and volume events, or the callback names in [telemetryEvents]. Every other event, such as [onJoinChannelSuccess], [onConnectionStateChanged], [onTokenPrivilegeWillExpire] or [onUserOffline], is a control event and overtakes the telemetry events waiting to be delivered; it never overtakes the results of method calls made before it. [onStreamMessage] always stays in the telemetry lane.
+  /// Events keep their order within each lane. When disabled, every event is delivered in the order the SDK reported it.
+  static Future<void> enableEventPriorityLanes(bool enabled,
+      {List<String> telemetryEvents}) async {
+    await _channel.invokeMethod('enableEventPriorityLanes',
+        {'enabled': enabled, 'telemetryEvents': telemetryEvents});
+  }
+
+  /// Enables/Disables the bounded native event queue (Android only).
+  ///
+  /// While enabled, events wait in a native queue with room for [capacity] events, and a stalled UI thread receives them in one go instead of replaying every stale event.
+  /// By default the periodic stats, network quality and volume events are [EventQueuePolicy.Coalesce]d per user, and every other event is [EventQueuePolicy.Lossless]. [policies] overrides the policy of the given events, by callback name, e.g. `{'onStreamMessage': EventQueuePolicy.Droppable}`.
+  /// Changed-fields-only stats and volume indications are merged when coalesced, so no change is lost. Read the coalesced and dropped events with [getEventQueueStats].
+  static Future<void> enableEventQueue(bool enabled,
+      {int capacity = 256, Map<String, EventQueuePolicy> policies}) async {
+    await _channel.invokeMethod('enableEventQueue', {
+      'enabled': enabled,
+      'capacity': capacity,
+      'policies': policies?.map((event, policy) =>
+          MapEntry<String, int>(event, policy.index)),
+    });
+  }
+
+  /// The periodic stats, network quality and volume events.
+  static const List<String> telemetryEvents = [
+    'onAudioVolumeIndication',
+    'onActiveSpeaker',
+    'onRtcStats',
+    'onLastmileQuality',
+    'onNetworkQuality',
+    'onLocalVideoStats',
+    'onRemoteVideoStats',
+    'onRemoteAudioStats',
+    'onRemoteAudioTransportStats',
+    'onRemoteVideoTransportStats',
+    'onStatsSummary',
+  ];
+
+  /// Starts a headless background isolate and delivers [events] to [handler] there, instead of to the callbacks of this class (Android only).
+  ///
+  /// [handler] must be a top-level or static function. It receives the callback name, e.g. `onRtcStats`, and the arguments as sent by the platform, e.g. `{'stats': {...}}`; with [enableStatsDeltaEncoding] the stats only hold the changed fields.
+  /// By default the [telemetryEvents] are routed, so logging or analytics work on them does not compete with frame rendering, and keeps running while the activity is in the background. The isolate only runs the plugins registered with `AgoraRtcEnginePlugin.setPluginRegistrant`.
+  /// A running background isolate is stopped first.
+  static Future<void> startBackgroundIsolate(
+      void Function(String event, Map arguments) handler,
+      {List<String> events = telemetryEvents}) async {
+    final CallbackHandle dispatcherHandle =
+        PluginUtilities.getCallbackHandle(_backgroundIsolateMain);
+    final CallbackHandle handlerHandle =
+        PluginUtilities.getCallbackHandle(handler);
+    if (handlerHandle == null) {
+      throw ArgumentError('handler must be a top-level or static function');
+    }
+    await _channel.invokeMethod('startBackgroundIsolate', {
+      'dispatcherHandle': dispatcherHandle.toRawHandle(),
+      'handlerHandle': handlerHandle.toRawHandle(),
+      'events': events,
+    });
+  }
+
+  /// Stops the background isolate; its events are delivered to the callbacks of this class again (Android only).
+  static Future<void> stopBackgroundIsolate() async {
+    await _channel.invokeMethod('stopBackgroundIsolate');
+  }
+
+  /// Gets the state of the background isolate (Android only).
+  static Future<BackgroundIsolateStats> getBackgroundIsolateStats() async {
+    final Map values =
+        await _channel.invokeMethod('getBackgroundIsolateStats');
+    return BackgroundIsolateStats._(
+        values['running'], values['pending'], values['dropped']);
+  }
+
+  /// Gets the state of the event queue and the events it coalesced or dropped since it was enabled, or since the last call with [reset] (Android only).
+  static Future<EventQueueStats> getEventQueueStats(
+      {bool reset = false}) async {
+    final Map values =
+        await _channel.invokeMethod('getEventQueueStats', {'reset': reset});
+    return EventQueueStats._fromMap(values);
+  }
+
+  /// Enables/Disables the plugin's bridge instrumentation (Android only).
+  ///
+  /// While enabled, the native side measures method call latency, event counts and sizes, the delay between an SDK callback and its delivery on the main thread, and the plugin messages waiting on the main looper. Read them with [getPluginMetrics].
+  /// With [trace], method calls and event deliveries are also marked as `android.os.Trace` sections for systrace, on Android 4.3 and later.
+  static Future<void> enablePluginMetrics(bool enabled,
+      {bool trace = false}) async {
+    await _channel.invokeMethod(
+        'enablePluginMetrics', {'enabled': enabled, 'trace': trace});
+  }
+
+  /// Gets the metrics collected since [enablePluginMetrics] was called, or since the last call with [reset] (Android only).
+  static Future<PluginMetrics> getPluginMetrics({bool reset = false}) async {
+    final Map values =
+        await _channel.invokeMethod('getPluginMetrics', {'reset': reset});
+    return PluginMetrics._fromMap(values);
+  }
 
-        // Device Events
-        case 'onAudioRouteChanged':
-          if (onAudioRouteChanged != null) {
-            onAudioRouteChanged(values['routing']);
+  /// Gets the commands received and the callbacks emitted by the fake engine passed to [create], or null for a real engine (Android only).
+  ///
+  /// With [reset], the recorded commands and callbacks are cleared.
+  static Future<FakeEngineReport> getFakeEngineReport(
+      {bool reset = false}) async {
+    final Map values =
+        await _channel.invokeMethod('getFakeEngineReport', {'reset': reset});
+    return values != null ? FakeEngineReport._fromMap(values) : null;
+  }
+
+  /// Enables/Disables changed-fields-only encoding of [onRtcStats], [onLocalVideoStats] and [onRemoteVideoStats] (Android only).
+  ///
+  /// When enabled, the native side sends only the fields that changed since the previous event of the same type and user, and every [keyframeInterval]th event in full. The full stats are rebuilt before the callbacks are invoked.
+  static Future<void> enableStatsDeltaEncoding(bool enabled,
+      {int keyframeInterval = 10}) async {
+    await _channel.invokeMethod('enableStatsDeltaEncoding',
+        {'enabled': enabled, 'keyframeInterval': keyframeInterval});
+  }
+
+  /// Enables/Disables native aggregation of the stats callbacks (Android only).
+  ///
+  /// The last [windowSize] samples of each user's bitrate, frame rate, loss, delay, jitter buffer delay and CPU usage are kept natively, and summarized to [onStatsSummary] every [interval] milliseconds.
+  /// Channel-wide and local stats are reported with uid 0. Set [forwardRawStats] to false to stop delivering [onRtcStats], [onLocalVideoStats], [onRemoteVideoStats] and [onRemoteAudioStats] while aggregation is on.
+  static Future<void> enableStatsAggregation(bool enabled,
+      {int interval = 10000,
+      int windowSize = 30,
+      bool forwardRawStats = true}) async {
+    await _channel.invokeMethod('enableStatsAggregation', {
+      'enabled': enabled,
+      'interval': interval,
+      'windowSize': windowSize,
+      'forwardRawStats': forwardRawStats,
+    });
+  }
+
+  // Event Subscriptions
+  static final Set<String> _subscribedEvents = Set<String>();
+  static bool _eventSubscriptionsDirty = false;
+
+  static void _updateEventSubscription(String event, bool subscribed) {
+    if (subscribed) {
+      _subscribedEvents.add(event);
+    } else {
+      _subscribedEvents.remove(event);
+    }
+    _scheduleEventSubscriptionsUpdate();
+  }
+
+  /// Tells the native side which events have a handler, so that unsubscribed events are dropped before they are built (Android only).
+  ///
+  /// Updates made in the same microtask are sent together.
+  static void _scheduleEventSubscriptionsUpdate() {
+    if (!Platform.isAndroid || _eventSubscriptionsDirty) {
+      return;
+    }
+    _eventSubscriptionsDirty = true;
+    scheduleMicrotask(() {
+      _eventSubscriptionsDirty = false;
+      _channel.invokeMethod('setEventSubscriptions',
+          {'events': _subscribedEvents.toList()});
+    });
+  }
+
+  // Stats Delta Encoding
+  static final Map<String, Map> _statsSnapshots = {};
+
+  /// Rebuilds the full stats of an event encoded by [enableStatsDeltaEncoding].
+  ///
+  /// Returns [stats] unchanged when it is not delta encoded, and null until the first keyframe of the event and user arrives.
+  static Map _statsFromDelta(String event, Map stats) {
+    if (!stats.containsKey('keyframe')) {
+      return stats;
+    }
+    String key = '$event/${stats['uid'] ?? 0}';
+    if (stats['keyframe']) {
+      _statsSnapshots[key] = Map.from(stats);
+      return _statsSnapshots[key];
+    }
+    Map snapshot = _statsSnapshots[key];
+    snapshot?.addAll(stats);
+    return snapshot;
+  }
+
+  // CallHandler
+  static void _addMethodCallHandler() {
+    _eventChannel.setMessageHandler((ByteData data) async {
+      _handleBinaryEvents(data);
+      return null;
+    });
+    _audioFrameChannel.setMessageHandler((ByteData data) async {
+      _handleAudioFrame(data);
+      return null;
+    });
+    _videoFrameChannel.setMessageHandler((ByteData data) async {
+      _handleVideoFrame(data);
+      return null;
+    });
+    _channel.setMethodCallHandler((MethodCall call) {
+      if (call.method == 'onEventBatch') {
+        List events = call.arguments;
+        for (int i = 0; i + 1 < events.length; i += 2) {
+          _handleEvent(events[i], events[i + 1]);
+        }
+      } else {
+        _handleEvent(call.method, call.arguments);
+      }
+    });
+  }
+
+  static void _handleEvent(String method, Map values) {
+    switch (method) {
+      // Core Events
+      case 'onWarning':
+        if (onWarning != null) {
+          onWarning(values['warn']);
+        }
+        break;
+      case 'onError':
+        if (onError != null) {
+          onError(values['err']);
+        }
+        break;
+      case 'onJoinChannelSuccess':
+        if (onJoinChannelSuccess != null) {
+          onJoinChannelSuccess(
+              values['channel'], values['uid'], values['elapsed']);
+        }
+        break;
+      case 'onRejoinChannelSuccess':
+        if (onRejoinChannelSuccess != null) {
+          onRejoinChannelSuccess(
+              values['channel'], values['uid'], values['elapsed']);
+        }
+        break;
+      case 'onLeaveChannel':
+        if (onLeaveChannel != null) {
+          onLeaveChannel();
+        }
+        break;
+      case 'onClientRoleChanged':
+        if (onClientRoleChanged != null) {
+          ClientRole oldRole = _clientRoleFromInt(values['oldRole']);
+          ClientRole newRole = _clientRoleFromInt(values['newRole']);
+          onClientRoleChanged(oldRole, newRole);
+        }
+        break;
+      case 'onUserJoined':
+        if (onUserJoined != null) {
+          onUserJoined(values['uid'], values['elapsed']);
+        }
+        break;
+      case 'onUserOffline':
+        if (onUserOffline != null) {
+          onUserOffline(values['uid'], values['reason']);
+        }
+        break;
+      case 'onConnectionStateChanged':
+        if (onConnectionStateChanged != null) {
+          onConnectionStateChanged(values['state'], values['reason']);
+        }
+        break;
+      case 'onNetworkTypeChanged':
+        if (onNetworkTypeChanged != null) {
+          onNetworkTypeChanged(values['type']);
+        }
+        break;
+      case 'onConnectionLost':
+        if (onConnectionLost != null) {
+          onConnectionLost();
+        }
+        break;
+      case 'onApiCallExecuted':
+        if (onApiCallExecuted != null) {
+          onApiCallExecuted(values['error'], values['api'], values['result']);
+        }
+        break;
+      case 'onTokenPrivilegeWillExpire':
+        if (onTokenPrivilegeWillExpire != null) {
+          onTokenPrivilegeWillExpire(values['token']);
+        }
+        break;
+      case 'onRequestToken':
+        if (onRequestToken != null) {
+          onRequestToken();
+        }
+        break;
+      // Media Events
+      case 'onMicrophoneEnabled':
+        if (onMicrophoneEnabled != null) {
+          onMicrophoneEnabled(values['enabled']);
+        }
+        break;
+      case 'onAudioVolumeIndication':
+        if (onAudioVolumeIndication != null && values['packed'] != null) {
+          Int32List packed = values['packed'];
+          List<AudioVolumeInfo> speakers = List<AudioVolumeInfo>(packed[1]);
+          for (int i = 0; i < speakers.length; i++) {
+            speakers[i] =
+                AudioVolumeInfo(packed[2 + i * 2], packed[3 + i * 2]);
           }
-          break;
-        case 'onLocalVideoStateChanged':
-          if (onLocalVideoStateChanged != null) {
-            onLocalVideoStateChanged(
-                values['localVideoState'], values['error']);
+          onAudioVolumeIndication(packed[0], speakers);
+        } else if (onAudioVolumeIndication != null) {
+          List<dynamic> speakerValues = values['speakers'];
+          List<AudioVolumeInfo> speakers = List<AudioVolumeInfo>();
+          for (Map speakerValue in speakerValues) {
+            AudioVolumeInfo info =
+                AudioVolumeInfo(speakerValue['uid'], speakerValue['volume']);
+            speakers.add(info);
           }
-          break;
+          onAudioVolumeIndication(values['totalVolume'], speakers);
+        }
+        break;
+      case 'onActiveSpeaker':
+        if (onActiveSpeaker != null) {
+          onActiveSpeaker(values['uid']);
+        }
+        break;
+      case 'onFirstLocalAudioFrame':
+        if (onFirstLocalAudioFrame != null) {
+          onFirstLocalAudioFrame(values['elapsed']);
+        }
+        break;
+      case 'onFirstRemoteAudioFrame':
+        if (onFirstRemoteAudioFrame != null) {
+          onFirstRemoteAudioFrame(values['uid'], values['elapsed']);
+        }
+        break;
+      case 'onFirstRemoteAudioDecoded':
+        if (onFirstRemoteAudioDecoded != null) {
+          onFirstRemoteAudioDecoded(values['uid'], values['elapsed']);
+        }
+        break;
+      case 'onFirstLocalVideoFrame':
+        if (onFirstLocalVideoFrame != null) {
+          onFirstLocalVideoFrame(
+              values['width'], values['height'], values['elapsed']);
+        }
+        break;
+      case 'onFirstRemoteVideoDecoded':
+        if (onFirstRemoteVideoDecoded != null) {
+          onFirstRemoteVideoDecoded(values['uid'], values['width'],
+              values['height'], values['elapsed']);
+        }
+        break;
+      case 'onFirstRemoteVideoFrame':
+        if (onFirstRemoteVideoFrame != null) {
+          onFirstRemoteVideoFrame(values['uid'], values['width'],
+              values['height'], values['elapsed']);
+        }
+        break;
+      case 'onUserMuteAudio':
+        if (onUserMuteAudio != null) {
+          onUserMuteAudio(values['uid'], values['muted']);
+        }
+        break;
 
-        // Statistics Events
-        case 'onRemoteAudioStats':
-          if (onRemoteAudioStats != null) {
-            Map statsValue = values['stats'];
-            RemoteAudioStats stats = RemoteAudioStats();
-            stats.uid = statsValue['uid'];
-            stats.quality = statsValue['quality'];
-            stats.networkTransportDelay = statsValue['networkTransportDelay'];
-            stats.jitterBufferDelay = statsValue['jitterBufferDelay'];
-            stats.audioLossRate = statsValue['audioLossRate'];
-            onRemoteAudioStats(stats);
-          }
-          break;
-        case 'onRtcStats':
+      case 'onUserMuteVideo':
+        if (onUserMuteVideo != null) {
+          onUserMuteVideo(values['uid'], values['muted']);
+        }
+        break;
+      case 'onUserEnableVideo':
+        if (onUserEnableVideo != null) {
+          onUserEnableVideo(values['uid'], values['enabled']);
+        }
+        break;
+      case 'onUserEnableLocalVideo':
+        if (onUserEnableLocalVideo != null) {
+          onUserEnableLocalVideo(values['uid'], values['enabled']);
+        }
+        break;
+      case 'onVideoSizeChanged':
+        if (onVideoSizeChanged != null) {
+          onVideoSizeChanged(values['uid'], values['width'], values['height'],
+              values['rotation']);
+        }
+        break;
+      case 'onRemoteVideoStateChanged':
+        if (onRemoteVideoStateChanged != null) {
+          onRemoteVideoStateChanged(values['uid'], values['state']);
+        }
+        break;
+      // Fallback Events
+      case 'onLocalPublishFallbackToAudioOnly':
+        if (onLocalPublishFallbackToAudioOnly != null) {
+          onLocalPublishFallbackToAudioOnly(values['isFallbackOrRecover']);
+        }
+        break;
+      case 'onRemoteSubscribeFallbackToAudioOnly':
+        if (onRemoteSubscribeFallbackToAudioOnly != null) {
+          onRemoteSubscribeFallbackToAudioOnly(
+              values['uid'], values['isFallbackOrRecover']);
+        }
+        break;
+
+      // Device Events
+      case 'onAudioRouteChanged':
+        if (onAudioRouteChanged != null) {
+          onAudioRouteChanged(values['routing']);
+        }
+        break;
+      case 'onLocalVideoStateChanged':
+        if (onLocalVideoStateChanged != null) {
+          onLocalVideoStateChanged(
+              values['localVideoState'], values['error']);
+        }
+        break;
+
+      // Statistics Events
+      case 'onRemoteAudioStats':
+        if (onRemoteAudioStats != null) {
+          Map statsValue = values['stats'];
+          RemoteAudioStats stats = RemoteAudioStats();
+          stats.uid = statsValue['uid'];
+          stats.quality = statsValue['quality'];
+          stats.networkTransportDelay = statsValue['networkTransportDelay'];
+          stats.jitterBufferDelay = statsValue['jitterBufferDelay'];
+          stats.audioLossRate = statsValue['audioLossRate'];
+          onRemoteAudioStats(stats);
+        }
+        break;
+      case 'onRtcStats':
+        Map statsValue = _statsFromDelta('onRtcStats', values['stats']);
+        if (onRtcStats != null && statsValue != null) {
+          RtcStats stats = RtcStats();
+          stats.totalDuration = statsValue['duration'];
+          stats.txBytes = statsValue['txBytes'];
+          stats.rxBytes = statsValue['rxBytes'];
+
+          stats.txAudioKBitRate = statsValue['txAudioKBitrate'];
+          stats.rxAudioKBitRate = statsValue['rxAudioKBitrate'];
+          stats.txVideoKBitRate = statsValue['txVideoKBitrate'];
+          stats.rxVideoKBitRate = statsValue['rxVideoKBitrate'];
+          stats.txPacketLossRate = statsValue['txPacketLossRate'];
+          stats.rxPacketLossRate = statsValue['rxPacketLossRate'];
+
+          stats.users = statsValue['userCount'];
+          stats.lastmileDelay = statsValue['lastmileDelay'];
+          stats.cpuTotalUsage = statsValue['cpuTotalUsage'];
+          stats.cpuAppUsage = statsValue['cpuAppUsage'];
+          onRtcStats(stats);
+        }
+        break;
+      case 'onNetworkQuality':
+        if (onNetworkQuality != null) {
+          onNetworkQuality(
+              values['uid'], values['txQuality'], values['rxQuality']);
+        }
+        break;
+      case 'onLocalVideoStats':
+        Map statsValue =
+            _statsFromDelta('onLocalVideoStats', values['stats']);
+        if (onLocalVideoStats != null && statsValue != null) {
+          LocalVideoStats stats = LocalVideoStats();
+          stats.sentBitrate = statsValue['sentBitrate'];
+          stats.sentFrameRate = statsValue['sentFrameRate'];
+          stats.encoderOutputFrameRate = statsValue['encoderOutputFrameRate'];
+          stats.rendererOutputFrameRate =
+              statsValue['rendererOutputFrameRate'];
+          onLocalVideoStats(stats);
+        }
+        break;
+      case 'onRemoteVideoStats':
+        Map statsValue =
+            _statsFromDelta('onRemoteVideoStats', values['stats']);
+        if (onRemoteVideoStats != null && statsValue != null) {
+          RemoteVideoStats stats = RemoteVideoStats();
+          stats.uid = statsValue['uid'];
+          stats.width = statsValue['width'];
+          stats.height = statsValue['height'];
+          stats.receivedBitrate = statsValue['receivedBitrate'];
+          stats.decoderOutputFrameRate = statsValue['decoderOutputFrameRate'];
+          stats.rendererOutputFrameRate =
+              statsValue['rendererOutputFrameRate'];
+          stats.rxStreamType = statsValue['rxStreamType'];
+          onRemoteVideoStats(stats);
+        }
+        break;
+      case 'onRemoteAudioTransportStats':
+        if (onRemoteAudioTransportStats != null) {
+          onRemoteAudioTransportStats(values['uid'], values['delay'],
+              values['lost'], values['rxKBitRate']);
+        }
+        break;
+      case 'onRemoteVideoTransportStats':
+        if (onRemoteVideoTransportStats != null) {
+          onRemoteVideoTransportStats(values['uid'], values['delay'],
+              values['lost'], values['rxKBitRate']);
+        }
+        break;
+      case 'onStatsSummary':
+        if (onStatsSummary != null) {
+          List summaries = values['summaries'];
+          onStatsSummary(summaries
+              .map((summary) => StatsSummary._fromMap(summary))
+              .toList());
+        }
+        break;
+      // Data Stream Events
+      case 'onStreamMessage':
+        Uint8List data = values['data'];
+        String message = values['message'];
+        if (onStreamMessage != null) {
+          onStreamMessage(values['uid'], values['streamId'],
+              data ?? Uint8List.fromList(utf8.encode(message)));
+        }
+        if (onStreamTextMessage != null) {
+          onStreamTextMessage(values['uid'], values['streamId'],
+              message ?? utf8.decode(data, allowMalformed: true));
+        }
+        break;
+      case 'onStreamMessageError':
+        if (onStreamMessageError != null) {
+          onStreamMessageError(values['uid'], values['streamId'],
+              values['error'], values['missed'], values['cached']);
+        }
+        break;
+      // Miscellaneous Events
+      case 'onMediaEngineLoadSuccess':
+        if (onMediaEngineLoadSuccess != null) {
+          onMediaEngineLoadSuccess();
+        }
+        break;
+      case 'onMediaEngineStartCallSuccess':
+        if (onMediaEngineStartCallSuccess != null) {
+          onMediaEngineStartCallSuccess();
+        }
+        break;
+      case 'onEnginePrewarmed':
+        if (onEnginePrewarmed != null) {
+          onEnginePrewarmed(
+              values['appId'], values['elapsed'], values['error']);
+        }
+        break;
+      case 'onEngineCreated':
+        if (onEngineCreated != null) {
+          onEngineCreated(values['appId'], values['warm'], values['elapsed']);
+        }
+        break;
+      case 'onEncoderAdjusted':
+        if (onEncoderAdjusted != null) {
+          onEncoderAdjusted(EncoderAdjustment._fromMap(values));
+        }
+        break;
+      case 'onStreamMessageDropped':
+        if (onStreamMessageDropped != null) {
+          onStreamMessageDropped(
+              values['streamId'], values['messages'], values['error']);
+        }
+        break;
+      default:
+    }
+  }
+
+  static void _removeMethodCallHandler() {
+    _channel.setMethodCallHandler(null);
+    _eventChannel.setMessageHandler(null);
+    _audioFrameChannel.setMessageHandler(null);
+    _videoFrameChannel.setMessageHandler(null);
+  }
+
+  static void _handleAudioFrame(ByteData data) {
+    if (onAudioFrame == null) {
+      return;
+    }
+    AudioFrameChunk chunk = AudioFrameChunk._(
+        AudioFrameSource.values[data.getInt32(0, Endian.little)],
+        data.getInt32(4, Endian.little),
+        data.getInt32(8, Endian.little),
+        data.getInt32(12, Endian.little),
+        data.buffer
+            .asUint8List(data.offsetInBytes + 16, data.lengthInBytes - 16));
+    onAudioFrame(chunk);
+  }
+
+  static void _handleVideoFrame(ByteData data) {
+    if (onVideoFrameSample == null) {
+      return;
+    }
+    VideoFrameSample sample = VideoFrameSample._(
+        data.getInt32(0, Endian.little),
+        data.getInt32(4, Endian.little),
+        data.getInt32(8, Endian.little),
+        data.getInt32(12, Endian.little),
+        data.buffer
+            .asUint8List(data.offsetInBytes + 16, data.lengthInBytes - 16));
+    onVideoFrameSample(sample);
+  }
+
+  static void _handleBinaryEvents(ByteData data) {
+    _BinaryEventReader reader = _BinaryEventReader(data);
+    while (reader.hasRemaining) {
+      int event = reader.readUint8();
+      switch (event) {
+        case _BinaryEventReader.rtcStats:
+          RtcStats stats = RtcStats();
+          stats.totalDuration = reader.readInt32();
+          stats.txBytes = reader.readInt32();
+          stats.rxBytes = reader.readInt32();
+          stats.txAudioKBitRate = reader.readInt32();
+          stats.rxAudioKBitRate = reader.readInt32();
+          stats.txVideoKBitRate = reader.readInt32();
+          stats.rxVideoKBitRate = reader.readInt32();
+          stats.txPacketLossRate = reader.readInt32();
+          stats.rxPacketLossRate = reader.readInt32();
+          stats.lastmileDelay = reader.readInt32();
+          stats.users = reader.readInt32();
+          stats.cpuAppUsage = reader.readFloat64();
+          stats.cpuTotalUsage = reader.readFloat64();
           if (onRtcStats != null) {
-            Map statsValue = values['stats'];
-            RtcStats stats = RtcStats();
-            stats.totalDuration = statsValue['duration'];
-            stats.txBytes = statsValue['txBytes'];
-            stats.rxBytes = statsValue['rxBytes'];
-
-            stats.txAudioKBitRate = statsValue['txAudioKBitrate'];
-            stats.rxAudioKBitRate = statsValue['rxAudioKBitrate'];
-            stats.txVideoKBitRate = statsValue['txVideoKBitrate'];
-            stats.rxVideoKBitRate = statsValue['rxVideoKBitrate'];
-            stats.txPacketLossRate = statsValue['txPacketLossRate'];
-            stats.rxPacketLossRate = statsValue['rxPacketLossRate'];
-
-            stats.users = statsValue['userCount'];
-            stats.lastmileDelay = statsValue['lastmileDelay'];
-            stats.cpuTotalUsage = statsValue['cpuTotalUsage'];
-            stats.cpuAppUsage = statsValue['cpuAppUsage'];
             onRtcStats(stats);
           }
           break;
-        case 'onNetworkQuality':
-          if (onNetworkQuality != null) {
-            onNetworkQuality(
-                values['uid'], values['txQuality'], values['rxQuality']);
-          }
-          break;
-        case 'onLocalVideoStats':
+        case _BinaryEventReader.localVideoStats:
+          LocalVideoStats stats = LocalVideoStats();
+          stats.sentBitrate = reader.readInt32();
+          stats.sentFrameRate = reader.readInt32();
+          stats.encoderOutputFrameRate = reader.readInt32();
+          stats.rendererOutputFrameRate = reader.readInt32();
           if (onLocalVideoStats != null) {
-            Map statsValue = values['stats'];
-            LocalVideoStats stats = LocalVideoStats();
-            stats.sentBitrate = statsValue['sentBitrate'];
-            stats.sentFrameRate = statsValue['sentFrameRate'];
-            stats.encoderOutputFrameRate = statsValue['encoderOutputFrameRate'];
-            stats.rendererOutputFrameRate =
-                statsValue['rendererOutputFrameRate'];
             onLocalVideoStats(stats);
           }
           break;
-        case 'onRemoteVideoStats':
+        case _BinaryEventReader.remoteVideoStats:
+          RemoteVideoStats stats = RemoteVideoStats();
+          stats.uid = reader.readInt32();
+          stats.width = reader.readInt32();
+          stats.height = reader.readInt32();
+          stats.receivedBitrate = reader.readInt32();
+          stats.decoderOutputFrameRate = reader.readInt32();
+          stats.rendererOutputFrameRate = reader.readInt32();
+          stats.rxStreamType = reader.readInt32();
           if (onRemoteVideoStats != null) {
-            Map statsValue = values['stats'];
-            RemoteVideoStats stats = RemoteVideoStats();
-            stats.uid = statsValue['uid'];
-            stats.width = statsValue['width'];
-            stats.height = statsValue['height'];
-            stats.receivedBitrate = statsValue['receivedBitrate'];
-            stats.decoderOutputFrameRate = statsValue['decoderOutputFrameRate'];
-            stats.rendererOutputFrameRate =
-                statsValue['rendererOutputFrameRate'];
-            stats.rxStreamType = statsValue['rxStreamType'];
             onRemoteVideoStats(stats);
           }
           break;
-        case 'onRemoteAudioTransportStats':
-          if (onRemoteAudioTransportStats != null) {
-            onRemoteAudioTransportStats(values['uid'], values['delay'],
-                values['lost'], values['rxKBitRate']);
+        case _BinaryEventReader.remoteAudioStats:
+          RemoteAudioStats stats = RemoteAudioStats();
+          stats.uid = reader.readInt32();
+          stats.quality = reader.readInt32();
+          stats.networkTransportDelay = reader.readInt32();
+          stats.jitterBufferDelay = reader.readInt32();
+          stats.audioLossRate = reader.readInt32();
+          if (onRemoteAudioStats != null) {
+            onRemoteAudioStats(stats);
           }
           break;
-        case 'onRemoteVideoTransportStats':
-          if (onRemoteVideoTransportStats != null) {
-            onRemoteVideoTransportStats(values['uid'], values['delay'],
-                values['lost'], values['rxKBitRate']);
+        case _BinaryEventReader.audioVolumeIndication:
+          int totalVolume = reader.readInt32();
+          int count = reader.readInt32();
+          List<AudioVolumeInfo> speakers = List<AudioVolumeInfo>(count);
+          for (int i = 0; i < count; i++) {
+            int uid = reader.readInt32();
+            speakers[i] = AudioVolumeInfo(uid, reader.readInt32());
+          }
+          if (onAudioVolumeIndication != null) {
+            onAudioVolumeIndication(totalVolume, speakers);
           }
           break;
-        // Miscellaneous Events
-        case 'onMediaEngineLoadSuccess':
-          if (onMediaEngineLoadSuccess != null) {
-            onMediaEngineLoadSuccess();
+        case _BinaryEventReader.networkQuality:
+          int uid = reader.readInt32();
+          int txQuality = reader.readInt32();
+          int rxQuality = reader.readInt32();
+          if (onNetworkQuality != null) {
+            onNetworkQuality(uid, txQuality, rxQuality);
           }
           break;
-        case 'onMediaEngineStartCallSuccess':
-          if (onMediaEngineStartCallSuccess != null) {
-            onMediaEngineStartCallSuccess();
+        case _BinaryEventReader.remoteAudioTransportStats:
+        case _BinaryEventReader.remoteVideoTransportStats:
+          int uid = reader.readInt32();
+          int delay = reader.readInt32();
+          int lost = reader.readInt32();
+          int rxKBitRate = reader.readInt32();
+          if (event == _BinaryEventReader.remoteAudioTransportStats) {
+            if (onRemoteAudioTransportStats != null) {
+              onRemoteAudioTransportStats(uid, delay, lost, rxKBitRate);
+            }
+          } else if (onRemoteVideoTransportStats != null) {
+            onRemoteVideoTransportStats(uid, delay, lost, rxKBitRate);
           }
           break;
         default:
+          // Unknown schema, the rest of the message cannot be decoded.
+          return;
       }
-    });
-  }
-
-  static void _removeMethodCallHandler() {
-    _channel.setMethodCallHandler(null);
+    }
   }
 
   static ClientRole _clientRoleFromInt(int value) {
@@ -1006,6 +2120,146 @@ class AgoraRtcEngine {
   }
 }
 
+/// An ordered list of method calls created by [AgoraRtcEngine.batch].
+class AgoraMethodBatch {
+  final List<Map<String, dynamic>> _calls = <Map<String, dynamic>>[];
+
+  AgoraMethodBatch._();
+
+  /// Adds a call of the AgoraRtcEngine method named [method] to the batch.
+  ///
+  /// On Android, methods that manage plugin resources on the main thread, such as [AgoraRtcEngine.enableEngineWorkerThread], [AgoraRtcEngine.enableEventBatching] or [AgoraRtcEngine.createTextureRender], and nested batches fail the whole batch before any method runs.
+  AgoraMethodBatch invoke(String method, [Map<String, dynamic> arguments]) {
+    _calls.add({'method': method, 'arguments': arguments});
+    return this;
+  }
+
+  /// Adds [AgoraRtcEngine.create] to the batch.
+  AgoraMethodBatch create(String appid) {
+    AgoraRtcEngine._addMethodCallHandler();
+    AgoraRtcEngine._scheduleEventSubscriptionsUpdate();
+    return invoke('create', {'appId': appid});
+  }
+
+  /// Adds [AgoraRtcEngine.setChannelProfile] to the batch.
+  AgoraMethodBatch setChannelProfile(ChannelProfile profile) {
+    return invoke('setChannelProfile', {'profile': profile.index});
+  }
+
+  /// Adds [AgoraRtcEngine.setClientRole] to the batch.
+  AgoraMethodBatch setClientRole(ClientRole role) {
+    return invoke(
+        'setClientRole', {'role': AgoraRtcEngine._intFromClientRole(role)});
+  }
+
+  /// Adds [AgoraRtcEngine.setAudioProfile] to the batch.
+  AgoraMethodBatch setAudioProfile(
+      AudioProfile profile, AudioScenario scenario) {
+    return invoke('setAudioProfile',
+        {'profile': profile.index, 'scenario': scenario.index});
+  }
+
+  /// Adds [AgoraRtcEngine.enableAudio] to the batch.
+  AgoraMethodBatch enableAudio() {
+    return invoke('enableAudio');
+  }
+
+  /// Adds [AgoraRtcEngine.enableVideo] to the batch.
+  AgoraMethodBatch enableVideo() {
+    return invoke('enableVideo');
+  }
+
+  /// Adds [AgoraRtcEngine.setVideoEncoderConfiguration] to the batch.
+  AgoraMethodBatch setVideoEncoderConfiguration(
+      VideoEncoderConfiguration config) {
+    return invoke(
+        'setVideoEncoderConfiguration', {'config': config._jsonMap()});
+  }
+
+  /// Adds [AgoraRtcEngine.enableDualStreamMode] to the batch.
+  AgoraMethodBatch enableDualStreamMode(bool enabled) {
+    return invoke('enableDualStreamMode', {'enabled': enabled});
+  }
+
+  /// Adds [AgoraRtcEngine.setupLocalVideo] to the batch.
+  AgoraMethodBatch setupLocalVideo(int viewId, VideoRenderMode renderMode,
+      {int textureId}) {
+    return invoke('setupLocalVideo', {
+      'viewId': viewId,
+      'renderMode': AgoraRtcEngine._intFromVideoRenderMode(renderMode),
+      'textureId': textureId,
+    });
+  }
+
+  /// Adds [AgoraRtcEngine.startPreview] to the batch.
+  AgoraMethodBatch startPreview() {
+    return invoke('startPreview');
+  }
+
+  /// Adds [AgoraRtcEngine.joinChannel] to the batch.
+  AgoraMethodBatch joinChannel(
+      String token, String channelId, String info, int uid) {
+    return invoke('joinChannel',
+        {'token': token, 'channelId': channelId, 'info': info, 'uid': uid});
+  }
+
+  /// Runs the batched methods in order and returns their results.
+  ///
+  /// The batch stops at the first failing method. The thrown [PlatformException] has a details map with the failing `index`, the `results` of the methods before it, and the failing method's own `details`.
+  Future<List<dynamic>> commit() async {
+    if (!Platform.isAndroid) {
+      List<dynamic> results = <dynamic>[];
+      for (Map<String, dynamic> call in _calls) {
+        results.add(await AgoraRtcEngine._channel
+            .invokeMethod(call['method'], call['arguments']));
+      }
+      return results;
+    }
+    final List<dynamic> results =
+        await AgoraRtcEngine._channel.invokeMethod('batch', {'calls': _calls});
+    return results;
+  }
+}
+
+/// Reads events packed by the native binary event transport.
+///
+/// Every event is an event id byte followed by little-endian fields, see AgoraBinaryEventChannel.java for the schemas.
+class _BinaryEventReader {
+  static const int rtcStats = 1;
+  static const int localVideoStats = 2;
+  static const int remoteVideoStats = 3;
+  static const int remoteAudioStats = 4;
+  static const int audioVolumeIndication = 5;
+  static const int networkQuality = 6;
+  static const int remoteAudioTransportStats = 7;
+  static const int remoteVideoTransportStats = 8;
+
+  final ByteData _data;
+  int _offset = 0;
+
+  _BinaryEventReader(this._data);
+
+  bool get hasRemaining => _offset < _data.lengthInBytes;
+
+  int readUint8() {
+    int value = _data.getUint8(_offset);
+    _offset += 1;
+    return value;
+  }
+
+  int readInt32() {
+    int value = _data.getInt32(_offset, Endian.little);
+    _offset += 4;
+    return value;
+  }
+
+  double readFloat64() {
+    double value = _data.getFloat64(_offset, Endian.little);
+    _offset += 8;
+    return value;
+  }
+}
+
 class AudioVolumeInfo {
   int uid;
   int volume;
@@ -1016,6 +2270,642 @@ class AudioVolumeInfo {
   }
 }
 
+/// The source of an [AudioFrameChunk].
+enum AudioFrameSource {
+  /// Audio recorded by the local device.
+  Record,
+
+  /// Audio mixed for playback.
+  Playback,
+}
+
+/// A chunk of raw audio delivered by [AgoraRtcEngine.onAudioFrame].
+class AudioFrameChunk {
+  final AudioFrameSource source;
+  final int sampleRate;
+  final int channels;
+
+  /// The number of frames dropped from this source so far.
+  final int droppedFrames;
+
+  /// 16-bit little-endian PCM samples, interleaved when there are two channels.
+  final Uint8List samples;
+
+  AudioFrameChunk._(this.source, this.sampleRate, this.channels,
+      this.droppedFrames, this.samples);
+}
+
+/// A downscaled video frame delivered by [AgoraRtcEngine.onVideoFrameSample].
+class VideoFrameSample {
+  /// The user whose video was sampled, 0 for the local video.
+  final int uid;
+  final int width;
+  final int height;
+
+  /// The clockwise rotation needed to show the frame upright: 0, 90, 180 or 270.
+  final int rotation;
+
+  /// width x height RGBA pixels, row by row.
+  final Uint8List pixels;
+
+  VideoFrameSample._(
+      this.uid, this.width, this.height, this.rotation, this.pixels);
+}
+
+class AudioFrameStats {
+  int recordDroppedFrames;
+  int playbackDroppedFrames;
+}
+
+/// The aggregated stats of one user reported by [AgoraRtcEngine.onStatsSummary].
+class StatsSummary {
+  /// The user id, 0 for channel-wide and local stats.
+  final int uid;
+
+  /// The summary of each metric with samples, by name: txKBitRate, rxKBitRate, txPacketLossRate, rxPacketLossRate, lastmileDelay, cpuAppUsage, cpuTotalUsage, sentVideoBitrate, sentVideoFrameRate, receivedVideoBitrate, receivedVideoFrameRate, videoDelay, audioNetworkDelay, audioJitterBufferDelay and audioLossRate.
+  final Map<String, MetricSummary> metrics;
+
+  StatsSummary._(this.uid, this.metrics);
+
+  factory StatsSummary._fromMap(Map map) {
+    Map<String, MetricSummary> metrics = {};
+    Map values = map['metrics'];
+    values.forEach((name, value) {
+      Float64List summary = value;
+      metrics[name] = MetricSummary._(
+          summary[0], summary[1], summary[2], summary[3], summary[4]);
+    });
+    return StatsSummary._(map['uid'], metrics);
+  }
+}
+
+class MetricSummary {
+  final double min;
+  final double avg;
+  final double p50;
+  final double p95;
+  final double max;
+
+  MetricSummary._(this.min, this.avg, this.p50, this.p95, this.max);
+}
+
+/// The bridge metrics returned by [AgoraRtcEngine.getPluginMetrics].
+class PluginMetrics {
+  final bool enabled;
+
+  /// The latency of each method from its arrival on the native side until it was handled, including any time queued.
+  final Map<String, LatencyHistogram> methods;
+
+  /// The number of events delivered and their encoded size, by event name. Binary transport messages are counted under `agora_rtc_engine/events`.
+  final Map<String, EventMetrics> events;
+
+  /// The delay between an SDK callback and its delivery on the main thread.
+  final LatencyHistogram dispatchDelay;
+
+  /// The plugin messages currently waiting on the main looper.
+  final int mainThreadBacklog;
+  final int maxMainThreadBacklog;
+
+  PluginMetrics._(this.enabled, this.methods, this.events, this.dispatchDelay,
+      this.mainThreadBacklog, this.maxMainThreadBacklog);
+
+  factory PluginMetrics._fromMap(Map map) {
+    Map<String, LatencyHistogram> methods = {};
+    (map['methods'] as Map).forEach((name, value) {
+      methods[name] = LatencyHistogram._fromMap(value);
+    });
+    Map<String, EventMetrics> events = {};
+    (map['events'] as Map).forEach((name, value) {
+      events[name] = EventMetrics._(value['count'], value['bytes']);
+    });
+    return PluginMetrics._(
+        map['enabled'],
+        methods,
+        events,
+        LatencyHistogram._fromMap(map['dispatchDelay']),
+        map['mainThreadBacklog'],
+        map['maxMainThreadBacklog']);
+  }
+}
+
+class LatencyHistogram {
+  final int count;
+  final int totalMicros;
+  final int maxMicros;
+
+  /// buckets[i] counts the durations below 2^i microseconds that did not fit an earlier bucket; the last bucket counts everything longer.
+  final List<int> buckets;
+
+  LatencyHistogram._(
+      this.count, this.totalMicros, this.maxMicros, this.buckets);
+
+  factory LatencyHistogram._fromMap(Map map) {
+    return LatencyHistogram._(
+        map['count'], map['totalMicros'], map['maxMicros'], map['buckets']);
+  }
+
+  double get averageMicros => count > 0 ? totalMicros / count : 0;
+}
+
+class EventMetrics {
+  final int count;
+  final int bytes;
+
+  EventMetrics._(this.count, this.bytes);
+}
+
+/// The entry point of the isolate started by [AgoraRtcEngine.startBackgroundIsolate].
+void _backgroundIsolateMain() {
+  const MethodChannel channel = MethodChannel('agora_rtc_engine/background');
+  WidgetsFlutterBinding.ensureInitialized();
+
+  int handlerHandle;
+  Function handler;
+  channel.setMethodCallHandler((MethodCall call) async {
+    final Map arguments = call.arguments;
+    if (arguments['handle'] != handlerHandle) {
+      handlerHandle = arguments['handle'];
+      handler = PluginUtilities.getCallbackFromHandle(
+          CallbackHandle.fromRawHandle(handlerHandle));
+    }
+    final List events = arguments['events'];
+    for (int i = 0; i < events.length; i += 2) {
+      handler(events[i], events[i + 1]);
+    }
+  });
+  channel.invokeMethod('initialized');
+}
+
+/// The state returned by [AgoraRtcEngine.getBackgroundIsolateStats].
+class BackgroundIsolateStats {
+  final bool running;
+
+  /// The events waiting to be delivered to the isolate.
+  final int pending;
+
+  /// The events dropped because too many were waiting.
+  final int dropped;
+
+  BackgroundIsolateStats._(this.running, this.pending, this.dropped);
+}
+
+/// The state of the native event queue, returned by [AgoraRtcEngine.getEventQueueStats].
+class EventQueueStats {
+  /// The events currently queued.
+  final int size;
+
+  /// The most events queued at once.
+  final int maxSize;
+
+  /// The events replaced by a newer one or dropped, by callback name.
+  final Map<String, EventQueueCounts> events;
+
+  EventQueueStats._(this.size, this.maxSize, this.events);
+
+  factory EventQueueStats._fromMap(Map map) {
+    Map<String, EventQueueCounts> events = {};
+    (map['events'] as Map).forEach((name, value) {
+      events[name] = EventQueueCounts._(value['coalesced'], value['dropped']);
+    });
+    return EventQueueStats._(map['size'], map['maxSize'], events);
+  }
+}
+
+class EventQueueCounts {
+  /// The events replaced by a newer event of the same user.
+  final int coalesced;
+
+  /// The events dropped because the queue was full.
+  final int dropped;
+
+  EventQueueCounts._(this.coalesced, this.dropped);
+}
+
+/// The engine state mirrored by the plugin, see [AgoraRtcEngine.getStateSnapshot].
+///
+/// Values the plugin does not know yet are null.
+class EngineStateSnapshot {
+  /// The connection state, as returned by [AgoraRtcEngine.getConnectionState].
+  final int connectionState;
+
+  /// The reason of the last connection state change.
+  final int connectionChangedReason;
+
+  /// The channel joined or being joined.
+  final String channelId;
+
+  /// The local user's uid once the channel is joined.
+  final int uid;
+
+  final ChannelProfile channelProfile;
+  final ClientRole clientRole;
+  final bool audioEnabled;
+  final bool videoEnabled;
+  final bool localAudioEnabled;
+  final bool localVideoEnabled;
+  final bool localAudioMuted;
+  final bool localVideoMuted;
+  final bool allRemoteAudioMuted;
+  final bool allRemoteVideoMuted;
+  final bool speakerphoneEnabled;
+
+  /// The audio route reported by [AgoraRtcEngine.onAudioRouteChanged].
+  final int audioRoute;
+
+  final bool dualStreamMode;
+
+  /// The remote users in the channel or set by a command.
+  final List<RemoteUserState> remoteUsers;
+
+  EngineStateSnapshot._(
+      this.connectionState,
+      this.connectionChangedReason,
+      this.channelId,
+      this.uid,
+      this.channelProfile,
+      this.clientRole,
+      this.audioEnabled,
+      this.videoEnabled,
+      this.localAudioEnabled,
+      this.localVideoEnabled,
+      this.localAudioMuted,
+      this.localVideoMuted,
+      this.allRemoteAudioMuted,
+      this.allRemoteVideoMuted,
+      this.speakerphoneEnabled,
+      this.audioRoute,
+      this.dualStreamMode,
+      this.remoteUsers);
+
+  factory EngineStateSnapshot._fromMap(Map map) {
+    int profile = map['channelProfile'];
+    int role = map['clientRole'];
+    List remoteUsers = map['remoteUsers'];
+    return EngineStateSnapshot._(
+        map['connectionState'],
+        map['connectionChangedReason'],
+        map['channelId'],
+        map['uid'],
+        profile != null ? ChannelProfile.values[profile] : null,
+        role != null ? AgoraRtcEngine._clientRoleFromInt(role) : null,
+        map['audioEnabled'],
+        map['videoEnabled'],
+        map['localAudioEnabled'],
+        map['localVideoEnabled'],
+        map['localAudioMuted'],
+        map['localVideoMuted'],
+        map['allRemoteAudioMuted'],
+        map['allRemoteVideoMuted'],
+        map['speakerphoneEnabled'],
+        map['audioRoute'],
+        map['dualStreamMode'],
+        remoteUsers.map((user) => RemoteUserState._fromMap(user)).toList());
+  }
+}
+
+/// The mirrored state of one remote user.
+class RemoteUserState {
+  final int uid;
+
+  /// Whether the local user muted the user's audio.
+  final bool audioMuted;
+
+  /// Whether the local user muted the user's video.
+  final bool videoMuted;
+
+  /// The stream type set by [AgoraRtcEngine.setRemoteVideoStreamType].
+  final int videoStreamType;
+
+  /// Whether the user muted its audio, see [AgoraRtcEngine.onUserMuteAudio].
+  final bool userMutedAudio;
+
+  /// Whether the user muted its video, see [AgoraRtcEngine.onUserMuteVideo].
+  final bool userMutedVideo;
+
+  RemoteUserState._(this.uid, this.audioMuted, this.videoMuted,
+      this.videoStreamType, this.userMutedAudio, this.userMutedVideo);
+
+  factory RemoteUserState._fromMap(Map map) {
+    return RemoteUserState._(map['uid'], map['audioMuted'], map['videoMuted'],
+        map['videoStreamType'], map['userMutedAudio'], map['userMutedVideo']);
+  }
+}
+
+/// How [AgoraRtcEngine.enableEncoderAutoTuning] steps the video encoder configuration.
+///
+/// A stats tick is overloaded when the total CPU usage reaches [cpuHigh] percent, the encoder outputs less than [frameRateRatio] of the step's frame rate, or the thermal status reaches [thermalStatus]; it is idle when the CPU usage is at most [cpuLow] percent and neither of the others holds.
+/// Intervals are in milliseconds.
+class EncoderTuningConfig {
+  /// The configurations to step through, from the best to the lightest.
+  List<VideoEncoderConfiguration> ladder = [
+    _step(640, 360, 15),
+    _step(480, 270, 15),
+    _step(480, 270, 10),
+    _step(320, 180, 10),
+    _step(320, 180, 7),
+  ];
+
+  double cpuHigh = 85;
+  double cpuLow = 60;
+  double frameRateRatio = 0.7;
+
+  /// The Android `PowerManager` thermal status from which to step down, `THERMAL_STATUS_MODERATE` by default; only read on Android 10 and later.
+  int thermalStatus = 2;
+
+  /// The overloaded ticks in a row before stepping down.
+  int downSamples = 2;
+
+  /// The idle ticks in a row before stepping back up.
+  int upSamples = 5;
+
+  /// The least time between a step and a step down.
+  int downInterval = 6000;
+
+  /// The least time between a step and a step up; doubled, up to 8 times, when a step up does not hold.
+  int upInterval = 20000;
+
+  static VideoEncoderConfiguration _step(int width, int height, int frameRate) {
+    return VideoEncoderConfiguration()
+      ..dimensions = Size(width.toDouble(), height.toDouble())
+      ..frameRate = frameRate;
+  }
+
+  Map<String, dynamic> _jsonMap() {
+    return {
+      'ladder': ladder.map((config) => config._jsonMap()).toList(),
+      'cpuHigh': cpuHigh,
+      'cpuLow': cpuLow,
+      'frameRateRatio': frameRateRatio,
+      'thermalStatus': thermalStatus,
+      'downSamples': downSamples,
+      'upSamples': upSamples,
+      'downInterval': downInterval,
+      'upInterval': upInterval,
+    };
+  }
+}
+
+enum EncoderAdjustmentReason {
+  /// The total CPU usage reached [EncoderTuningConfig.cpuHigh].
+  Cpu,
+
+  /// The encoder output frame rate fell below [EncoderTuningConfig.frameRateRatio] of the configured one.
+  FrameRate,
+
+  /// The thermal status reached [EncoderTuningConfig.thermalStatus].
+  Thermal,
+
+  /// The device was idle long enough to step back up.
+  Recovered,
+}
+
+/// A step reported by [AgoraRtcEngine.onEncoderAdjusted], with the stats that caused it.
+class EncoderAdjustment {
+  /// The index of the new step in [EncoderTuningConfig.ladder].
+  final int step;
+  final int previousStep;
+  final EncoderAdjustmentReason reason;
+  final Size dimensions;
+  final int frameRate;
+  final double cpuTotalUsage;
+  final double cpuAppUsage;
+  final int sentFrameRate;
+  final int encoderOutputFrameRate;
+
+  /// The thermal status, or -1 if unknown.
+  final int thermalStatus;
+
+  EncoderAdjustment._(
+      this.step,
+      this.previousStep,
+      this.reason,
+      this.dimensions,
+      this.frameRate,
+      this.cpuTotalUsage,
+      this.cpuAppUsage,
+      this.sentFrameRate,
+      this.encoderOutputFrameRate,
+      this.thermalStatus);
+
+  factory EncoderAdjustment._fromMap(Map map) {
+    Map configuration = map['configuration'];
+    EncoderAdjustmentReason reason;
+    switch (map['reason']) {
+      case 'cpu':
+        reason = EncoderAdjustmentReason.Cpu;
+        break;
+      case 'frameRate':
+        reason = EncoderAdjustmentReason.FrameRate;
+        break;
+      case 'thermal':
+        reason = EncoderAdjustmentReason.Thermal;
+        break;
+      default:
+        reason = EncoderAdjustmentReason.Recovered;
+    }
+    return EncoderAdjustment._(
+        map['step'],
+        map['previousStep'],
+        reason,
+        Size(configuration['width'].toDouble(),
+            configuration['height'].toDouble()),
+        configuration['frameRate'],
+        map['cpuTotalUsage'],
+        map['cpuAppUsage'],
+        map['sentFrameRate'],
+        map['encoderOutputFrameRate'],
+        map['thermalStatus']);
+  }
+}
+
+/// How [AgoraRtcEngine.enableSubscriptionAllocator] shares the downlink between the remote users.
+///
+/// Bitrates are in Kbps and loss rates in percent.
+class SubscriptionAllocatorConfig {
+  /// The downlink budget, or 0 to estimate it from the received bitrate and packet loss between [minBudget] and [maxBudget]. The received audio bitrate is taken from it.
+  int budget = 0;
+  int minBudget = 300;
+  int maxBudget = 3000;
+
+  /// The packet loss from which the estimated budget is cut.
+  int lossHigh = 10;
+
+  /// The packet loss up to which the estimated budget grows; it is probed upwards every 3 stats ticks in a row at or below it.
+  int lossLow = 2;
+
+  /// The most users on the high stream.
+  int maxHigh = 2;
+
+  /// The initial bitrates of the high and the low stream, which then follow the received ones.
+  int highCost = 500;
+  int lowCost = 100;
+
+  /// The most users moved to a better tier per stats tick; moves to a lower tier are not limited.
+  int maxUpgradesPerTick = 1;
+
+  Map<String, dynamic> _jsonMap() {
+    return {
+      'budget': budget,
+      'minBudget': minBudget,
+      'maxBudget': maxBudget,
+      'lossHigh': lossHigh,
+      'lossLow': lossLow,
+      'maxHigh': maxHigh,
+      'highCost': highCost,
+      'lowCost': lowCost,
+      'maxUpgradesPerTick': maxUpgradesPerTick,
+    };
+  }
+}
+
+enum SubscriptionTier {
+  High,
+  Low,
+
+  /// The user's video is not received.
+  Muted,
+}
+
+/// The allocation of [AgoraRtcEngine.enableSubscriptionAllocator].
+class SubscriptionAllocation {
+  /// The video budget of the last stats tick, in Kbps.
+  final int budget;
+
+  /// The bitrates the high and the low stream are expected to take, in Kbps.
+  final int highCost;
+  final int lowCost;
+  final List<UserSubscription> users;
+
+  SubscriptionAllocation._(
+      this.budget, this.highCost, this.lowCost, this.users);
+
+  factory SubscriptionAllocation._fromMap(Map map) {
+    List users = map['users'];
+    return SubscriptionAllocation._(
+        map['budget'],
+        map['highCost'],
+        map['lowCost'],
+        users.map((user) => UserSubscription._fromMap(user)).toList());
+  }
+}
+
+/// The allocated subscription of one remote user.
+class UserSubscription {
+  final int uid;
+
+  /// The user's tier, or null before the first allocation.
+  final SubscriptionTier tier;
+
+  /// Whether the user has [UserPriority.High].
+  final bool priority;
+
+  UserSubscription._(this.uid, this.tier, this.priority);
+
+  factory UserSubscription._fromMap(Map map) {
+    int tier = map['tier'];
+    return UserSubscription._(map['uid'],
+        tier >= 0 ? SubscriptionTier.values[tier] : null, map['priority']);
+  }
+}
+
+/// The load simulated by a fake engine, see [AgoraRtcEngine.create].
+///
+/// Intervals are in milliseconds; 0 disables the corresponding events.
+class FakeEngineConfig {
+  /// The number of remote users in the channel.
+  int userCount = 16;
+
+  /// The time between two users joining after the local user joined.
+  int joinInterval = 100;
+
+  /// The time between a random user leaving and a new one joining.
+  int churnInterval = 0;
+
+  /// The number of remote users in each remote volume indication.
+  int speakerCount = 3;
+
+  /// The volume indication interval; 0 uses the interval passed to [AgoraRtcEngine.enableAudioVolumeIndication].
+  int volumeInterval = 0;
+
+  /// The interval of [AgoraRtcEngine.onRtcStats], the local and the per-user remote stats.
+  int statsInterval = 2000;
+
+  /// The interval of [AgoraRtcEngine.onNetworkQuality] for every user.
+  int networkQualityInterval = 2000;
+
+  /// The seed of the generated volumes, stats and churn.
+  int seed = 0;
+
+  Map<String, dynamic> _jsonMap() {
+    return {
+      'userCount': userCount,
+      'joinInterval': joinInterval,
+      'churnInterval': churnInterval,
+      'speakerCount': speakerCount,
+      'volumeInterval': volumeInterval,
+      'statsInterval': statsInterval,
+      'networkQualityInterval': networkQualityInterval,
+      'seed': seed,
+    };
+  }
+}
+
+/// The activity of a fake engine, returned by [AgoraRtcEngine.getFakeEngineReport].
+///
+/// Times are wall-clock microseconds, comparable with `DateTime.now().microsecondsSinceEpoch`.
+class FakeEngineReport {
+  /// The time the report was taken.
+  final int time;
+
+  /// The number of commands received.
+  final int commandCount;
+
+  /// The most recent commands, oldest first.
+  final List<FakeEngineCommand> commands;
+
+  /// The callbacks emitted, by event name.
+  final Map<String, FakeEngineEvents> events;
+
+  FakeEngineReport._(this.time, this.commandCount, this.commands, this.events);
+
+  factory FakeEngineReport._fromMap(Map map) {
+    List<FakeEngineCommand> commands = [];
+    for (Map command in map['commands']) {
+      commands.add(FakeEngineCommand._(
+          command['method'], command['arguments'], command['time']));
+    }
+    Map<String, FakeEngineEvents> events = {};
+    (map['events'] as Map).forEach((name, value) {
+      events[name] = FakeEngineEvents._(value['count'], value['times']);
+    });
+    return FakeEngineReport._(
+        map['time'], map['commandCount'], commands, events);
+  }
+}
+
+class FakeEngineCommand {
+  final String method;
+
+  /// The arguments; objects other than numbers, booleans and strings are replaced by their class name, and messages by their length.
+  final List arguments;
+  final int time;
+
+  FakeEngineCommand._(this.method, this.arguments, this.time);
+}
+
+class FakeEngineEvents {
+  /// The number of callbacks emitted.
+  final int count;
+
+  /// The emission times of the most recent callbacks, oldest first.
+  final List<int> times;
+
+  FakeEngineEvents._(this.count, this.times);
+
+  /// The index of the first of [times] among all the callbacks; the n-th callback received in Dart was emitted at `times[n - firstIndex]`.
+  int get firstIndex => count - times.length;
+}
+
 class RtcStats {
   int totalDuration;
   int txBytes;
@@ -1204,6 +3094,29 @@ enum VideoRenderMode {
   Fit,
 }
 
+/// How the native event queue handles an event, see [AgoraRtcEngine.enableEventQueue].
+enum EventQueuePolicy {
+  /// Always delivered, in order.
+  Lossless,
+
+  /// Replaces the queued event of the same user; the latest event of each user is kept even when the queue is full.
+  Coalesce,
+
+  /// Dropped when the queue is full.
+  Droppable,
+}
+
+enum AudioVolumeIndicationMode {
+  /// Report every speaker the SDK reports.
+  All,
+
+  /// Report the loudest speakers only.
+  TopK,
+
+  /// Report the speakers whose volume changed only.
+  Delta,
+}
+
 enum UserPriority {
   High,
   Normal,